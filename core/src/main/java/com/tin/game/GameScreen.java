@@ -14,9 +14,11 @@ import com.badlogic.gdx.utils.CharArray;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
 import com.tin.game.core.GameMap;
 import com.tin.game.core.MapCell;
+import com.tin.game.core.MapDescriptor;
+import com.tin.game.utils.Position;
 import com.tin.game.system.*;
 
 import static com.tin.game.Config.*;
@@ -36,6 +38,7 @@ public class GameScreen extends ScreenAdapter {
     private OrthogonalTiledMapRenderer renderer;
     private BitmapFont font;
     private final GlyphLayout layout = new GlyphLayout();
+    private final Vector2 touch = new Vector2();
     private SpriteBatch batch;
 
     // road
@@ -44,11 +47,16 @@ public class GameScreen extends ScreenAdapter {
     private RoadDrawer roadDrawer;
     private TownDrawer townDrawer;
     private PathDrawer pathDrawer;
+    private CarDrawer carDrawer;
 
     private float elapsedTime = 0;
 
     public GameScreen() {
-        this.gameData = new GameData();
+        this(MapDescriptor.defaults());
+    }
+
+    public GameScreen(MapDescriptor map) {
+        this.gameData = new GameData(map);
     }
 
     @Override
@@ -57,7 +65,8 @@ public class GameScreen extends ScreenAdapter {
 
         // Setup camera
         camera = new OrthographicCamera();
-        viewport = new FitViewport(SCREEN_WIDTH, SCREEN_HEIGHT, camera);
+        MapDescriptor board = gameData.getGameMap().getDescriptor();
+        viewport = new FitViewport(board.worldWidth, board.worldHeight, camera);
 
         // Setup GUI camera
         guiCam = new OrthographicCamera();
@@ -74,18 +83,21 @@ public class GameScreen extends ScreenAdapter {
         map = new TiledMap();
 
         GameMap drawMap = gameData.getGameMap();
-        GameMap background = GameMap.newBlankMap(SCREEN_WIDTH, SCREEN_HEIGHT);
+        drawMap.showTileGrid(false);
+        // covers the whole world, which grows with the board
+        GameMap background = GameMap.newBlankMap(board.worldWidth, board.worldHeight);
         map.getLayers().add(background);
         map.getLayers().add(drawMap);
         drawMap.setVisible(true);
-        drawMap.setOffsetX(OFFSET_X);
-        drawMap.setOffsetY(-OFFSET_Y);
+        drawMap.setOffsetX(board.offsetX);
+        drawMap.setOffsetY(-board.offsetY);
 
         // road drawing setup
         TownSystem town = gameData.getTownSystem();
         roadDrawer = new RoadDrawer(drawMap, new Color(0x7f7f7fff));
         townDrawer = new TownDrawer(drawMap, Color.WHITE);
         pathDrawer = new PathDrawer(drawMap, new Color(0,0,0,0.25f));
+        carDrawer = new CarDrawer();
 
         // Setup map renderer
         final float unitScale = 1f / Math.max(drawMap.getTileWidth(), drawMap.getTileHeight());
@@ -98,32 +110,11 @@ public class GameScreen extends ScreenAdapter {
             @Override
             public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 
-                // Extract game width from screen width ignoring UI
-                float uiWidth = (viewport.getScreenWidth() * ((SCREEN_WIDTH - GAME_WIDTH) / (float) SCREEN_WIDTH));
-                float uiHeight = (viewport.getScreenHeight() * ((SCREEN_HEIGHT - GAME_HEIGHT) / (float) SCREEN_HEIGHT) );
-                float gameWidth = viewport.getScreenWidth() - uiWidth;
-                float gameHeight = viewport.getScreenHeight() - uiHeight;
-                float offsetX = uiWidth / 2f;
-                float offsetY = uiHeight / 2f;
-
                 // Remap touch position to what cell a tile get clicked
-                int column =  MathUtils.floor(
-                    MathUtils.map(viewport.getLeftGutterWidth() + offsetX,
-                    viewport.getLeftGutterWidth() + gameWidth + offsetX,
-                    0.0f, MAP_WIDTH, screenX)
-                );
-
-                if(column < 0 || column >= MAP_WIDTH) return true;
+                Position cell = board.remapScreenToCell(viewport.unproject(touch.set(screenX, screenY)));
+                if(cell == null) return true;
 
-                int row = MathUtils.floor(
-                    MathUtils.map(viewport.getTopGutterHeight() + offsetY,
-                    viewport.getTopGutterHeight() + gameHeight + offsetY,
-                    0.0f, MAP_HEIGHT, screenY)
-                );
-
-                if(row < 0 || row >= MAP_HEIGHT) return true;
-
-                gameData.pushRoad(column, row);
+                gameData.pushRoad(cell.col, cell.row);
 
                 return true;
             }
@@ -157,6 +148,9 @@ public class GameScreen extends ScreenAdapter {
         Gdx.gl.glClearColor(0f, 0f, 0f, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+        // advance the simulation in fixed steps, the drawers below only read its state
+        float alpha = gameData.advance(delta);
+
         // Render map
         viewport.apply(true);
         renderer.setView(camera);
@@ -166,7 +160,7 @@ public class GameScreen extends ScreenAdapter {
 
         // road drawing
         roadDrawer.begin();
-        if(gameData.getRoadMap().size >= 2) {
+        if(gameData.getRoadMap().roadCount() >= 2) {
             roadDrawer.drawEachRoadCell(gameData.getRoadMap());
             roadDrawer.drawEachRoadConnection(gameData.getPathMap());
         }
@@ -176,9 +170,9 @@ public class GameScreen extends ScreenAdapter {
         pathDrawer.drawAllPath(gameData.getPathSystem().getAllPath());
         pathDrawer.end();
 
-        gameData.getTownSystem().carBatch.begin();
-        gameData.getTownSystem().animateAllCar(delta);
-        gameData.getTownSystem().carBatch.end();
+        carDrawer.begin();
+        carDrawer.drawAllCar(gameData.getTownSystem(), alpha);
+        carDrawer.end();
 
         townDrawer.begin();
         townDrawer.drawAllHouse(gameData.getTownSystem().getHouseMap());
@@ -192,7 +186,7 @@ public class GameScreen extends ScreenAdapter {
             MapCell pos = drawMap.getCellAt(store);
 
             font.getData().setScale(1.75f);
-            font.draw(batch, String.valueOf(store.needed()), pos.x + TILE_SIZE - 8, pos.y - TILE_SIZE + 8);
+            font.draw(batch, String.valueOf(store.needed()), pos.x + pos.tileSize - 8, pos.y - pos.tileSize + 8);
         });
         batch.end();
 
@@ -216,6 +210,7 @@ public class GameScreen extends ScreenAdapter {
         map.dispose();
         font.dispose();
         roadDrawer.dispose();
+        carDrawer.dispose();
         batch.dispose();
     }
 }
@@ -2,14 +2,27 @@ package com.tin.game;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.tin.game.core.MapDescriptor;
 
 /** {@link com.badlogic.gdx.Game} implementation shared by all platforms. */
 public class Main extends Game {
+    private final MapDescriptor map;
     private GameScreen gameScreen;
 
+    public Main() {
+        this(MapDescriptor.defaults());
+    }
+
+    /**
+     * @param map board to play on, e.g. from a scenario file or the command line
+     */
+    public Main(MapDescriptor map) {
+        this.map = map;
+    }
+
     @Override
     public void create() {
-        gameScreen = new GameScreen();
+        gameScreen = new GameScreen(map);
         Gdx.app.log("Log", "Game Created AAAAAA");
         setScreen(gameScreen);
     }
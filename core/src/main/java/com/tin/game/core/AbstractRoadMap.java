@@ -1,11 +1,14 @@
 package com.tin.game.core;
 
-import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.StringBuilder;
+import com.tin.game.utils.CellKey;
 import com.tin.game.utils.Position;
 
-public abstract class AbstractRoadMap extends ObjectMap<Position, ObjectSet<MapCell>> implements IRoadMap {
+import static com.tin.game.core.MapCell.CELL_BITS;
+
+public abstract class AbstractRoadMap extends IntMap<IntSet> implements IRoadMap {
 
     AbstractRoadMap() {
         super();
@@ -19,7 +22,7 @@ public abstract class AbstractRoadMap extends ObjectMap<Position, ObjectSet<MapC
         super(initialCapacity, loadFactor);
     }
 
-    public AbstractRoadMap(ObjectMap<? extends Position, ? extends ObjectSet<MapCell>> map) {
+    public AbstractRoadMap(IntMap<? extends IntSet> map) {
         super(map);
     }
 
@@ -27,82 +30,140 @@ public abstract class AbstractRoadMap extends ObjectMap<Position, ObjectSet<MapC
 
     public abstract void removeRoad(MapCell cell);
 
-    public void put(int col, int row, ObjectSet<MapCell> adjacency) {
-        put(new Position(col, row), adjacency);
+    public abstract void excludeConnection(Position start, MapCell cell, Position end);
+
+    public void put(int col, int row, IntSet adjacency) {
+        put(CellKey.of(col, row), adjacency);
+    }
+
+    public void putIfAbsent(Position position, IntSet adjacency) {
+        putIfAbsent(position.key(), adjacency);
     }
 
-    public void putIfAbsent(Position position, ObjectSet<MapCell> adjacency) {
-        if(hasRoad(position)) return;
-        put(position, adjacency);
+    public void putIfAbsent(int key, IntSet adjacency) {
+        if(hasRoad(key)) return;
+        put(key, adjacency);
     }
 
-    public void putIfAbsent(int col, int row, ObjectSet<MapCell> adjacency) {
-        if(hasRoad(col, row)) return;
-        put(col, row, adjacency);
+    public void putIfAbsent(int col, int row, IntSet adjacency) {
+        putIfAbsent(CellKey.of(col, row), adjacency);
     }
 
-    public void putIfAbsent(MapCell cell, ObjectSet<MapCell> adjacency) {
-        if(hasRoad(cell.pos)) return;
-        put(cell.pos, adjacency);
+    public void putIfAbsent(MapCell cell, IntSet adjacency) {
+        putIfAbsent(cell.pos.key(), adjacency);
     }
 
     public void remove(int col, int row) {
-        remove(new Position(col, row));
+        remove(CellKey.of(col, row));
+    }
+
+    public IntSet getAdjacent(int key) {
+        return get(key);
+    }
+
+    public IntSet getAdjacent(int col, int row) {
+        return get(CellKey.of(col, row));
+    }
+
+    public IntSet getAdjacent(Position position) {
+        return get(position.key());
+    }
+
+    public IntSet getAdjacent(int key, IntSet defaultValue) {
+        return get(key, defaultValue);
+    }
+
+    public IntSet getAdjacent(Position position, IntSet defaultValue) {
+        return get(position.key(), defaultValue);
+    }
+
+    @Override
+    public boolean hasRoad(int key) {
+        return containsKey(key);
+    }
+
+    @Override
+    public boolean hasRoad(int col, int row) {
+        return containsKey(CellKey.of(col, row));
+    }
+
+    @Override
+    public boolean hasRoad(Position position) {
+        return containsKey(position.key());
     }
 
-    public void remove(ObjectSet<MapCell> adjacency) {
-        remove(findKey(adjacency, false));
+    public IntMap.Keys getPositions() {
+        return keys();
     }
 
     @Override
-    public ObjectSet<MapCell> getAdjacent(int col, int row) {
-        return get(new Position(col, row));
+    public int getAdjacentMask(int key) {
+        IntSet adjacency = get(key);
+        if(adjacency == null) return NO_ROAD;
+
+        int col = CellKey.col(key);
+        int row = CellKey.row(key);
+        int mask = 0;
+
+        IntSet.IntSetIterator itr = adjacency.iterator();
+        while(itr.hasNext) {
+            int adjacent = itr.next();
+            CELL_BITS direction = CELL_BITS.fromOffset(CellKey.col(adjacent) - col, CellKey.row(adjacent) - row);
+            if(direction != null) mask |= direction.bit();
+        }
+        return mask;
     }
 
     @Override
-    public ObjectSet<MapCell> getAdjacent(Position position) {
-        return get(position);
+    public int getAdjacentMask(Position position) {
+        return getAdjacentMask(position.key());
     }
 
     @Override
-    public ObjectSet<MapCell> getAdjacent(int col, int row, ObjectSet<MapCell> defaultValue) {
-        return get(new Position(col, row), defaultValue);
+    public int degreeOf(int key) {
+        IntSet adjacency = get(key);
+        return adjacency == null ? 0 : adjacency.size;
     }
 
     @Override
-    public ObjectSet<MapCell> getAdjacent(Position position, ObjectSet<MapCell> defaultValue) {
-        return get(position, defaultValue);
+    public boolean isConnected(int from, int to) {
+        IntSet adjacency = get(from);
+        return adjacency != null && adjacency.contains(to);
     }
 
     @Override
-    public boolean hasRoad(int col, int row) {
-        return containsKey(new Position(col, row));
+    public void forEachAdjacent(int key, OnRoad onRoad) {
+        IntSet adjacency = get(key);
+        if(adjacency == null) return;
+
+        IntSet.IntSetIterator itr = adjacency.iterator();
+        while(itr.hasNext) onRoad.road(itr.next());
     }
 
     @Override
-    public boolean hasRoad(Position position) {
-        return containsKey(position);
+    public void forEachRoad(OnRoad onRoad) {
+        IntMap.Keys nodes = keys();
+        while(nodes.hasNext) onRoad.road(nodes.next());
     }
 
     @Override
-    public ObjectMap.Keys<Position> getPositions() {
-        return keys();
+    public int roadCount() {
+        return size;
     }
 
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
         this.forEach((node) -> {
-            result.append(node.key.toString());
+            result.append(CellKey.toString(node.key));
             result.append(": {");
-            node.value.forEach((edges) -> {
+            IntSet.IntSetIterator edges = node.value.iterator();
+            while(edges.hasNext) {
                 if(result.charAt(result.length() - 1) == ')')
                     result.append(", ");
 
-                result.append("(")
-                    .append(edges.pos.col).append(", ")
-                    .append(edges.pos.row).append(")");
-            });
+                result.append(CellKey.toString(edges.next()));
+            }
             result.append("}\n");
         });
 
@@ -0,0 +1,208 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.Position;
+
+import static com.tin.game.core.MapCell.CELL_BITS;
+
+/**
+ * Grid implementation for road map, one byte of {@link CELL_BITS} per cell.
+ * <p>
+ * Adjacency tests, degree counts and neighbour iteration are bit operations
+ * on that byte, and the road cells are kept in a dense list so they can be
+ * iterated and removed without searching the whole grid.
+ */
+public class BitmaskRoadMap implements IRoadMap {
+    private final int width;
+    private final int height;
+
+    // cell index -> CELL_BITS of its connections
+    private final byte[] adjacency;
+
+    // cell index -> position in roads + 1, 0 when the cell is not a road
+    private final int[] slot;
+
+    // CellKey of every road cell
+    private final IntArray roads;
+
+    public BitmaskRoadMap(MapDescriptor map) {
+        this(map.width, map.height);
+    }
+
+    public BitmaskRoadMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.adjacency = new byte[width * height];
+        this.slot = new int[width * height];
+        this.roads = new IntArray();
+    }
+
+    @Override
+    public void pushRoad(MapCell from, MapCell to) {
+        addNode(from);
+        addNode(to);
+        if(from.equals(to)) return;
+
+        CELL_BITS direction = CELL_BITS.fromOffset(to.pos.col - from.pos.col, to.pos.row - from.pos.row);
+        if(direction == null) throw new GdxRuntimeException("Road cells are not adjacent: " + from.pos + " -> " + to.pos);
+
+        adjacency[indexOf(from.pos.key())] |= (byte) direction.bit();
+        adjacency[indexOf(to.pos.key())] |= (byte) direction.opposite().bit();
+    }
+
+    @Override
+    public void removeRoad(MapCell cell) {
+        int key = cell.pos.key();
+        if(!hasRoad(key)) return;
+
+        // clear connections
+        int index = indexOf(key);
+        for (int bits = adjacency[index] & 0xFF; bits != 0; bits &= bits - 1) {
+            CELL_BITS direction = CELL_BITS.lowest(bits);
+            adjacency[indexOf(direction.neighborOf(key))] &= (byte) ~direction.opposite().bit();
+        }
+        adjacency[index] = 0;
+
+        //delete itself
+        removeNode(key);
+    }
+
+    @Override
+    public void excludeConnection(Position start, MapCell cell, Position end) {
+        int key = cell.pos.key();
+        int startKey = start.key();
+        int endKey = end.key();
+        if(!hasRoad(key)) return;
+
+        // clear connections
+        int index = indexOf(key);
+        for (int bits = adjacency[index] & 0xFF; bits != 0; bits &= bits - 1) {
+            CELL_BITS direction = CELL_BITS.lowest(bits);
+            int adj = direction.neighborOf(key);
+            if(adj == startKey || adj == endKey) continue;
+
+            int adjIndex = indexOf(adj);
+            adjacency[adjIndex] &= (byte) ~direction.opposite().bit();
+            if(adjacency[adjIndex] == 0) {
+                removeNode(adj);
+            }
+
+            adjacency[index] &= (byte) ~direction.bit();
+        }
+    }
+
+    @Override
+    public boolean hasRoad(int key) {
+        return hasRoad(CellKey.col(key), CellKey.row(key));
+    }
+
+    @Override
+    public boolean hasRoad(int col, int row) {
+        if(col < 0 || col >= width || row < 0 || row >= height) return false;
+        return slot[row * width + col] != 0;
+    }
+
+    @Override
+    public boolean hasRoad(Position position) {
+        return hasRoad(position.col, position.row);
+    }
+
+    @Override
+    public int getAdjacentMask(int key) {
+        if(!hasRoad(key)) return NO_ROAD;
+        return adjacency[indexOf(key)] & 0xFF;
+    }
+
+    @Override
+    public int getAdjacentMask(Position position) {
+        return getAdjacentMask(position.key());
+    }
+
+    @Override
+    public int degreeOf(int key) {
+        if(!hasRoad(key)) return 0;
+        return Integer.bitCount(adjacency[indexOf(key)] & 0xFF);
+    }
+
+    @Override
+    public boolean isConnected(int from, int to) {
+        if(!hasRoad(from)) return false;
+
+        CELL_BITS direction = CELL_BITS.fromOffset(
+            CellKey.col(to) - CellKey.col(from),
+            CellKey.row(to) - CellKey.row(from));
+        return direction != null && (adjacency[indexOf(from)] & direction.bit()) != 0;
+    }
+
+    @Override
+    public void forEachAdjacent(int key, OnRoad onRoad) {
+        if(!hasRoad(key)) return;
+
+        for (int bits = adjacency[indexOf(key)] & 0xFF; bits != 0; bits &= bits - 1) {
+            onRoad.road(CELL_BITS.lowest(bits).neighborOf(key));
+        }
+    }
+
+    @Override
+    public void forEachRoad(OnRoad onRoad) {
+        for (int i = 0; i < roads.size; i++) onRoad.road(roads.get(i));
+    }
+
+    @Override
+    public int roadCount() {
+        return roads.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return roads.size == 0;
+    }
+
+    private void addNode(MapCell cell) {
+        int key = cell.pos.key();
+        if(hasRoad(key)) return;
+
+        cell.setType(MapCell.CELL_TYPE.ROAD);
+
+        roads.add(key);
+        slot[indexOf(key)] = roads.size;
+    }
+
+    private void removeNode(int key) {
+        int index = indexOf(key);
+        int position = slot[index] - 1;
+        slot[index] = 0;
+
+        // move the last road into the hole
+        int last = roads.pop();
+        if(position < roads.size) {
+            roads.set(position, last);
+            slot[indexOf(last)] = position + 1;
+        }
+    }
+
+    private int indexOf(int key) {
+        return CellKey.row(key) * width + CellKey.col(key);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < roads.size; i++) {
+            int node = roads.get(i);
+            result.append(CellKey.toString(node));
+            result.append(": {");
+            for (int bits = adjacency[indexOf(node)] & 0xFF; bits != 0; bits &= bits - 1) {
+                if(result.charAt(result.length() - 1) == ')')
+                    result.append(", ");
+
+                result.append(CellKey.toString(CELL_BITS.lowest(bits).neighborOf(node)));
+            }
+            result.append("}\n");
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,410 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.SearchWorkspace;
+
+import java.util.Arrays;
+
+import static com.tin.game.core.MapCell.CELL_BITS;
+import static com.tin.game.core.PathMap.DIAGONAL_COST;
+import static com.tin.game.core.PathMap.STRAIGHT_COST;
+
+/**
+ * Hierarchical road search (HPA*) over fixed size square clusters of the map.
+ * <p>
+ * Every road cell with a connection into another cluster is an entrance, and
+ * every cluster keeps the shortest distance between each pair of its entrances
+ * over its own roads. A search first runs over this abstract graph of entrances,
+ * then the route is refined cell by cell only inside the clusters it passes.
+ * The distances are exact, so the route is as short as a search over every road.
+ * <p>
+ * Road edits only mark their clusters, which are precomputed again on the next search.
+ */
+public class ClusterMap {
+
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    /**
+     * Entrances of a cluster and the distances between them
+     */
+    private static class Cluster {
+        // top left cell and size, clusters on the right and bottom edge may be smaller
+        final int col, row, width, height;
+
+        // CellKey and entrance id of every entrance
+        final IntArray entrances = new IntArray();
+        final IntArray ids = new IntArray();
+
+        // entrances.size x entrances.size, UNREACHED if the roads inside don't connect them
+        // or the shortest connection already runs through another entrance
+        int[] distance = new int[0];
+
+        boolean dirty = true;
+
+        Cluster(int col, int row, int width, int height) {
+            this.col = col;
+            this.row = row;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean contains(int key) {
+            int keyCol = CellKey.col(key) - col;
+            int keyRow = CellKey.row(key) - row;
+            return keyCol >= 0 && keyCol < width && keyRow >= 0 && keyRow < height;
+        }
+
+        // cell index inside the cluster
+        int localOf(int key) {
+            return (CellKey.row(key) - row) * width + CellKey.col(key) - col;
+        }
+
+        int keyOf(int local) {
+            return CellKey.of(col + local % width, row + local / width);
+        }
+    }
+
+    private final IRoadMap roadMap;
+    private final int width;
+    private final int height;
+    private final int clusterSize;
+    private final int clusterColumns;
+    private final Cluster[] clusters;
+
+    // indices of the clusters to precompute before the next search
+    private final IntArray dirty;
+
+    // entrance CellKey -> dense entrance id, ids of removed entrances are reused
+    private final IntIntMap entranceID;
+    private final IntArray freeIDs;
+    private int entranceCount;
+    private int[] entranceKey;
+    private int[] entranceSlot; // position in the entrances of its cluster
+
+    // searches over the cells of one cluster and over the entrances
+    private final SearchWorkspace local;
+    private final SearchWorkspace entrances;
+
+    // cell index inside the cluster -> is an entrance, only set while precomputing
+    private final boolean[] isEntrance;
+
+    // cell index inside the cluster -> the last cluster search reached it through an entrance
+    private final boolean[] viaEntrance;
+
+    // distance from each entrance of the destination cluster to the destination
+    private int[] goalDistance = new int[16];
+
+    // scratch lists of the route reconstruction
+    private final IntArray chain = new IntArray();
+    private final IntArray trail = new IntArray();
+
+    // nodes settled by the last search, entrances and cells
+    private int expanded;
+
+    public ClusterMap(IRoadMap roadMap, MapDescriptor map) {
+        this(roadMap, map.width, map.height, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public ClusterMap(IRoadMap roadMap, int width, int height, int clusterSize) {
+        this.roadMap = roadMap;
+        this.width = width;
+        this.height = height;
+        this.clusterSize = clusterSize;
+        this.clusterColumns = (width + clusterSize - 1) / clusterSize;
+        int clusterRows = (height + clusterSize - 1) / clusterSize;
+
+        this.clusters = new Cluster[clusterColumns * clusterRows];
+        this.dirty = new IntArray(clusters.length);
+        for (int row = 0; row < clusterRows; row++) {
+            for (int col = 0; col < clusterColumns; col++) {
+                int left = col * clusterSize;
+                int top = row * clusterSize;
+                clusters[row * clusterColumns + col] = new Cluster(left, top,
+                    Math.min(clusterSize, width - left), Math.min(clusterSize, height - top));
+                dirty.add(row * clusterColumns + col);
+            }
+        }
+
+        this.entranceID = new IntIntMap();
+        this.freeIDs = new IntArray();
+        this.entranceKey = new int[16];
+        this.entranceSlot = new int[16];
+
+        this.local = new SearchWorkspace(clusterSize * clusterSize);
+        this.isEntrance = new boolean[clusterSize * clusterSize];
+        this.viaEntrance = new boolean[clusterSize * clusterSize];
+        this.entrances = new SearchWorkspace();
+    }
+
+    /**
+     * A road cell or one of its connections changed, its cluster has to be precomputed again.
+     * Report both ends of a changed connection.
+     */
+    public void roadChanged(int key) {
+        int col = CellKey.col(key);
+        int row = CellKey.row(key);
+        if(col < 0 || col >= width || row < 0 || row >= height) return;
+
+        int index = clusterIndexOf(key);
+        if(clusters[index].dirty) return;
+
+        clusters[index].dirty = true;
+        dirty.add(index);
+    }
+
+    /**
+     * Precompute every cluster changed since the last search.
+     */
+    public void refresh() {
+        for (int i = 0; i < dirty.size; i++) precompute(clusters[dirty.get(i)]);
+        dirty.clear();
+    }
+
+    /**
+     * Shortest route over the roads between two road cells.
+     * @param from {@link CellKey} of the start
+     * @param to {@link CellKey} of the destination
+     * @param out receives the CellKeys of the route in travel order, empty if there is none
+     * @return length of the route in SubPath cost units, {@link SearchWorkspace#UNREACHED} if there is none
+     */
+    public int findPath(int from, int to, IntArray out) {
+        out.clear();
+        expanded = 0;
+        if(!roadMap.hasRoad(from) || !roadMap.hasRoad(to)) return SearchWorkspace.UNREACHED;
+        if(from == to) {
+            out.add(from);
+            return 0;
+        }
+
+        refresh();
+        expanded = 0;
+
+        Cluster start = clusterOf(from);
+        Cluster goal = clusterOf(to);
+
+        // distances from the destination to the entrances of its cluster
+        searchCluster(goal, to, -1);
+        if(goalDistance.length < goal.entrances.size) goalDistance = new int[goal.entrances.size];
+        for (int i = 0; i < goal.entrances.size; i++) goalDistance[i] = local.distanceOf(goal.localOf(goal.entrances.get(i)));
+
+        // the start cluster seeds the entrance search, and may hold the whole route
+        searchCluster(start, from, -1);
+        int best = start == goal ? local.distanceOf(start.localOf(to)) : SearchWorkspace.UNREACHED;
+
+        entrances.reset(entranceCount);
+        for (int i = 0; i < start.entrances.size; i++) {
+            int key = start.entrances.get(i);
+            int distance = local.distanceOf(start.localOf(key));
+            if(distance != SearchWorkspace.UNREACHED) {
+                entrances.relax(start.ids.get(i), distance, -1, distance + AStarPathfinder.octile(key, to));
+            }
+        }
+
+        // the last entrance before the destination, -1 if the route stays inside the start cluster
+        int meeting = -1;
+        while(entrances.hasQueued() && entrances.heap.peekPriority() < best) {
+            int id = entrances.settleNext();
+            expanded++;
+
+            int key = entranceKey[id];
+            int distance = entrances.distanceOf(id);
+            Cluster cluster = clusterOf(key);
+
+            if(cluster == goal) {
+                int rest = goalDistance[entranceSlot[id]];
+                if(rest != SearchWorkspace.UNREACHED && distance + rest < best) {
+                    best = distance + rest;
+                    meeting = id;
+                }
+            }
+
+            // across the cluster
+            int count = cluster.entrances.size;
+            int slot = entranceSlot[id];
+            for (int i = 0; i < count; i++) {
+                int across = cluster.distance[slot * count + i];
+                if(i == slot || across == SearchWorkspace.UNREACHED) continue;
+
+                relaxEntrance(cluster.ids.get(i), distance + across, id, cluster.entrances.get(i), to);
+            }
+
+            // into the neighbouring clusters
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                int next = direction.neighborOf(key);
+                if(cluster.contains(next)) continue;
+
+                relaxEntrance(entranceID.get(next, -1), distance + stepCost(direction), id, next, to);
+            }
+        }
+
+        if(best == SearchWorkspace.UNREACHED) return best;
+
+        // refine the route cell by cell inside the clusters it passes
+        if(meeting < 0) {
+            searchCluster(start, from, to);
+            appendTrail(start, to, out);
+            return best;
+        }
+
+        chain.clear();
+        for (int id = meeting; id >= 0; id = entrances.parentOf(id)) chain.add(entranceKey[id]);
+        chain.reverse();
+
+        searchCluster(start, from, chain.first());
+        appendTrail(start, chain.first(), out);
+
+        for (int i = 1; i < chain.size; i++) {
+            int previous = chain.get(i - 1);
+            int next = chain.get(i);
+            Cluster cluster = clusterOf(previous);
+
+            if(cluster.contains(next)) {
+                searchCluster(cluster, previous, next);
+                appendTrail(cluster, next, out);
+            }
+            else out.add(next);
+        }
+
+        searchCluster(goal, chain.peek(), to);
+        appendTrail(goal, to, out);
+        return best;
+    }
+
+    private void relaxEntrance(int id, int distance, int parent, int key, int to) {
+        if(id < 0 || entrances.isSettled(id)) return;
+        entrances.relax(id, distance, parent, distance + AStarPathfinder.octile(key, to));
+    }
+
+    /**
+     * Dijkstra over the roads inside a cluster, stops early once target is settled.
+     * @param target CellKey to stop at, -1 to reach every cell
+     */
+    private void searchCluster(Cluster cluster, int source, int target) {
+        local.reset(cluster.width * cluster.height);
+        int sourceLocal = cluster.localOf(source);
+        local.relax(sourceLocal, 0, -1, 0);
+        viaEntrance[sourceLocal] = false;
+
+        int targetLocal = target < 0 ? -1 : cluster.localOf(target);
+        while(local.hasQueued()) {
+            int current = local.settleNext();
+            expanded++;
+            if(current == targetLocal) return;
+
+            int key = cluster.keyOf(current);
+            int distance = local.distanceOf(current);
+            boolean via = viaEntrance[current] || (current != sourceLocal && isEntrance[current]);
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                int next = direction.neighborOf(key);
+                if(!cluster.contains(next)) continue;
+
+                int nextLocal = cluster.localOf(next);
+                if(local.isSettled(nextLocal)) continue;
+
+                int newDistance = distance + stepCost(direction);
+                int priority = target < 0 ? newDistance : newDistance + AStarPathfinder.octile(next, target);
+                if(local.relax(nextLocal, newDistance, current, priority)) viaEntrance[nextLocal] = via;
+            }
+        }
+    }
+
+    /**
+     * Append the cells of the last cluster search up to target, without the cell out already ends at.
+     */
+    private void appendTrail(Cluster cluster, int target, IntArray out) {
+        trail.clear();
+        for (int cell = cluster.localOf(target); cell >= 0; cell = local.parentOf(cell)) trail.add(cluster.keyOf(cell));
+
+        int skip = out.size > 0 && out.peek() == trail.peek() ? 1 : 0;
+        for (int i = trail.size - 1 - skip; i >= 0; i--) out.add(trail.get(i));
+    }
+
+    /**
+     * Find the entrances of a cluster again and the distances between them.
+     */
+    private void precompute(Cluster cluster) {
+        cluster.dirty = false;
+
+        for (int i = 0; i < cluster.entrances.size; i++) {
+            freeIDs.add(entranceID.remove(cluster.entrances.get(i), -1));
+        }
+        cluster.entrances.clear();
+        cluster.ids.clear();
+
+        for (int row = cluster.row; row < cluster.row + cluster.height; row++) {
+            for (int col = cluster.col; col < cluster.col + cluster.width; col++) {
+                int key = CellKey.of(col, row);
+                for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                    if(cluster.contains(CELL_BITS.lowest(bits).neighborOf(key))) continue;
+
+                    addEntrance(cluster, key);
+                    break;
+                }
+            }
+        }
+
+        int count = cluster.entrances.size;
+        for (int i = 0; i < count; i++) isEntrance[cluster.localOf(cluster.entrances.get(i))] = true;
+
+        // a connection through another entrance is already covered by the two shorter ones
+        cluster.distance = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            searchCluster(cluster, cluster.entrances.get(i), -1);
+            for (int j = 0; j < count; j++) {
+                int cell = cluster.localOf(cluster.entrances.get(j));
+                cluster.distance[i * count + j] = viaEntrance[cell] ? SearchWorkspace.UNREACHED : local.distanceOf(cell);
+            }
+        }
+
+        for (int i = 0; i < count; i++) isEntrance[cluster.localOf(cluster.entrances.get(i))] = false;
+    }
+
+    private void addEntrance(Cluster cluster, int key) {
+        int id = freeIDs.size > 0 ? freeIDs.pop() : entranceCount++;
+        if(id == entranceKey.length) {
+            entranceKey = Arrays.copyOf(entranceKey, id * 2);
+            entranceSlot = Arrays.copyOf(entranceSlot, id * 2);
+        }
+
+        entranceID.put(key, id);
+        entranceKey[id] = key;
+        entranceSlot[id] = cluster.entrances.size;
+        cluster.entrances.add(key);
+        cluster.ids.add(id);
+    }
+
+    private static int stepCost(CELL_BITS direction) {
+        return direction.col != 0 && direction.row != 0 ? DIAGONAL_COST : STRAIGHT_COST;
+    }
+
+    private int clusterIndexOf(int key) {
+        return (CellKey.row(key) / clusterSize) * clusterColumns + CellKey.col(key) / clusterSize;
+    }
+
+    private Cluster clusterOf(int key) {
+        return clusters[clusterIndexOf(key)];
+    }
+
+    /**
+     * @return number of entrances over all clusters
+     */
+    public int getEntranceCount() {
+        return entranceID.size;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * @return entrances and cells settled by the last search, refinement included
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+}
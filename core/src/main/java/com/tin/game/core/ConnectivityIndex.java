@@ -0,0 +1,128 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.IntIntMap;
+import com.tin.game.utils.CellKey;
+
+import java.util.Arrays;
+
+/**
+ * Union-find index of which {@link PathGroup} every road node belongs to.
+ * <p>
+ * Nodes are joined to their group while it is being traversed, so the
+ * group of a node and whether two nodes are connected are answered in
+ * near-constant time instead of probing every group.
+ * A group is only ever removed as a whole (see {@link PathMap#updateGroups}),
+ * which resets its whole union-find tree, so deletion is a rebuild-on-removal
+ * of just that group.
+ */
+public class ConnectivityIndex {
+    private static final int NONE = -1;
+
+    private final int width;
+    private final int height;
+
+    // cell index -> parent cell index, NONE when the cell is not indexed
+    private final int[] parent;
+    private final byte[] rank;
+
+    // root cell index -> group ID
+    private final int[] rootGroup;
+
+    // group ID -> any cell index of that group
+    private final IntIntMap anchor;
+
+    public ConnectivityIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.parent = new int[width * height];
+        this.rank = new byte[width * height];
+        this.rootGroup = new int[width * height];
+        this.anchor = new IntIntMap();
+        clear();
+    }
+
+    /**
+     * Join a node to a group, the first node joined becomes the group anchor.
+     */
+    public void join(int groupID, int node) {
+        int index = indexOf(node);
+        if(index == NONE) return;
+
+        if(parent[index] == NONE) {
+            parent[index] = index;
+            rank[index] = 0;
+            rootGroup[index] = groupID;
+        }
+
+        int groupAnchor = anchor.get(groupID, NONE);
+        if(groupAnchor == NONE) {
+            anchor.put(groupID, index);
+            return;
+        }
+
+        int root = union(index, groupAnchor);
+        rootGroup[root] = groupID;
+    }
+
+    /**
+     * Forget a node, must be called for every node of a group being removed.
+     */
+    public void remove(int groupID, int node) {
+        int index = indexOf(node);
+        if(index != NONE) parent[index] = NONE;
+        anchor.remove(groupID, NONE);
+    }
+
+    /**
+     * @return the group ID of this node, -1 if it is not in any group
+     */
+    public int groupOf(int node) {
+        int index = indexOf(node);
+        if(index == NONE || parent[index] == NONE) return NONE;
+        return rootGroup[find(index)];
+    }
+
+    public boolean isConnected(int from, int to) {
+        int a = indexOf(from);
+        int b = indexOf(to);
+        if(a == NONE || b == NONE) return false;
+        if(parent[a] == NONE || parent[b] == NONE) return false;
+        return find(a) == find(b);
+    }
+
+    public void clear() {
+        Arrays.fill(parent, NONE);
+        anchor.clear();
+    }
+
+    private int find(int index) {
+        // path halving
+        while(parent[index] != index) {
+            parent[index] = parent[parent[index]];
+            index = parent[index];
+        }
+        return index;
+    }
+
+    private int union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if(rootA == rootB) return rootA;
+
+        if(rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+            return rootB;
+        }
+
+        parent[rootB] = rootA;
+        if(rank[rootA] == rank[rootB]) rank[rootA]++;
+        return rootA;
+    }
+
+    private int indexOf(int node) {
+        int col = CellKey.col(node);
+        int row = CellKey.row(node);
+        if(col >= width || row >= height) return NONE;
+        return row * width + col;
+    }
+}
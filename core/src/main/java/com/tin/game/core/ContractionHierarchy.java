@@ -0,0 +1,401 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.utils.IndexedIntHeap;
+import com.tin.game.utils.SearchWorkspace;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Contraction hierarchy over a {@link SubPathGraph}.
+ * <p>
+ * Nodes are contracted one by one, least important first, and every route that
+ * ran through a contracted node is kept as a shortcut between its neighbours
+ * unless a witness search finds a path at least as short without it. A query
+ * then only searches upwards, towards more important nodes, from both ends,
+ * which settles a few dozen nodes even on large road networks.
+ * <p>
+ * Building only reads the arrays of the graph, so it can run on a background
+ * thread. The result is immutable; queries run in a caller owned
+ * {@link Query} and do not allocate.
+ */
+public class ContractionHierarchy {
+
+    // witness searches give up after settling this many nodes, adding a shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 256;
+
+    public final SubPathGraph graph;
+
+    // node id -> contraction order
+    private final int[] rank;
+
+    // upward edges, edges of node n are [upFirst[n], upFirst[n + 1])
+    private final int[] upFirst;
+    private final int[] upSource;
+    private final int[] upTarget;
+    private final int[] upCost;
+
+    // graph edge id of an original edge, -(middle node + 1) of a shortcut
+    private final int[] upData;
+
+    public final int shortcutCount;
+
+    /**
+     * Contract the whole graph, this takes a while on large graphs.
+     */
+    public ContractionHierarchy(SubPathGraph graph) {
+        this.graph = graph;
+        int nodes = graph.nodeCount;
+
+        // adjacency of the remaining graph, entries are kept on both ends
+        IntArray[] target = new IntArray[nodes];
+        IntArray[] cost = new IntArray[nodes];
+        IntArray[] data = new IntArray[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int degree = graph.endEdge(node) - graph.firstEdge(node);
+            target[node] = new IntArray(false, degree);
+            cost[node] = new IntArray(false, degree);
+            data[node] = new IntArray(false, degree);
+        }
+
+        for (int node = 0; node < nodes; node++) {
+            for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+                int next = graph.targetOf(edge);
+                if(next == node) continue; // loops never shorten a route
+
+                connect(target, cost, data, node, next, graph.costOf(edge), edge);
+            }
+        }
+
+        Contraction contraction = new Contraction(nodes, target, cost, data);
+        this.rank = contraction.run();
+        this.shortcutCount = contraction.shortcuts;
+
+        // a contracted node keeps the entries it had left, all towards more important nodes
+        this.upFirst = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++) upFirst[node + 1] = upFirst[node] + target[node].size;
+
+        int edges = upFirst[nodes];
+        this.upSource = new int[edges];
+        this.upTarget = new int[edges];
+        this.upCost = new int[edges];
+        this.upData = new int[edges];
+
+        for (int node = 0; node < nodes; node++) {
+            int edge = upFirst[node];
+            for (int i = 0; i < target[node].size; i++) {
+                upSource[edge] = node;
+                upTarget[edge] = target[node].get(i);
+                upCost[edge] = cost[node].get(i);
+                upData[edge] = data[node].get(i);
+                edge++;
+            }
+        }
+    }
+
+    /**
+     * Add or shorten the entry from node to next, and its mirror.
+     */
+    private static void connect(IntArray[] target, IntArray[] cost, IntArray[] data, int node, int next, int length, int edgeData) {
+        setEntry(target[node], cost[node], data[node], next, length, edgeData);
+        setEntry(target[next], cost[next], data[next], node, length, edgeData);
+    }
+
+    private static void setEntry(IntArray target, IntArray cost, IntArray data, int next, int length, int edgeData) {
+        int at = target.indexOf(next);
+        if(at < 0) {
+            target.add(next);
+            cost.add(length);
+            data.add(edgeData);
+        }
+        else if(length < cost.get(at)) {
+            cost.set(at, length);
+            data.set(at, edgeData);
+        }
+    }
+
+    /**
+     * Node ordering and shortcut creation, only needed while building
+     */
+    private static class Contraction {
+        final int nodes;
+        final IntArray[] target, cost, data;
+
+        final int[] rank;
+
+        // contracted neighbours of a node, spreads the contraction over the graph
+        final int[] deleted;
+
+        final IndexedIntHeap order;
+        final SearchWorkspace witness;
+
+        // node -> id of the witness search it is a target of
+        final int[] targetOf;
+        int search;
+
+        // shortcuts of the node being evaluated, as (from, to, length) triples
+        final IntArray pending = new IntArray();
+
+        int shortcuts;
+
+        Contraction(int nodes, IntArray[] target, IntArray[] cost, IntArray[] data) {
+            this.nodes = nodes;
+            this.target = target;
+            this.cost = cost;
+            this.data = data;
+            this.rank = new int[nodes];
+            this.deleted = new int[nodes];
+            this.order = new IndexedIntHeap(nodes);
+            this.witness = new SearchWorkspace(nodes);
+            this.targetOf = new int[nodes];
+        }
+
+        int[] run() {
+            for (int node = 0; node < nodes; node++) order.update(node, priority(node));
+
+            int next = 0;
+            while(!order.isEmpty()) {
+                int node = order.pop();
+
+                // priorities go stale as neighbours are contracted, re-check lazily
+                int current = priority(node);
+                if(!order.isEmpty() && current > order.peekPriority()) {
+                    order.update(node, current);
+                    continue;
+                }
+
+                contract(node);
+                rank[node] = next++;
+
+                // the neighbours lost an edge and may have gained shortcuts
+                IntArray neighbours = target[node];
+                for (int i = 0; i < neighbours.size; i++) {
+                    int neighbour = neighbours.get(i);
+                    order.update(neighbour, priority(neighbour));
+                }
+            }
+            return rank;
+        }
+
+        /**
+         * Twice the edge difference plus contracted neighbours, lower is contracted first.
+         */
+        int priority(int node) {
+            findShortcuts(node);
+            return 2 * (pending.size / 3 - target[node].size) + deleted[node];
+        }
+
+        void contract(int node) {
+            findShortcuts(node);
+            for (int i = 0; i < pending.size; i += 3) {
+                connect(target, cost, data, pending.get(i), pending.get(i + 1), pending.get(i + 2), -(node + 1));
+                shortcuts++;
+            }
+
+            // take node out of the remaining graph, its own entries are kept as upward edges
+            IntArray neighbours = target[node];
+            for (int i = 0; i < neighbours.size; i++) {
+                int neighbour = neighbours.get(i);
+                int at = target[neighbour].indexOf(node);
+                target[neighbour].removeIndex(at);
+                cost[neighbour].removeIndex(at);
+                data[neighbour].removeIndex(at);
+                deleted[neighbour]++;
+            }
+        }
+
+        /**
+         * Collect the shortcuts contracting node would need into pending.
+         */
+        void findShortcuts(int node) {
+            pending.clear();
+            IntArray next = target[node];
+            IntArray length = cost[node];
+
+            for (int i = 0; i < next.size; i++) {
+                int from = next.get(i);
+
+                // each pair is evaluated from its first entry only,
+                // so the witnesses can't be longer than the longest later route through node
+                int limit = 0;
+                search++;
+                for (int j = i + 1; j < next.size; j++) {
+                    limit = Math.max(limit, length.get(i) + length.get(j));
+                    targetOf[next.get(j)] = search;
+                }
+                if(limit == 0) continue;
+
+                witnessSearch(from, node, limit, next.size - i - 1);
+
+                for (int j = i + 1; j < next.size; j++) {
+                    int to = next.get(j);
+                    int via = length.get(i) + length.get(j);
+                    if(witness.distanceOf(to) <= via) continue;
+
+                    pending.add(from);
+                    pending.add(to);
+                    pending.add(via);
+                }
+            }
+        }
+
+        /**
+         * Bounded Dijkstra from source over the remaining graph without the skipped node.
+         */
+        void witnessSearch(int source, int skipped, int limit, int targets) {
+            witness.reset(nodes);
+            witness.relax(source, 0, -1, 0);
+
+            int settled = 0;
+            while(witness.hasQueued() && settled++ < WITNESS_SETTLE_LIMIT) {
+                int current = witness.settleNext();
+                int distance = witness.distanceOf(current);
+                if(distance > limit) break;
+
+                // every target has its final distance
+                if(targetOf[current] == search && --targets == 0) break;
+
+                IntArray next = target[current];
+                for (int i = 0; i < next.size; i++) {
+                    int to = next.get(i);
+                    if(to == skipped) continue;
+
+                    int newDistance = distance + cost[current].get(i);
+                    if(newDistance <= limit && newDistance < witness.distanceOf(to)) witness.relax(to, newDistance, -1, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reusable state of a query
+     */
+    public static class Query {
+        final SearchWorkspace forward = new SearchWorkspace();
+        final SearchWorkspace backward = new SearchWorkspace();
+        final IntArray climb = new IntArray();
+        final IntArray unpack = new IntArray();
+
+        // nodes settled by the last query
+        public int expanded;
+    }
+
+    /**
+     * Shortest route between two SubPath end cells.
+     * @param from {@link com.tin.game.utils.CellKey} of the start
+     * @param to {@link com.tin.game.utils.CellKey} of the destination
+     * @param out receives the SubPaths of the route in travel order, empty if there is none
+     * @return length of the route, {@link SearchWorkspace#UNREACHED} if there is none
+     */
+    public int findPath(int from, int to, Query query, Array<SubPath> out) {
+        out.clear();
+        query.expanded = 0;
+
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        if(source < 0 || target < 0) return SearchWorkspace.UNREACHED;
+        if(source == target) return 0;
+
+        SearchWorkspace forward = query.forward;
+        SearchWorkspace backward = query.backward;
+        forward.reset(graph.nodeCount);
+        backward.reset(graph.nodeCount);
+        forward.relax(source, 0, -1, 0);
+        backward.relax(target, 0, -1, 0);
+
+        int best = SearchWorkspace.UNREACHED;
+        int meeting = -1;
+
+        // both searches only climb, each stops once it can't improve the best meeting
+        while(true) {
+            boolean forwardOpen = forward.hasQueued() && forward.heap.peekPriority() < best;
+            boolean backwardOpen = backward.hasQueued() && backward.heap.peekPriority() < best;
+            if(!forwardOpen && !backwardOpen) break;
+
+            SearchWorkspace search = forwardOpen && (!backwardOpen || forward.heap.size <= backward.heap.size) ? forward : backward;
+            SearchWorkspace other = search == forward ? backward : forward;
+
+            int current = search.settleNext();
+            query.expanded++;
+
+            int distance = search.distanceOf(current);
+            int otherDistance = other.distanceOf(current);
+            if(otherDistance != SearchWorkspace.UNREACHED && distance + otherDistance < best) {
+                best = distance + otherDistance;
+                meeting = current;
+            }
+
+            // stall on demand, a node reached shorter through a more important neighbour is a detour
+            if(isStalled(search, current, distance)) continue;
+
+            for (int edge = upFirst[current]; edge < upFirst[current + 1]; edge++) {
+                int next = upTarget[edge];
+                int newDistance = distance + upCost[edge];
+                if(newDistance < search.distanceOf(next)) search.relax(next, newDistance, edge, newDistance);
+            }
+        }
+
+        if(meeting < 0) return SearchWorkspace.UNREACHED;
+
+        // source -> meeting climbs the forward tree, meeting -> target descends the backward one
+        IntArray climb = query.climb;
+        climb.clear();
+        for (int edge = forward.parentOf(meeting); edge >= 0; edge = forward.parentOf(upSource[edge])) climb.add(edge);
+        for (int i = climb.size - 1; i >= 0; i--) {
+            int edge = climb.get(i);
+            unpack(upSource[edge], upTarget[edge], upData[edge], query, out);
+        }
+
+        for (int edge = backward.parentOf(meeting); edge >= 0; edge = backward.parentOf(upSource[edge])) {
+            unpack(upTarget[edge], upSource[edge], upData[edge], query, out);
+        }
+        return best;
+    }
+
+    private boolean isStalled(SearchWorkspace search, int node, int distance) {
+        for (int edge = upFirst[node]; edge < upFirst[node + 1]; edge++) {
+            int above = search.distanceOf(upTarget[edge]);
+            if(above != SearchWorkspace.UNREACHED && above + upCost[edge] < distance) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Expand an edge from node a to node b into the SubPaths it stands for.
+     */
+    private void unpack(int a, int b, int edgeData, Query query, Array<SubPath> out) {
+        // (a, b, data) triples, the top is expanded first
+        IntArray stack = query.unpack;
+        stack.clear();
+        stack.add(a, b, edgeData);
+
+        while(stack.size > 0) {
+            int data = stack.pop();
+            int to = stack.pop();
+            int from = stack.pop();
+
+            if(data >= 0) {
+                out.add(graph.pathOf(data));
+                continue;
+            }
+
+            // both halves of a shortcut are upward edges of its middle node
+            int middle = -data - 1;
+            stack.add(middle, to, upDataOf(middle, to));
+            stack.add(from, middle, upDataOf(middle, from));
+        }
+    }
+
+    private int upDataOf(int node, int next) {
+        int best = -1;
+        for (int edge = upFirst[node]; edge < upFirst[node + 1]; edge++) {
+            if(upTarget[edge] == next && (best < 0 || upCost[edge] < upCost[best])) best = edge;
+        }
+        return upData[best];
+    }
+
+    public int getRank(int node) {
+        return rank[node];
+    }
+}
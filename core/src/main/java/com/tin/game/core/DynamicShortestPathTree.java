@@ -0,0 +1,321 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.IndexedIntHeap;
+import com.tin.game.utils.SearchWorkspace;
+
+import java.util.Arrays;
+
+import static com.tin.game.core.MapCell.CELL_BITS;
+import static com.tin.game.core.PathMap.DIAGONAL_COST;
+import static com.tin.game.core.PathMap.STRAIGHT_COST;
+
+/**
+ * Shortest path tree over the road cells around a root, e.g. a store, that is
+ * repaired on every road edit instead of being grown again (Ramalingam-Reps).
+ * Roads are undirected, so the parent chain of a cell is its route to the root.
+ * <p>
+ * A new connection can only shorten routes, the cells it improves are settled
+ * again from the connection outwards. A removed connection only affects the
+ * subtree below it: its cells are visited by increasing distance, a cell with
+ * an unaffected neighbour just as close to the root keeps its distance under
+ * that neighbour, the rest are settled again from the unaffected cells around them.
+ * <p>
+ * Report every edit after the road map has applied it.
+ */
+public class DynamicShortestPathTree {
+
+    private final IRoadMap roadMap;
+    private final int root;
+
+    // CellKey -> node id of every cell reached from the root, ids of cells cut off are reused
+    private final IntIntMap nodeID;
+    private final IntArray freeIDs;
+    private int nodeCount;
+
+    // node id -> CellKey, route length to the root and CellKey of the next cell toward it, -1 at the root
+    private int[] nodeKey;
+    private int[] distance;
+    private int[] parent;
+
+    // node id -> the epoch of the removal that affected it
+    private int[] affectedEpoch;
+    private int epoch;
+
+    private final IndexedIntHeap queue;
+    private final IntArray affected;
+
+    // nodes whose distance was set by the last build or repair
+    private int settled;
+
+    /**
+     * @param root {@link CellKey} of the root, grows the whole tree around it
+     */
+    public DynamicShortestPathTree(IRoadMap roadMap, int root) {
+        this.roadMap = roadMap;
+        this.root = root;
+        this.nodeID = new IntIntMap();
+        this.freeIDs = new IntArray();
+        this.nodeKey = new int[16];
+        this.distance = new int[16];
+        this.parent = new int[16];
+        this.affectedEpoch = new int[16];
+        this.queue = new IndexedIntHeap();
+        this.affected = new IntArray();
+        build();
+    }
+
+    /**
+     * Grow the tree from scratch over the current roads.
+     */
+    public void build() {
+        nodeID.clear();
+        freeIDs.clear();
+        nodeCount = 0;
+        queue.clear();
+        settled = 0;
+        if(!roadMap.hasRoad(root)) return;
+
+        int id = addNode(root);
+        distance[id] = 0;
+        parent[id] = -1;
+        queue.update(id, 0);
+        propagate();
+    }
+
+    /**
+     * A connection between two adjacent cells was added.
+     */
+    public void edgeAdded(int from, int to) {
+        settled = 0;
+        int cost = costOf(from, to);
+        improve(from, to, cost);
+        improve(to, from, cost);
+        propagate();
+    }
+
+    /**
+     * A connection between two adjacent cells was removed.
+     */
+    public void edgeRemoved(int from, int to) {
+        affected.clear();
+        settled = 0;
+        epoch++;
+        queueCut(from, to);
+        repair();
+    }
+
+    /**
+     * Several connections were removed at once, e.g. every connection of a removed cell.
+     * @param pairs CellKeys of both ends of every removed connection
+     */
+    public void edgesRemoved(IntArray pairs) {
+        affected.clear();
+        settled = 0;
+        epoch++;
+        for (int i = 0; i + 1 < pairs.size; i += 2) queueCut(pairs.get(i), pairs.get(i + 1));
+        repair();
+    }
+
+    /**
+     * @return route length from a cell to the root, {@link SearchWorkspace#UNREACHED} if it has none
+     */
+    public int distanceTo(int key) {
+        int id = nodeID.get(key, -1);
+        return id < 0 ? SearchWorkspace.UNREACHED : distance[id];
+    }
+
+    /**
+     * Write the route from a cell to the root into out by following the parents.
+     * @param out receives the CellKeys in travel order, the root last
+     * @return false if the cell is not reached by the tree
+     */
+    public boolean pathFrom(int key, IntArray out) {
+        out.clear();
+        int id = nodeID.get(key, -1);
+        if(id < 0) return false;
+
+        for (int at = key; at != -1; at = parent[nodeID.get(at, -1)]) {
+            out.add(at);
+            if(out.size > nodeCount) throw new IllegalStateException("Parent chain of " + key + " has a cycle");
+        }
+        return true;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * @return number of cells reached from the root
+     */
+    public int size() {
+        return nodeID.size;
+    }
+
+    /**
+     * @return nodes whose distance was set by the last build or repair
+     */
+    public int getSettledCount() {
+        return settled;
+    }
+
+    // route from to the root over a connection of the given cost, if it is shorter than the one of to
+    private void improve(int from, int to, int cost) {
+        int fromID = nodeID.get(from, -1);
+        if(fromID < 0) return;
+
+        int newCost = distance[fromID] + cost;
+        int toID = nodeID.get(to, -1);
+        if(toID >= 0 && distance[toID] <= newCost) return;
+
+        if(toID < 0) toID = addNode(to);
+        distance[toID] = newCost;
+        parent[toID] = from;
+        queue.update(toID, newCost);
+    }
+
+    // settle the queued nodes and every node they shorten
+    private void propagate() {
+        while(queue.size > 0) {
+            int id = queue.pop();
+            int key = nodeKey[id];
+            settled++;
+
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                improve(key, direction.neighborOf(key), stepCost(direction));
+            }
+        }
+    }
+
+    // the end below a removed tree connection heads an affected subtree
+    private void queueCut(int from, int to) {
+        int fromID = nodeID.get(from, -1);
+        int toID = nodeID.get(to, -1);
+        if(toID >= 0 && parent[toID] == from) queue.update(toID, distance[toID]);
+        else if(fromID >= 0 && parent[fromID] == to) queue.update(fromID, distance[fromID]);
+    }
+
+    private void repair() {
+        // find the affected cells, nearest first so every closer cell is already known to be affected or not
+        while(queue.size > 0) {
+            int id = queue.pop();
+            int key = nodeKey[id];
+
+            int other = equalParent(id);
+            if(other != -1) {
+                parent[id] = other;
+                continue;
+            }
+
+            affectedEpoch[id] = epoch;
+            affected.add(id);
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                int child = nodeID.get(CELL_BITS.lowest(bits).neighborOf(key), -1);
+                if(child >= 0 && parent[child] == key && affectedEpoch[child] != epoch) queue.update(child, distance[child]);
+            }
+        }
+        if(affected.size == 0) return;
+
+        // seed every affected cell with its best route over an unaffected neighbour
+        for (int i = 0; i < affected.size; i++) {
+            int id = affected.get(i);
+            distance[id] = SearchWorkspace.UNREACHED;
+            parent[id] = -1;
+        }
+        for (int i = 0; i < affected.size; i++) {
+            int id = affected.get(i);
+            int key = nodeKey[id];
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                int next = direction.neighborOf(key);
+                int nextID = nodeID.get(next, -1);
+                if(nextID < 0 || affectedEpoch[nextID] == epoch) continue;
+
+                int newCost = distance[nextID] + stepCost(direction);
+                if(newCost < distance[id]) {
+                    distance[id] = newCost;
+                    parent[id] = next;
+                }
+            }
+            if(parent[id] != -1) queue.update(id, distance[id]);
+        }
+
+        // settle them again, removing a connection can't shorten an unaffected route
+        while(queue.size > 0) {
+            int id = queue.pop();
+            int key = nodeKey[id];
+            settled++;
+
+            for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                int next = direction.neighborOf(key);
+                int nextID = nodeID.get(next, -1);
+                if(nextID < 0 || affectedEpoch[nextID] != epoch) continue;
+
+                int newCost = distance[id] + stepCost(direction);
+                if(newCost < distance[nextID]) {
+                    distance[nextID] = newCost;
+                    parent[nextID] = key;
+                    queue.update(nextID, newCost);
+                }
+            }
+        }
+
+        // cells no longer connected to the root leave the tree
+        for (int i = 0; i < affected.size; i++) {
+            int id = affected.get(i);
+            if(parent[id] != -1) continue;
+
+            nodeID.remove(nodeKey[id], -1);
+            affectedEpoch[id] = 0;
+            freeIDs.add(id);
+        }
+    }
+
+    /**
+     * @return CellKey of an unaffected neighbour with a route just as short as the node's, -1 if there is none
+     */
+    private int equalParent(int id) {
+        int key = nodeKey[id];
+        for (int bits = roadMap.getAdjacentMask(key); bits > 0; bits &= bits - 1) {
+            CELL_BITS direction = CELL_BITS.lowest(bits);
+            int next = direction.neighborOf(key);
+            int nextID = nodeID.get(next, -1);
+            if(nextID < 0 || affectedEpoch[nextID] == epoch || parent[nextID] == key) continue;
+
+            if(distance[nextID] + stepCost(direction) == distance[id]) return next;
+        }
+        return -1;
+    }
+
+    private int addNode(int key) {
+        int id = freeIDs.size > 0 ? freeIDs.pop() : nodeCount++;
+        if(id == nodeKey.length) {
+            nodeKey = Arrays.copyOf(nodeKey, id * 2);
+            distance = Arrays.copyOf(distance, id * 2);
+            parent = Arrays.copyOf(parent, id * 2);
+            affectedEpoch = Arrays.copyOf(affectedEpoch, id * 2);
+        }
+        queue.ensureCapacity(nodeKey.length);
+
+        nodeID.put(key, id);
+        nodeKey[id] = key;
+        distance[id] = SearchWorkspace.UNREACHED;
+        parent[id] = -1;
+        affectedEpoch[id] = 0;
+        return id;
+    }
+
+    private static int costOf(int from, int to) {
+        CELL_BITS direction = CELL_BITS.fromOffset(CellKey.col(to) - CellKey.col(from), CellKey.row(to) - CellKey.row(from));
+        return direction == null ? STRAIGHT_COST : stepCost(direction);
+    }
+
+    private static int stepCost(CELL_BITS direction) {
+        return direction.col != 0 && direction.row != 0 ? DIAGONAL_COST : STRAIGHT_COST;
+    }
+}
@@ -8,19 +8,70 @@ import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.IndexSet;
 import com.tin.game.utils.Position;
 
-import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The game board, a struct-of-arrays grid of cell types.
+ * <p>
+ * {@link MapCell}s are only created for the cells that are actually looked up,
+ * and keep their type in this map's type array. Centers and corners of a cell
+ * are derived from its column and row, and every grid tile of the
+ * {@link TiledMapTileLayer} view shares one {@link TiledMapTileLayer.Cell}.
+ * <p>
+ * Empty cells and empty 2x2 blocks are indexed as cell types change,
+ * so a random free spot is picked without scanning the board.
+ */
+public class GameMap extends TiledMapTileLayer implements IGameMap {
 
-import static com.tin.game.Config.*;
+    // direction table of every adjacent cell offset
+    private static final MapCell.CELL_BITS[] DIRECTIONS = MapCell.CELL_BITS.values();
 
-public class GameMap extends TiledMapTileLayer implements IGameMap {
+    private final MapDescriptor descriptor;
+
+    // cell index -> CELL_TYPE id, cell index = row * width + col
+    private final byte[] cellType;
+
+    // cell index -> MapCell view of that cell, created on first lookup
+    private final MapCell[] cells;
+
+    // indices of every NONE cell
+    private final IndexSet emptyCells;
+
+    // top left cell index of every 2x2 block of NONE cells
+    private final IndexSet emptyQuads;
+
+    // told about every cell type change, keeps indexes derived from the types up to date
+    private final Array<OnTypeChange> typeListeners;
+
+    // every cell of the board exists, its MapCell is created on first lookup
+    private boolean populated;
 
-    private Array<Position> allCell;
+    // shared tile of every grid cell, null when this map has no grid
+    private Cell gridCell;
 
     public GameMap() {
-        super(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE, TILE_SIZE);
-        this.allCell = new Array<>();
+        this(MapDescriptor.defaults());
+    }
+
+    public GameMap(MapDescriptor descriptor) {
+        super(descriptor.width, descriptor.height, descriptor.tileSize, descriptor.tileSize);
+        this.descriptor = descriptor;
+        this.cellType = new byte[descriptor.getCellCount()];
+        this.cells = new MapCell[descriptor.getCellCount()];
+        this.emptyCells = IndexSet.full(descriptor.getCellCount());
+        this.emptyQuads = new IndexSet(descriptor.getCellCount());
+        this.typeListeners = new Array<>();
+
+        for (int row = 0; row < quadRows(); row++) {
+            for (int col = 0; col < quadColumns(); col++) {
+                emptyQuads.add(indexOf(col, row));
+            }
+        }
     }
 
     /**
@@ -28,13 +79,15 @@ public class GameMap extends TiledMapTileLayer implements IGameMap {
      * populated with {@link MapCell}
      */
     public GameMap(boolean populate) {
-        super(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE, TILE_SIZE);
-
-        if(populate) initTileGrid(this, false);
+        this(MapDescriptor.defaults(), populate, false);
     }
 
     public GameMap(boolean populate, boolean debug) {
-        super(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE, TILE_SIZE);
+        this(MapDescriptor.defaults(), populate, debug);
+    }
+
+    public GameMap(MapDescriptor descriptor, boolean populate, boolean debug) {
+        this(descriptor);
 
         if(populate) initTileGrid(this, debug);
     }
@@ -47,82 +100,95 @@ public class GameMap extends TiledMapTileLayer implements IGameMap {
         return getBlankMap(width, height, new Color(0x2f2f2fff));
     }
 
+    /**
+     * Board where every cell exists but without the grid tile, so no GL context is
+     * needed, e.g. to run the simulation headless. See {@link #showTileGrid}.
+     */
+    public static GameMap newBoard(MapDescriptor descriptor) {
+        GameMap board = new GameMap(descriptor);
+        board.populated = true;
+        return board;
+    }
+
     public static GameMap newTileGird(boolean debug) {
         return initTileGrid(new GameMap(), debug);
     }
 
+    /**
+     * Give every cell without a {@link MapCell} the shared grid tile, needs a GL context.
+     */
+    public void showTileGrid(boolean debug) {
+        initTileGrid(this, debug);
+    }
+
     private static GameMap initTileGrid(GameMap out, boolean debug) {
-        Pixmap pixmap = getTileCellPixmap(debug);
-        out.allCell = new Array<>();
+        int tileSize = out.descriptor.tileSize;
+        Pixmap pixmap = getTileCellPixmap(tileSize, debug);
 
         Texture t = new Texture(pixmap);
-        TextureRegion gridCell = new TextureRegion(t, 0, 0, TILE_SIZE, TILE_SIZE);
+        TextureRegion gridCell = new TextureRegion(t, 0, 0, tileSize, tileSize);
 
-        for (int row = 0; row < MAP_HEIGHT; row++) {
-            for (int col = 0; col < MAP_WIDTH; col++) {
-                int x = (col * TILE_SIZE);
-                int y = (TILE_SIZE * MAP_HEIGHT) - (row * TILE_SIZE);
-
-                final MapCell cell = new MapCell(x, y, col, row);
-
-                cell.setTile(new StaticTiledMapTile(gridCell));
-                out.setCell(col, row, cell);
-                out.allCell.add(new Position(col, row));
-
-            }
-        }
+        out.populated = true;
+        out.gridCell = new Cell();
+        out.gridCell.setTile(new StaticTiledMapTile(gridCell));
 
         return out;
     }
 
-    private static Pixmap getTileCellPixmap(Pixmap pixmap) {
+    private static Pixmap getTileCellPixmap(int tileSize, Pixmap pixmap) {
         pixmap.setColor(new Color(0x3d3d3dff));
-        pixmap.drawLine(0, 0, TILE_SIZE - 1, 0);
-        pixmap.drawLine(TILE_SIZE - 1, 0, TILE_SIZE - 1, TILE_SIZE - 1);
-        pixmap.drawLine(TILE_SIZE - 1, TILE_SIZE - 1, 0, TILE_SIZE - 1);
-        pixmap.drawLine(0, TILE_SIZE, 0, 0);
+        pixmap.drawLine(0, 0, tileSize - 1, 0);
+        pixmap.drawLine(tileSize - 1, 0, tileSize - 1, tileSize - 1);
+        pixmap.drawLine(tileSize - 1, tileSize - 1, 0, tileSize - 1);
+        pixmap.drawLine(0, tileSize, 0, 0);
 
         pixmap.setColor(new Color(0x2f2f2fff));
-        pixmap.fillRectangle(1, 1, TILE_SIZE - 2, TILE_SIZE - 2);
+        pixmap.fillRectangle(1, 1, tileSize - 2, tileSize - 2);
 
         return pixmap;
     }
 
-    private static Pixmap getTileCellPixmap(boolean debug) {
-        Pixmap pixmap = new Pixmap(TILE_SIZE, TILE_SIZE, Pixmap.Format.RGBA8888);
+    private static Pixmap getTileCellPixmap(int tileSize, boolean debug) {
+        Pixmap pixmap = new Pixmap(tileSize, tileSize, Pixmap.Format.RGBA8888);
 
-        if(!debug) return getTileCellPixmap(pixmap);
+        if(!debug) return getTileCellPixmap(tileSize, pixmap);
 
         // top left -> top right
         pixmap.setColor(Color.RED);
-        pixmap.drawLine(0, 0, TILE_SIZE - 1, 0);
+        pixmap.drawLine(0, 0, tileSize - 1, 0);
 
         // top right -> bottom right
         pixmap.setColor(Color.ORANGE);
-        pixmap.drawLine(TILE_SIZE - 1, 0, TILE_SIZE - 1, TILE_SIZE - 1);
+        pixmap.drawLine(tileSize - 1, 0, tileSize - 1, tileSize - 1);
 
         // bottom right -> bottom left
         pixmap.setColor(Color.CYAN);
-        pixmap.drawLine(TILE_SIZE - 1, TILE_SIZE - 1, 0, TILE_SIZE - 1);
+        pixmap.drawLine(tileSize - 1, tileSize - 1, 0, tileSize - 1);
 
         // bottom left -> top left
         pixmap.setColor(Color.GREEN);
-        pixmap.drawLine(0, TILE_SIZE, 0, 0);
+        pixmap.drawLine(0, tileSize, 0, 0);
 
         // cell color
         pixmap.setColor(Color.BLACK);
-        pixmap.fillRectangle(1, 1, TILE_SIZE - 2, TILE_SIZE - 2);
+        pixmap.fillRectangle(1, 1, tileSize - 2, tileSize - 2);
 
         return pixmap;
     }
 
+    /**
+     * A single tile of width x height pixels, repeating a one pixel texture so any
+     * world size fits in a texture.
+     */
     private static GameMap getBlankMap(int width, int height, Color fillColor) {
-        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-
+        Pixmap pixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
         pixmap.setColor(fillColor);
-        pixmap.fillRectangle(0, 0, width, height);
+        pixmap.fill();
 
         Texture fillTexture = new Texture(pixmap);
+        fillTexture.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
+        pixmap.dispose();
+
         TextureRegion gridCell = new TextureRegion(fillTexture, 0, 0, width, height);
         final MapCell cell = new MapCell(0, 0, 0, 0);
 
@@ -130,82 +196,214 @@ public class GameMap extends TiledMapTileLayer implements IGameMap {
 
         GameMap map = new GameMap();
         map.setCell(0, 0, cell);
-        map.allCell.add(new Position(0, 0));
         return map;
     }
 
-    public Array<Position> getAllCell() {
-        return allCell;
+    /**
+     * Place a cell into this map, a {@link MapCell} also becomes
+     * the cell returned by {@link #getCellAt} for its position.
+     */
+    @Override
+    public void setCell(int x, int y, Cell cell) {
+        super.setCell(x, y, cell);
+        if(!(cell instanceof MapCell) || !inBounds(x, y)) return;
+
+        MapCell mapCell = (MapCell) cell;
+        cells[indexOf(x, y)] = mapCell;
+        mapCell.attach(this, indexOf(x, y));
     }
 
-    public Array<Position> getEmptyCells() {
-        Array<Position> emptyCell = new Array<>();
-        allCell.forEach((cell) -> {
-            if(getCellAt(cell.col, cell.row).getType() == MapCell.CELL_TYPE.NONE) {
-                emptyCell.add(cell);
+    @Override
+    public Cell getCell(int x, int y) {
+        Cell cell = super.getCell(x, y);
+        if(cell == null && gridCell != null && inBounds(x, y)) return gridCell;
+        return cell;
+    }
+
+    public MapCell.CELL_TYPE getTypeAt(int column, int row) {
+        if(!inBounds(column, row)) throw new GdxRuntimeException(new IndexOutOfBoundsException("Cell (" + column + ", " + row + ") does not exist"));
+        return getTypeAt(indexOf(column, row));
+    }
+
+    MapCell.CELL_TYPE getTypeAt(int index) {
+        return MapCell.CELL_TYPE.fromID(cellType[index]);
+    }
+
+    /**
+     * @return {@link MapCell.CELL_TYPE#id()} of a cell, without the enum lookup
+     */
+    int getTypeIDAt(int index) {
+        return cellType[index];
+    }
+
+    @FunctionalInterface
+    interface OnTypeChange {
+        void typeChanged(int index);
+    }
+
+    /**
+     * Call back with the cell index after every cell type change.
+     */
+    void addTypeListener(OnTypeChange listener) {
+        typeListeners.add(listener);
+    }
+
+    void setTypeAt(int index, MapCell.CELL_TYPE type) {
+        boolean wasEmpty = cellType[index] == MapCell.CELL_TYPE.NONE.id();
+        cellType[index] = (byte) type.id();
+        for (int i = 0; i < typeListeners.size; i++) typeListeners.get(i).typeChanged(index);
+
+        boolean isEmpty = type.id() == MapCell.CELL_TYPE.NONE.id();
+        if(wasEmpty == isEmpty) return;
+
+        if(isEmpty) emptyCells.add(index);
+        else emptyCells.remove(index);
+
+        // the cell is part of up to 4 blocks, anchored at its top left
+        int column = index % getWidth();
+        int row = index / getWidth();
+        for (int anchorRow = row - 1; anchorRow <= row; anchorRow++) {
+            for (int anchorCol = column - 1; anchorCol <= column; anchorCol++) {
+                updateQuad(anchorCol, anchorRow);
             }
-        });
+        }
+    }
+
+    private void updateQuad(int column, int row) {
+        if(column < 0 || column >= quadColumns() || row < 0 || row >= quadRows()) return;
+
+        if(isEmpty(column, row)
+            && isEmpty(column + 1, row)
+            && isEmpty(column + 1, row + 1)
+            && isEmpty(column, row + 1)) {
+            emptyQuads.add(indexOf(column, row));
+        }
+        else emptyQuads.remove(indexOf(column, row));
+    }
+
+    // blocks are anchored one cell short of the last column and row
+    private int quadColumns() {
+        return Math.max(0, getWidth() - 2);
+    }
+
+    private int quadRows() {
+        return Math.max(0, getHeight() - 2);
+    }
+
+    private boolean isEmpty(int column, int row) {
+        return cellType[indexOf(column, row)] == MapCell.CELL_TYPE.NONE.id();
+    }
+
+    public int getEmptyCellCount() {
+        return emptyCells.size;
+    }
+
+    public int getEmptyQuadCount() {
+        return emptyQuads.size;
+    }
 
-        return emptyCell;
+    /**
+     * @return a uniformly random empty cell, null if the board is full
+     */
+    public Position randomEmptyCell(Random random) {
+        return positionOf(emptyCells.random(random));
+    }
+
+    /**
+     * @return top left cell of a uniformly random empty 2x2 block, null if there is none
+     */
+    public Position randomEmptyQuad(Random random) {
+        return positionOf(emptyQuads.random(random));
+    }
+
+    public Array<Position> getEmptyCells() {
+        return positionsOf(emptyCells);
     }
 
     public Array<Position> getEmptyQuadCells() {
-        Array<Position> emptyCell = new Array<>();
-        allCell.forEach((cell) -> {
-            if(cell.col >= this.getWidth() - 2) return;
-            if(cell.row >= this.getHeight() - 2) return;
-
-            MapCell thisCell = getCellAt(cell.col, cell.row);
-            MapCell xCell = getCellAt(cell.col + 1, cell.row);
-            MapCell yCell = getCellAt(cell.col, cell.row + 1);
-            MapCell xyCell = getCellAt(cell.col + 1, cell.row + 1);
-
-            if(thisCell.getType()   == MapCell.CELL_TYPE.NONE
-                && xCell.getType()  == MapCell.CELL_TYPE.NONE
-                && xyCell.getType() == MapCell.CELL_TYPE.NONE
-                && yCell.getType()  == MapCell.CELL_TYPE.NONE) {
-                emptyCell.add(cell);
-            }
-        });
+        return positionsOf(emptyQuads);
+    }
+
+    private Array<Position> positionsOf(IndexSet indices) {
+        Array<Position> positions = new Array<>(indices.size);
+        for (int i = 0; i < indices.size; i++) positions.add(positionOf(indices.get(i)));
 
-        return emptyCell;
+        return positions;
     }
 
-    public Array<Position> getAdjacentCell(Position cell, MapCell.CELL_TYPE... include) {
+    private Position positionOf(int index) {
+        if(index < 0) return null;
+        return new Position(index % getWidth(), index / getWidth());
+    }
 
+    @FunctionalInterface
+    public interface OnAdjacent {
+        void adjacent(int key);
+    }
+
+    public Array<Position> getAdjacentCell(Position cell, MapCell.CELL_TYPE... include) {
         Array<Position> adjacent = new Array<>();
-        Array<Position> bias = new Array<>(new Position[] {
-            new Position( 0, -1), // Up
-            new Position( 0,  1), // Down
-            new Position(-1,  0), // Left
-            new Position( 1,  0), // Right
-            new Position(-1, -1), // Top-left
-            new Position( 1, -1), // Top-right
-            new Position(-1,  1), // Bottom-left
-            new Position( 1,  1), // Bottom-right
-        });
-
-        for(Position dir : bias) {
-            int newCol = cell.col + dir.col;
-            int newRow = cell.row + dir.row;
-
-            if(newCol < 0 || newCol >= MAP_WIDTH) continue;
-            if(newRow < 0 || newRow >= MAP_HEIGHT) continue;
-
-            MapCell newCell = getCellAt(newCol, newRow);
-            boolean passed = Arrays
-                .stream(include)
-                .anyMatch(c -> c.id() == newCell.getType().id());
-            if(!passed) continue;
-
-            adjacent.add(new Position(newCol, newRow));
+        int mask = getAdjacentMask(cell.col, cell.row, MapCell.CELL_TYPE.maskOf(include));
+
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            MapCell.CELL_BITS direction = MapCell.CELL_BITS.lowest(bits);
+            adjacent.add(new Position(cell.col + direction.col, cell.row + direction.row));
         }
 
         return adjacent;
     }
 
+    /**
+     * Adjacent cells of a cell that are on the board and of one of the given types.
+     * @param typeMask {@link MapCell.CELL_TYPE#bit()}s of the types to include
+     * @return {@link MapCell.CELL_BITS} mask of the matching directions
+     */
+    public int getAdjacentMask(int column, int row, int typeMask) {
+        int mask = 0;
+        for (MapCell.CELL_BITS direction : DIRECTIONS) {
+            int adjCol = column + direction.col;
+            int adjRow = row + direction.row;
+            if(!inBounds(adjCol, adjRow)) continue;
+
+            if((typeMask & (1 << cellType[indexOf(adjCol, adjRow)])) != 0) mask |= direction.bit();
+        }
+
+        return mask;
+    }
+
+    /**
+     * Write the {@link CellKey}s of the matching adjacent cells into out.
+     * @return number of keys added
+     */
+    public int getAdjacentCells(int column, int row, int typeMask, IntArray out) {
+        int mask = getAdjacentMask(column, row, typeMask);
+        int key = CellKey.of(column, row);
+
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            out.add(MapCell.CELL_BITS.lowest(bits).neighborOf(key));
+        }
+
+        return Integer.bitCount(mask);
+    }
+
+    public void forEachAdjacent(int column, int row, int typeMask, OnAdjacent onAdjacent) {
+        int mask = getAdjacentMask(column, row, typeMask);
+        int key = CellKey.of(column, row);
+
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            onAdjacent.adjacent(MapCell.CELL_BITS.lowest(bits).neighborOf(key));
+        }
+    }
+
     public MapCell getCellAt(int column, int row) {
-        MapCell cell = (MapCell) getCell(column, row);
+        MapCell cell = inBounds(column, row) ? cells[indexOf(column, row)] : null;
+
+        // grid cells are created on their first lookup
+        if(cell == null && populated && inBounds(column, row)) {
+            cell = new MapCell(descriptor, column, row);
+            cells[indexOf(column, row)] = cell;
+            cell.attach(this, indexOf(column, row));
+        }
 
         if(cell == null) throw new GdxRuntimeException(new IndexOutOfBoundsException("Cell (" + column + ", " + row + ") does not exist"));
 
@@ -216,4 +414,17 @@ public class GameMap extends TiledMapTileLayer implements IGameMap {
     public MapCell getCellAt(Position position) {
         return getCellAt(position.col, position.row);
     }
+
+    @Override
+    public MapDescriptor getDescriptor() {
+        return descriptor;
+    }
+
+    private boolean inBounds(int column, int row) {
+        return descriptor.inBounds(column, row);
+    }
+
+    private int indexOf(int column, int row) {
+        return row * getWidth() + column;
+    }
 }
@@ -0,0 +1,402 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntSet;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.IndexedIntHeap;
+import com.tin.game.utils.SearchWorkspace;
+
+import java.util.Arrays;
+
+import static com.tin.game.core.MapCell.CELL_TYPE;
+
+/**
+ * Route search over the cell types of a {@link GameMap} instead of the roads,
+ * e.g. to tell whether a house could ever be connected to a store, or which
+ * cells a road between them would cover.
+ * <p>
+ * Cells of the passable types connect to all 8 adjacent cells, like
+ * {@link GameMap#getAdjacentCell}. The search jumps (jump point search): from a
+ * cell it only keeps going straight or diagonally until a blocked cell next to
+ * the way forces a turn, and only those turning cells are queued. The routes are
+ * as short as an A* over every cell, see {@link #findPathByCells} to compare.
+ * <p>
+ * Passable cells are kept as bits per row and per column, so a straight walk
+ * tests 64 cells and their neighbours at once. The map reports every cell type
+ * change, and only the row and column bit of that cell is updated.
+ */
+public class GridPathfinder {
+
+    // cell types a road can be built on or already runs over
+    public static final int ROAD_TYPES = CELL_TYPE.maskOf(CELL_TYPE.NONE, CELL_TYPE.ROAD);
+
+    private static final MapCell.CELL_BITS[] DIRECTIONS = MapCell.CELL_BITS.values();
+
+    private final GameMap map;
+    private final int width;
+    private final int height;
+    private final int passableTypes;
+
+    // cells treated as blocked whatever their type, e.g. a house about to be placed
+    private final IntSet blocked;
+
+    // passable bit of every cell, by row (bit = column) and by column (bit = row)
+    private final int rowWords;
+    private final int columnWords;
+    private final long[] rowBits;
+    private final long[] columnBits;
+
+    // CellKey -> node id of the cells queued by the current search
+    private final IntIntMap nodeID;
+    private int nodeCount;
+
+    // node id -> CellKey, route length from the start and CellKey of the previous queued cell
+    private int[] nodeKey;
+    private int[] distance;
+    private int[] parent;
+    private boolean[] closed;
+
+    private final IndexedIntHeap open;
+
+    private int goal;
+    private int startCol, startRow;
+    private int goalCol, goalRow;
+
+    // cells queued by the last search
+    private int expanded;
+
+    public GridPathfinder(GameMap map) {
+        this(map, ROAD_TYPES);
+    }
+
+    /**
+     * @param passableTypes {@link CELL_TYPE#bit()}s of the types a route may cross
+     */
+    public GridPathfinder(GameMap map, int passableTypes) {
+        this.map = map;
+        this.width = map.getDescriptor().width;
+        this.height = map.getDescriptor().height;
+        this.passableTypes = passableTypes;
+        this.blocked = new IntSet();
+        this.rowWords = (width + 63) >> 6;
+        this.columnWords = (height + 63) >> 6;
+        this.rowBits = new long[height * rowWords];
+        this.columnBits = new long[width * columnWords];
+        this.nodeID = new IntIntMap();
+        this.nodeKey = new int[16];
+        this.distance = new int[16];
+        this.parent = new int[16];
+        this.closed = new boolean[16];
+        this.open = new IndexedIntHeap();
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) restore(col, row);
+        }
+        map.addTypeListener((index) -> restore(index % width, index / width));
+    }
+
+    /**
+     * Treat a cell as blocked until {@link #clearBlocked()}.
+     */
+    public void block(int key) {
+        blocked.add(key);
+    }
+
+    public void clearBlocked() {
+        blocked.clear();
+    }
+
+    /**
+     * @return true if a route over passable cells connects both cells, they may be of any type themselves
+     */
+    public boolean isReachable(int from, int to) {
+        return search(from, to, true) != SearchWorkspace.UNREACHED;
+    }
+
+    /**
+     * Shortest route over passable cells between two cells of any type.
+     * @param from {@link CellKey} of the start
+     * @param to {@link CellKey} of the destination
+     * @param out receives the CellKeys of every cell of the route in travel order, empty if there is none
+     * @return length of the route in SubPath cost units, {@link SearchWorkspace#UNREACHED} if there is none
+     */
+    public int findPath(int from, int to, IntArray out) {
+        int length = search(from, to, true);
+        writePath(length, out);
+        return length;
+    }
+
+    /**
+     * Same route as {@link #findPath}, searched by a plain A* over every adjacent cell.
+     */
+    public int findPathByCells(int from, int to, IntArray out) {
+        int length = search(from, to, false);
+        writePath(length, out);
+        return length;
+    }
+
+    /**
+     * @return cells queued by the last search
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    private int search(int from, int to, boolean jump) {
+        nodeID.clear();
+        nodeCount = 0;
+        open.clear();
+        expanded = 0;
+        goal = to;
+        startCol = CellKey.col(from);
+        startRow = CellKey.row(from);
+        goalCol = CellKey.col(to);
+        goalRow = CellKey.row(to);
+        if(!inside(startCol, startRow) || !inside(goalCol, goalRow)) return SearchWorkspace.UNREACHED;
+
+        setPassable(startCol, startRow, true);
+        setPassable(goalCol, goalRow, true);
+        IntSet.IntSetIterator cells = blocked.iterator();
+        while(cells.hasNext) {
+            int key = cells.next();
+            if(key != from && key != to) setPassable(CellKey.col(key), CellKey.row(key), false);
+        }
+
+        int length = searchFrom(from, to, jump);
+
+        // back to the bits of the cell types
+        restore(startCol, startRow);
+        restore(goalCol, goalRow);
+        cells = blocked.iterator();
+        while(cells.hasNext) {
+            int key = cells.next();
+            restore(CellKey.col(key), CellKey.row(key));
+        }
+        return length;
+    }
+
+    // A* from the start, over the jump points or over every adjacent cell
+    private int searchFrom(int from, int to, boolean jump) {
+        reach(from, 0, -1);
+        while(open.size > 0) {
+            int id = open.pop();
+            closed[id] = true;
+            int key = nodeKey[id];
+            if(key == to) return distance[id];
+
+            if(jump) jumpFrom(id);
+            else {
+                for (MapCell.CELL_BITS direction : DIRECTIONS) {
+                    int col = CellKey.col(key) + direction.col;
+                    int row = CellKey.row(key) + direction.row;
+                    if(passable(col, row)) reach(CellKey.of(col, row), distance[id] + stepCost(direction.col, direction.row), key);
+                }
+            }
+        }
+        return SearchWorkspace.UNREACHED;
+    }
+
+    // queue the next jump point in every direction a route through this cell could still turn to
+    private void jumpFrom(int id) {
+        int key = nodeKey[id];
+        int col = CellKey.col(key);
+        int row = CellKey.row(key);
+
+        if(parent[id] == -1) {
+            for (MapCell.CELL_BITS direction : DIRECTIONS) jumpTo(id, col, row, direction.col, direction.row);
+            return;
+        }
+
+        int dx = Integer.signum(col - CellKey.col(parent[id]));
+        int dy = Integer.signum(row - CellKey.row(parent[id]));
+
+        if(dx != 0 && dy != 0) {
+            jumpTo(id, col, row, dx, 0);
+            jumpTo(id, col, row, 0, dy);
+            jumpTo(id, col, row, dx, dy);
+            if(!passable(col - dx, row)) jumpTo(id, col, row, -dx, dy);
+            if(!passable(col, row - dy)) jumpTo(id, col, row, dx, -dy);
+        }
+        else if(dx != 0) {
+            jumpTo(id, col, row, dx, 0);
+            if(!passable(col, row + 1)) jumpTo(id, col, row, dx, 1);
+            if(!passable(col, row - 1)) jumpTo(id, col, row, dx, -1);
+        }
+        else {
+            jumpTo(id, col, row, 0, dy);
+            if(!passable(col + 1, row)) jumpTo(id, col, row, 1, dy);
+            if(!passable(col - 1, row)) jumpTo(id, col, row, -1, dy);
+        }
+    }
+
+    private void jumpTo(int id, int col, int row, int dx, int dy) {
+        int next = jump(col, row, dx, dy);
+        if(next == -1) return;
+
+        int key = nodeKey[id];
+        reach(next, distance[id] + AStarPathfinder.octile(key, next), key);
+    }
+
+    /**
+     * Walk from a cell in one direction until a cell where the route may have to turn.
+     * @return CellKey of that cell, -1 if the walk runs into a blocked cell first
+     */
+    private int jump(int col, int row, int dx, int dy) {
+        if(dy == 0) {
+            int stop = scan(rowBits, rowWords, height, width, row, col, dx, goalRow, goalCol);
+            return stop < 0 ? -1 : CellKey.of(stop, row);
+        }
+        if(dx == 0) {
+            int stop = scan(columnBits, columnWords, width, height, col, row, dy, goalCol, goalRow);
+            return stop < 0 ? -1 : CellKey.of(col, stop);
+        }
+
+        while(true) {
+            col += dx;
+            row += dy;
+            if(!passable(col, row)) return -1;
+
+            int key = CellKey.of(col, row);
+            if(col == goalCol && row == goalRow) return key;
+
+            if(passable(col - dx, row + dy) && !passable(col - dx, row)) return key;
+            if(passable(col + dx, row - dy) && !passable(col, row - dy)) return key;
+
+            // a straight walk from here may find the turn
+            if(jump(col, row, dx, 0) != -1 || jump(col, row, 0, dy) != -1) return key;
+        }
+    }
+
+    /**
+     * Straight walk along one lane of a bit grid, a row or a column, 64 cells at a time.
+     * A cell forces a turn when a side lane is blocked next to it but open one step further.
+     * @param from index of the cell the walk starts from, excluded
+     * @param step 1 or -1
+     * @return index of the first cell forcing a turn or holding the goal, -1 if a blocked cell comes first
+     */
+    private static int scan(long[] bits, int words, int lanes, int length, int lane, int from, int step,
+                            int goalLane, int goalIndex) {
+        if(step > 0) {
+            for (int start = from + 1; start < length; start += 64) {
+                long open = window(bits, words, lanes, lane, start);
+                long forced = (~window(bits, words, lanes, lane - 1, start) & window(bits, words, lanes, lane - 1, start + 1))
+                    | (~window(bits, words, lanes, lane + 1, start) & window(bits, words, lanes, lane + 1, start + 1));
+                if(lane == goalLane && goalIndex >= start && goalIndex < start + 64) forced |= 1L << (goalIndex - start);
+
+                int blocked = Long.numberOfTrailingZeros(~open);
+                int stop = Long.numberOfTrailingZeros(forced);
+                if(blocked == 64 && stop == 64) continue;
+                return blocked <= stop ? -1 : start + stop;
+            }
+        }
+        else {
+            for (int end = from - 1; end >= 0; end -= 64) {
+                int start = end - 63;
+                long open = window(bits, words, lanes, lane, start);
+                long forced = (~window(bits, words, lanes, lane - 1, start) & window(bits, words, lanes, lane - 1, start - 1))
+                    | (~window(bits, words, lanes, lane + 1, start) & window(bits, words, lanes, lane + 1, start - 1));
+                if(lane == goalLane && goalIndex <= end && goalIndex > end - 64) forced |= 1L << (goalIndex - start);
+
+                int blocked = Long.numberOfLeadingZeros(~open);
+                int stop = Long.numberOfLeadingZeros(forced);
+                if(blocked == 64 && stop == 64) continue;
+                return blocked <= stop ? -1 : end - stop;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return bits of the cells [start, start + 64) of a lane, cells outside the grid are blocked
+     */
+    private static long window(long[] bits, int words, int lanes, int lane, int start) {
+        if(lane < 0 || lane >= lanes) return 0;
+
+        int word = start >> 6;
+        int shift = start & 63;
+        long low = wordAt(bits, words, lane, word);
+        if(shift == 0) return low;
+        return (low >>> shift) | (wordAt(bits, words, lane, word + 1) << (64 - shift));
+    }
+
+    private static long wordAt(long[] bits, int words, int lane, int word) {
+        return word < 0 || word >= words ? 0 : bits[lane * words + word];
+    }
+
+    private void reach(int key, int newDistance, int from) {
+        int id = nodeID.get(key, -1);
+        if(id >= 0 && (closed[id] || distance[id] <= newDistance)) return;
+
+        if(id < 0) {
+            id = nodeCount++;
+            if(id == nodeKey.length) {
+                nodeKey = Arrays.copyOf(nodeKey, id * 2);
+                distance = Arrays.copyOf(distance, id * 2);
+                parent = Arrays.copyOf(parent, id * 2);
+                closed = Arrays.copyOf(closed, id * 2);
+            }
+            open.ensureCapacity(nodeKey.length);
+            nodeID.put(key, id);
+            nodeKey[id] = key;
+            closed[id] = false;
+            expanded++;
+        }
+
+        distance[id] = newDistance;
+        parent[id] = from;
+        open.update(id, newDistance + AStarPathfinder.octile(key, goal));
+    }
+
+    // fill in the cells between the queued cells of the route, every stretch is straight or diagonal
+    private void writePath(int length, IntArray out) {
+        out.clear();
+        if(length == SearchWorkspace.UNREACHED) return;
+
+        for (int key = goal; key != -1; key = parent[nodeID.get(key, -1)]) {
+            out.add(key);
+            int previous = parent[nodeID.get(key, -1)];
+            if(previous == -1) break;
+
+            int dx = Integer.signum(CellKey.col(previous) - CellKey.col(key));
+            int dy = Integer.signum(CellKey.row(previous) - CellKey.row(key));
+            for (int at = CellKey.of(CellKey.col(key) + dx, CellKey.row(key) + dy); at != previous;
+                 at = CellKey.of(CellKey.col(at) + dx, CellKey.row(at) + dy)) {
+                out.add(at);
+            }
+        }
+        out.reverse();
+    }
+
+    private boolean passable(int col, int row) {
+        if(col < 0 || col >= width || row < 0 || row >= height) return false;
+        return (rowBits[row * rowWords + (col >> 6)] & (1L << col)) != 0;
+    }
+
+    private void restore(int col, int row) {
+        if(!inside(col, row)) return;
+        setPassable(col, row, ((1 << map.getTypeIDAt(row * width + col)) & passableTypes) != 0);
+    }
+
+    private void setPassable(int col, int row, boolean passable) {
+        if(!inside(col, row)) return;
+
+        if(passable) {
+            rowBits[row * rowWords + (col >> 6)] |= 1L << col;
+            columnBits[col * columnWords + (row >> 6)] |= 1L << row;
+        }
+        else {
+            rowBits[row * rowWords + (col >> 6)] &= ~(1L << col);
+            columnBits[col * columnWords + (row >> 6)] &= ~(1L << row);
+        }
+    }
+
+    private boolean inside(int col, int row) {
+        return col >= 0 && col < width && row >= 0 && row < height;
+    }
+
+    private static int stepCost(int dx, int dy) {
+        return dx != 0 && dy != 0 ? PathMap.DIAGONAL_COST : PathMap.STRAIGHT_COST;
+    }
+}
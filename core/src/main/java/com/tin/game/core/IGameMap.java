@@ -2,9 +2,13 @@ package com.tin.game.core;
 
 import com.tin.game.utils.Position;
 
-@FunctionalInterface
 public interface IGameMap {
 
+    /**
+     * @return dimensions of this map
+     */
+    MapDescriptor getDescriptor();
+
     /**
      * @param row y position
      * @param column x position
@@ -1,26 +1,57 @@
 package com.tin.game.core;
 
-import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.ObjectSet;
 import com.tin.game.utils.Position;
 
+/**
+ * Road adjacency keyed by packed {@link com.tin.game.utils.CellKey}s.
+ * Roads only connect adjacent cells, so the adjacency of a node is
+ * a mask of {@link MapCell.CELL_BITS#bit()}s pointing to its neighbours.
+ */
 public interface IRoadMap {
 
+    // adjacency mask of a cell without a road
+    int NO_ROAD = -1;
+
+    @FunctionalInterface
+    interface OnRoad {
+        void road(int key);
+    }
+
     void pushRoad(MapCell from, MapCell to);
 
     void removeRoad(MapCell cell);
 
+    /**
+     * Cut every connection of cell except the ones to start and end,
+     * neighbours left without any connection are removed.
+     */
+    void excludeConnection(Position start, MapCell cell, Position end);
+
+    boolean hasRoad(int key);
+
     boolean hasRoad(int col, int row);
 
     boolean hasRoad(Position position);
 
-    ObjectMap.Keys<Position> getPositions();
+    /**
+     * @return {@link MapCell.CELL_BITS} mask of the connections of this node, {@link #NO_ROAD} if it is not a road
+     */
+    int getAdjacentMask(int key);
+
+    int getAdjacentMask(Position position);
+
+    /**
+     * @return number of connections of this node, 0 if it is not a road
+     */
+    int degreeOf(int key);
+
+    boolean isConnected(int from, int to);
 
-    ObjectSet<MapCell> getAdjacent(int col, int row);
+    void forEachAdjacent(int key, OnRoad onRoad);
 
-    ObjectSet<MapCell> getAdjacent(Position position);
+    void forEachRoad(OnRoad onRoad);
 
-    ObjectSet<MapCell> getAdjacent(int col, int row, ObjectSet<MapCell> defaultValue);
+    int roadCount();
 
-    ObjectSet<MapCell> getAdjacent(Position position, ObjectSet<MapCell> defaultValue);
+    boolean isEmpty();
 }
@@ -0,0 +1,242 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.Position;
+import com.tin.game.utils.SearchWorkspace;
+
+import static com.tin.game.core.MapCell.CELL_BITS;
+import static com.tin.game.core.MapCell.LANE;
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Directed, lane expanded view of a {@link SubPathGraph}: every SubPath is two
+ * lanes, {@link LANE#LEFT} driven from its start to its end and {@link LANE#RIGHT}
+ * driven back. The graph is edge expanded, its nodes are the lanes and its edges
+ * are the turns from a lane into the next one, so a route can pay for the way
+ * it turns and not only for its length.
+ * <p>
+ * Turns are free along a road. At an intersection (3 or more connections) a turn
+ * costs more the sharper it is, and turning across the oncoming lane costs extra.
+ * Turning around is only allowed at a dead end. A lane id is the id of the
+ * SubPathGraph edge it drives along, and the turns leaving a lane are one
+ * contiguous run of turn ids (compressed sparse rows).
+ */
+public class LaneGraph {
+
+    // extra cost of turning by 0, 45, 90, 135 and 180 degrees at an intersection
+    private static final int[] TURN_COST = {0, 20, 60, 120, 400};
+
+    // extra cost of turning across the oncoming lane, cars keep to the left
+    public static final int CROSSING_COST = 40;
+
+    // extra cost of turning around at a dead end
+    public static final int U_TURN_COST = 400;
+
+    /**
+     * Search state of a query, one per thread
+     */
+    public static class Query {
+        private final SearchWorkspace workspace = new SearchWorkspace();
+        private final IntArray chain = new IntArray();
+
+        // lanes settled by the last query
+        public int expanded;
+    }
+
+    public final SubPathGraph graph;
+    public final int laneCount;
+    public final int turnCount;
+
+    // lane id -> driven from the SubPath's start to its end
+    private final boolean[] forward;
+
+    // lane id -> octant of the first and the last step, 0 = right, counted clockwise on the board
+    private final byte[] entryOctant;
+    private final byte[] exitOctant;
+
+    // lane id -> first turn id, turns of lane l are [firstTurn[l], firstTurn[l + 1])
+    private final int[] firstTurn;
+
+    // turn id -> lane turned into and its length plus the cost of the turn
+    private final int[] turnTarget;
+    private final int[] turnCost;
+
+    public LaneGraph(SubPathGraph graph) {
+        this.graph = graph;
+        this.laneCount = graph.edgeCount;
+        this.forward = new boolean[laneCount];
+        this.entryOctant = new byte[laneCount];
+        this.exitOctant = new byte[laneCount];
+
+        // a loop is stored twice between the same node, its first lane is the forward one
+        ObjectSet<SubPath> loops = new ObjectSet<>();
+        for (int lane = 0; lane < laneCount; lane++) {
+            SubPath path = graph.pathOf(lane);
+            Array<Position> cells = path.getCellVertices().orderedItems();
+            int start = path.getStart().key();
+
+            if(start == path.getEnd().key()) forward[lane] = loops.add(path);
+            else forward[lane] = graph.keyOf(graph.sourceOf(lane)) == start;
+
+            int last = cells.size - 1;
+            if(forward[lane]) {
+                entryOctant[lane] = octantOf(cells.get(0), cells.get(1));
+                exitOctant[lane] = octantOf(cells.get(last - 1), cells.get(last));
+            }
+            else {
+                entryOctant[lane] = octantOf(cells.get(last), cells.get(last - 1));
+                exitOctant[lane] = octantOf(cells.get(1), cells.get(0));
+            }
+        }
+
+        // count the turns of every lane, then fill them in
+        this.firstTurn = new int[laneCount + 1];
+        for (int lane = 0; lane < laneCount; lane++) {
+            int node = graph.targetOf(lane);
+            int turns = 0;
+            for (int next = graph.firstEdge(node); next < graph.endEdge(node); next++) {
+                if(canTurn(lane, next)) turns++;
+            }
+            firstTurn[lane + 1] = firstTurn[lane] + turns;
+        }
+
+        this.turnCount = firstTurn[laneCount];
+        this.turnTarget = new int[turnCount];
+        this.turnCost = new int[turnCount];
+        for (int lane = 0; lane < laneCount; lane++) {
+            int node = graph.targetOf(lane);
+            int turn = firstTurn[lane];
+            for (int next = graph.firstEdge(node); next < graph.endEdge(node); next++) {
+                if(!canTurn(lane, next)) continue;
+
+                turnTarget[turn] = next;
+                turnCost[turn] = graph.costOf(next) + turnPenalty(lane, next);
+                turn++;
+            }
+        }
+    }
+
+    // turning around is only allowed where nothing else is
+    private boolean canTurn(int lane, int next) {
+        return !isReverse(lane, next) || graph.endEdge(graph.targetOf(lane)) - graph.firstEdge(graph.targetOf(lane)) == 1;
+    }
+
+    private boolean isReverse(int lane, int next) {
+        return graph.pathOf(lane) == graph.pathOf(next) && forward[lane] != forward[next];
+    }
+
+    private int turnPenalty(int lane, int next) {
+        int node = graph.targetOf(lane);
+        int connections = graph.endEdge(node) - graph.firstEdge(node);
+        if(connections == 1) return U_TURN_COST;
+        if(connections == 2) return 0;
+
+        int clockwise = (entryOctant[next] - exitOctant[lane] + 8) & 7;
+        int steps = Math.min(clockwise, 8 - clockwise);
+
+        // clockwise is a right turn on the board, across the oncoming lane
+        return TURN_COST[steps] + (clockwise > 0 && clockwise < 4 ? CROSSING_COST : 0);
+    }
+
+    /**
+     * @return octant of the step between two adjacent cells, 0 = right, counted clockwise on the board
+     */
+    private static byte octantOf(Position from, Position to) {
+        CELL_BITS step = CELL_BITS.fromOffset(to.col - from.col, to.row - from.row);
+        if(step == null) return 0;
+
+        switch (step) {
+            case RIGHT: return 0;
+            case BOTTOM_RIGHT: return 1;
+            case BOTTOM: return 2;
+            case BOTTOM_LEFT: return 3;
+            case LEFT: return 4;
+            case TOP_LEFT: return 5;
+            case TOP: return 6;
+            default: return 7;
+        }
+    }
+
+    /**
+     * Shortest route over the lanes, turns included, A* guided by the octile distance.
+     * @param from {@link com.tin.game.utils.CellKey} of the start, a SubPath end
+     * @param to {@link com.tin.game.utils.CellKey} of the destination, a SubPath end
+     * @param out receives the SubPaths in travel order
+     * @param lanes receives the lane driven along each SubPath, may be null
+     * @return cost of the route, {@link SearchWorkspace#UNREACHED} if there is none
+     */
+    public int findPath(int from, int to, Query query, Array<SubPath> out, Array<LANE> lanes) {
+        out.clear();
+        if(lanes != null) lanes.clear();
+        query.expanded = 0;
+
+        int source = graph.idOf(from);
+        int target = graph.idOf(to);
+        if(source < 0 || target < 0) return SearchWorkspace.UNREACHED;
+        if(source == target) return 0;
+
+        SearchWorkspace workspace = query.workspace;
+        workspace.reset(laneCount);
+        for (int lane = graph.firstEdge(source); lane < graph.endEdge(source); lane++) {
+            int cost = graph.costOf(lane);
+            workspace.relax(lane, cost, -1, cost + estimate(lane, to));
+        }
+
+        while(workspace.hasQueued()) {
+            int lane = workspace.settleNext();
+            query.expanded++;
+
+            if(graph.targetOf(lane) == target) {
+                reconstruct(lane, query, out, lanes);
+                return workspace.distanceOf(lane);
+            }
+
+            int distance = workspace.distanceOf(lane);
+            for (int turn = firstTurn[lane]; turn < firstTurn[lane + 1]; turn++) {
+                int next = turnTarget[turn];
+                if(workspace.isSettled(next)) continue;
+
+                int newCost = distance + turnCost[turn];
+                if(newCost < workspace.distanceOf(next)) workspace.relax(next, newCost, lane, newCost + estimate(next, to));
+            }
+        }
+        return SearchWorkspace.UNREACHED;
+    }
+
+    private int estimate(int lane, int to) {
+        return AStarPathfinder.octile(graph.keyOf(graph.targetOf(lane)), to);
+    }
+
+    private void reconstruct(int last, Query query, Array<SubPath> out, Array<LANE> lanes) {
+        IntArray chain = query.chain;
+        chain.clear();
+        for (int lane = last; lane != -1; lane = query.workspace.parentOf(lane)) chain.add(lane);
+
+        for (int i = chain.size - 1; i >= 0; i--) {
+            int lane = chain.get(i);
+            out.add(graph.pathOf(lane));
+            if(lanes != null) lanes.add(laneOf(lane));
+        }
+    }
+
+    public LANE laneOf(int lane) {
+        return forward[lane] ? LANE.LEFT : LANE.RIGHT;
+    }
+
+    /**
+     * @return lanes reached from a lane in one turn
+     */
+    public int turnsOf(int lane) {
+        return firstTurn[lane + 1] - firstTurn[lane];
+    }
+
+    /**
+     * @return bytes held by the lane and turn arrays
+     */
+    public long sizeInBytes() {
+        return laneCount * 3L + (laneCount + 1) * 4L + turnCount * 8L;
+    }
+}
@@ -2,31 +2,57 @@ package com.tin.game.core;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.IntMap;
 import com.tin.game.system.RoadDrawer;
+import com.tin.game.utils.CellKey;
 import com.tin.game.utils.Position;
 
+import java.util.EnumSet;
+
 import static com.tin.game.Config.*;
-import static com.tin.game.Config.MAP_WIDTH;
 
 public class MapCell extends GameMap.Cell {
 
     public final int x;
     public final int y;
 
+    // size of this cell in pixel
+    public final int tileSize;
+
     public final Position pos;
 
+    // type of a cell outside any GameMap, cells of a GameMap keep theirs in its type array
     private CELL_TYPE type;
 
-    /**
-     * The center viewport position of this cell on the board
-     */
-    private final Vector2 center;
+    // owning map and cell index in its arrays, null if not attached
+    private GameMap grid;
+    private int index;
 
     /**
-     * 8 corner reference position from the center of this cell by radius
+     * 8 corner offsets from the center of any cell by {@link RoadDrawer#RADIUS},
+     * indexed by {@link CELL_BITS#id()}
      */
-    private final IntMap<Vector2> corner;
+    private static final float[] CORNER_X = new float[8];
+    private static final float[] CORNER_Y = new float[8];
+
+    static {
+        float radius = RoadDrawer.RADIUS;
+        float cos45 = radius * MathUtils.cosDeg(45.0f);
+        float sin45 = radius * MathUtils.sinDeg(45.0f);
+
+        setCornerOffset(CELL_BITS.TOP, 0, radius);
+        setCornerOffset(CELL_BITS.LEFT, -radius, 0);
+        setCornerOffset(CELL_BITS.RIGHT, radius, 0);
+        setCornerOffset(CELL_BITS.BOTTOM, 0, -radius);
+        setCornerOffset(CELL_BITS.TOP_LEFT, -cos45, sin45);
+        setCornerOffset(CELL_BITS.TOP_RIGHT, cos45, sin45);
+        setCornerOffset(CELL_BITS.BOTTOM_LEFT, -cos45, -sin45);
+        setCornerOffset(CELL_BITS.BOTTOM_RIGHT, cos45, -sin45);
+    }
+
+    private static void setCornerOffset(CELL_BITS bits, float x, float y) {
+        CORNER_X[bits.id()] = x;
+        CORNER_Y[bits.id()] = y;
+    }
 
     public enum LANE {
         LEFT(true), // lhs, the forward lane
@@ -50,6 +76,8 @@ public class MapCell extends GameMap.Cell {
         STORE(3),
         HIGHWAY(4);
 
+        private static final CELL_TYPE[] BY_ID = values();
+
         private final int value;
 
         CELL_TYPE(int value) {
@@ -59,28 +87,97 @@ public class MapCell extends GameMap.Cell {
         public int id() {
             return value;
         }
+
+        public int bit() {
+            return 1 << value;
+        }
+
+        public static CELL_TYPE fromID(int id) {
+            return BY_ID[id];
+        }
+
+        /**
+         * @return mask of the {@link #bit()}s of these types, to filter cells by type
+         */
+        public static int maskOf(CELL_TYPE... types) {
+            int mask = 0;
+            for (CELL_TYPE type : types) mask |= type.bit();
+            return mask;
+        }
+
+        public static int maskOf(EnumSet<CELL_TYPE> types) {
+            int mask = 0;
+            for (CELL_TYPE type : types) mask |= type.bit();
+            return mask;
+        }
     }
 
     public enum CELL_BITS {
-        TOP(0),
-        LEFT(1),
-        RIGHT(2),
-        BOTTOM(3),
-        TOP_LEFT(4),
-        TOP_RIGHT(5),
-        BOTTOM_LEFT(6),
-        BOTTOM_RIGHT(7);
+        TOP(0, 0, -1),
+        LEFT(1, -1, 0),
+        RIGHT(2, 1, 0),
+        BOTTOM(3, 0, 1),
+        TOP_LEFT(4, -1, -1),
+        TOP_RIGHT(5, 1, -1),
+        BOTTOM_LEFT(6, -1, 1),
+        BOTTOM_RIGHT(7, 1, 1);
+
+        // direction lookup by (column offset + 1) + (row offset + 1) * 3
+        private static final CELL_BITS[] BY_OFFSET = new CELL_BITS[9];
+        private static final CELL_BITS[] BY_ID = values();
+
+        static {
+            for (CELL_BITS bits : BY_ID) BY_OFFSET[(bits.col + 1) + (bits.row + 1) * 3] = bits;
+        }
 
         private final int value;
 
-        CELL_BITS(int value) {
+        /**
+         * Column and row offset to the adjacent cell in this direction
+         */
+        public final int col, row;
+
+        CELL_BITS(int value, int col, int row) {
             this.value = value;
+            this.col = col;
+            this.row = row;
         }
 
         public int id() {
             return value;
         }
 
+        public int bit() {
+            return 1 << value;
+        }
+
+        public static CELL_BITS fromID(int id) {
+            return BY_ID[id];
+        }
+
+        /**
+         * @return the lowest direction set in a mask of {@link #bit()}s
+         */
+        public static CELL_BITS lowest(int mask) {
+            return BY_ID[Integer.numberOfTrailingZeros(mask)];
+        }
+
+        /**
+         * @param key {@link CellKey} of a cell
+         * @return {@link CellKey} of the adjacent cell in this direction
+         */
+        public int neighborOf(int key) {
+            return CellKey.of(CellKey.col(key) + col, CellKey.row(key) + row);
+        }
+
+        /**
+         * @return the direction of an adjacent cell offset, null if the offset is not adjacent
+         */
+        public static CELL_BITS fromOffset(int col, int row) {
+            if(col < -1 || col > 1 || row < -1 || row > 1) return null;
+            return BY_OFFSET[(col + 1) + (row + 1) * 3];
+        }
+
         public CELL_BITS opposite() {
             switch (this) {
                 case TOP: return BOTTOM;
@@ -98,126 +195,96 @@ public class MapCell extends GameMap.Cell {
 
 
     public MapCell(int screenX, int screenY, int col, int row) {
+        this(screenX + OFFSET_X, screenY + OFFSET_Y, TILE_SIZE, col, row);
+    }
+
+    /**
+     * Cell of a board, placed in the viewport by its descriptor
+     */
+    public MapCell(MapDescriptor map, int col, int row) {
+        this(map.cellX(col), map.cellY(row), map.tileSize, col, row);
+    }
+
+    private MapCell(int x, int y, int tileSize, int col, int row) {
         super();
-        this.x = screenX + OFFSET_X;
-        this.y = screenY + OFFSET_Y;
+        this.x = x;
+        this.y = y;
+        this.tileSize = tileSize;
         this.pos = new Position(col, row);
         this.type = CELL_TYPE.NONE;
-        this.center = new Vector2();
-        this.corner = new IntMap<>();
-
-        initPositions(RoadDrawer.RADIUS);
     }
 
-    public void initPositions(float radius) {
-        float centerX = (float) this.x + (TILE_SIZE / 2.0f);
-        float centerY = (float) this.y - (TILE_SIZE / 2.0f);
-        this.center.set(centerX, centerY);
+    /**
+     * Let a {@link GameMap} keep the type of this cell in its type array.
+     */
+    void attach(GameMap grid, int index) {
+        this.grid = grid;
+        this.index = index;
+        grid.setTypeAt(index, this.type);
+    }
 
-        float cos45 = radius * MathUtils.cosDeg(45.0f);
-        float sin45 = radius * MathUtils.sinDeg(45.0f);
+    /**
+     * The center viewport position of this cell on the board
+     */
+    public float getCenterX() {
+        return (float) this.x + (tileSize / 2.0f);
+    }
 
-        corner.put(CELL_BITS.TOP.id(), new Vector2(centerX, centerY + radius));
-        corner.put(CELL_BITS.LEFT.id(), new Vector2(centerX - radius, centerY));
-        corner.put(CELL_BITS.RIGHT.id(), new Vector2(centerX + radius, centerY));
-        corner.put(CELL_BITS.BOTTOM.id(), new Vector2(centerX, centerY - radius));
-        corner.put(CELL_BITS.TOP_LEFT.id(), new Vector2(centerX - cos45, centerY + sin45));
-        corner.put(CELL_BITS.TOP_RIGHT.id(), new Vector2(centerX + cos45, centerY + sin45));
-        corner.put(CELL_BITS.BOTTOM_LEFT.id(), new Vector2(centerX - cos45, centerY - sin45));
-        corner.put(CELL_BITS.BOTTOM_RIGHT.id(), new Vector2(centerX + cos45, centerY - sin45));
+    public float getCenterY() {
+        return (float) this.y - (tileSize / 2.0f);
     }
 
     public Vector2 getCenter() {
-        return this.center.cpy();
+        return new Vector2(getCenterX(), getCenterY());
     }
 
-    public Vector2 getCorner(CELL_BITS cornerBits) {
-        return corner.get(cornerBits.id());
+    public Vector2 getCenter(Vector2 out) {
+        return out.set(getCenterX(), getCenterY());
     }
 
-    public Vector2 getCorner(int cornerBits) {
-        return corner.get(cornerBits);
+    /**
+     * Corner reference position from the center of this cell by radius
+     */
+    public Vector2 getCorner(CELL_BITS cornerBits) {
+        return getCorner(cornerBits.id());
     }
 
-    public CELL_TYPE getType() {
-        return  this.type;
+    public Vector2 getCorner(int cornerBits) {
+        return getCorner(cornerBits, new Vector2());
     }
 
-    /**@deprecated  */
-    public static Position positionFromCoordinate(int screenX, int screenY) {
-        return new Position(
-            Math.floorDiv(screenX, TILE_SIZE),
-            Math.floorDiv(TILE_SIZE * MAP_HEIGHT - screenY, TILE_SIZE)
-        );
+    public Vector2 getCorner(int cornerBits, Vector2 out) {
+        return out.set(getCornerX(cornerBits), getCornerY(cornerBits));
     }
 
-    public static Position remapScreenToCell(int screenX, int screenY) {
-        return remapScreenToCell((float) screenX, (float) screenY);
+    public float getCornerX(int cornerBits) {
+        return getCenterX() + CORNER_X[cornerBits];
     }
 
-    public static Position remapScreenToCell(Vector2 coordinate) {
-        return remapScreenToCell(coordinate.x, coordinate.y);
+    public float getCornerY(int cornerBits) {
+        return getCenterY() + CORNER_Y[cornerBits];
     }
 
-
-    /**
-     * Remap viewport coordinate into what cell position it is in.
-     * @param screenX viewport X position anywhere in between a cell.
-     * @param screenY viewport Y position anywhere in between a cell.
-     * @return The cell position if found, null if not.
-     */
-    public static Position remapScreenToCell(float screenX, float screenY) {
-        int column =  MathUtils.floor(
-            MathUtils.map(OFFSET_X,
-                MAP_WIDTH * TILE_SIZE + OFFSET_X,
-                0.0f, MAP_WIDTH, screenX)
-        );
-
-        if(column < 0 || column >= MAP_WIDTH) return null;
-
-        int row = MathUtils.floor(
-            MathUtils.map(OFFSET_Y,
-                MAP_HEIGHT * TILE_SIZE + OFFSET_Y,
-                MAP_HEIGHT, 0.0f, screenY)
-        );
-
-        if(row < 0 || row >= MAP_HEIGHT) return null;
-
-        return new Position(column, row);
+    public CELL_TYPE getType() {
+        if(grid != null) return grid.getTypeAt(index);
+        return  this.type;
     }
 
     public void setType(CELL_TYPE type) {
-        this.type = type;
+        if(grid != null) grid.setTypeAt(index, type);
+        else this.type = type;
     }
 
     public boolean isOccupied() {
-        return type.id() != CELL_TYPE.NONE.id();
+        return getType().id() != CELL_TYPE.NONE.id();
     }
 
     public void clearCell() {
-        this.type = CELL_TYPE.NONE;
+        setType(CELL_TYPE.NONE);
     }
 
     public static CELL_BITS checkAdjacencyType(MapCell from, MapCell to) {
-        if(to.x - from.x == TILE_SIZE) { // right adjacency
-            // up adjacency
-            if(to.y - from.y == TILE_SIZE) return CELL_BITS.TOP_RIGHT;
-            else if(from.y - to.y == TILE_SIZE) return CELL_BITS.BOTTOM_RIGHT;
-            else return CELL_BITS.RIGHT;
-        }
-        else if(from.x - to.x == TILE_SIZE) { // left adjacency
-            // up adjacency
-            if(to.y - from.y == TILE_SIZE) return CELL_BITS.TOP_LEFT;
-            else if(from.y - to.y == TILE_SIZE) return CELL_BITS.BOTTOM_LEFT;
-            else return CELL_BITS.LEFT;
-        }
-        else { // no x adjacency, must be y
-            // up adjacency
-            if(to.y - from.y == TILE_SIZE) return CELL_BITS.TOP;
-            else if(from.y - to.y == TILE_SIZE) return CELL_BITS.BOTTOM;
-        }
-
-        return null;
+        return CELL_BITS.fromOffset(to.pos.col - from.pos.col, to.pos.row - from.pos.row);
     }
 
     public static float[] extractVertices(
@@ -225,21 +292,19 @@ public class MapCell extends GameMap.Cell {
         MapCell to,
         CELL_BITS cornerFrom,
         CELL_BITS cornerTo) {
-        Vector2 xFrom = from.getCorner(cornerFrom);
-        Vector2 xTo = to.getCorner(cornerFrom);
-        Vector2 yTo = to.getCorner(cornerTo);
-        Vector2 yFrom = from.getCorner(cornerTo);
+        int xCorner = cornerFrom.id();
+        int yCorner = cornerTo.id();
 
         return new float[] {
-            xFrom.x, xFrom.y,
-            xTo.x, xTo.y,
-            yTo.x, yTo.y,
-            yFrom.x, yFrom.y,
+            from.getCornerX(xCorner), from.getCornerY(xCorner),
+            to.getCornerX(xCorner), to.getCornerY(xCorner),
+            to.getCornerX(yCorner), to.getCornerY(yCorner),
+            from.getCornerX(yCorner), from.getCornerY(yCorner),
         };
     }
 
     public static boolean isAdjacent(MapCell from, MapCell to) {
-        return Math.abs(to.x - from.x) <= TILE_SIZE && Math.abs(to.y - from.y) <= TILE_SIZE;
+        return Math.abs(to.pos.col - from.pos.col) <= 1 && Math.abs(to.pos.row - from.pos.row) <= 1;
     }
 
     @Override
@@ -0,0 +1,150 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.tin.game.utils.Position;
+
+import static com.tin.game.Config.*;
+
+/**
+ * Dimensions of a single game board. Every system reads the board size
+ * from the map it is handed, so boards of any size can run side by side.
+ * <p>
+ * The board is centered in a world of at least screen size,
+ * larger boards grow the world instead.
+ */
+public class MapDescriptor {
+
+    // number of cells
+    public final int width;
+    public final int height;
+
+    // cell size in pixel
+    public final int tileSize;
+
+    // world size in pixel, the board is centered in it
+    public final int worldWidth;
+    public final int worldHeight;
+
+    // viewport position of the board
+    public final int offsetX;
+    public final int offsetY;
+
+    public MapDescriptor(int width, int height) {
+        this(width, height, TILE_SIZE);
+    }
+
+    public MapDescriptor(int width, int height, int tileSize) {
+        if(width <= 0 || height <= 0 || tileSize <= 0)
+            throw new GdxRuntimeException("Invalid map size " + width + "x" + height + " with tile size " + tileSize);
+
+        // cells are packed into CellKeys
+        if(width > 0xFFFF || height > 0x7FFF)
+            throw new GdxRuntimeException("Map size " + width + "x" + height + " is too large");
+
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.worldWidth = Math.max(SCREEN_WIDTH, width * tileSize);
+        this.worldHeight = Math.max(SCREEN_HEIGHT, height * tileSize);
+        this.offsetX = (worldWidth - getGameWidth()) / 2;
+        this.offsetY = (worldHeight - getGameHeight()) / 2;
+    }
+
+    /**
+     * @return the default board from {@link com.tin.game.Config}
+     */
+    public static MapDescriptor defaults() {
+        return new MapDescriptor(MAP_WIDTH, MAP_HEIGHT, TILE_SIZE);
+    }
+
+    /**
+     * Parse a board size of the form "WIDTHxHEIGHT", e.g. "2000x2000".
+     */
+    public static MapDescriptor parse(String size) {
+        int split = size.toLowerCase().indexOf('x');
+        if(split < 0) throw new GdxRuntimeException("Map size has to be WIDTHxHEIGHT: " + size);
+
+        try {
+            return new MapDescriptor(
+                Integer.parseInt(size.substring(0, split).trim()),
+                Integer.parseInt(size.substring(split + 1).trim()));
+        }
+        catch (NumberFormatException e) {
+            throw new GdxRuntimeException("Map size has to be WIDTHxHEIGHT: " + size, e);
+        }
+    }
+
+    /**
+     * Load the board of a scenario file, missing values fall back to the defaults.
+     * <pre>{ "map": { "width": 2000, "height": 2000, "tileSize": 32 } }</pre>
+     */
+    public static MapDescriptor load(FileHandle scenario) {
+        JsonValue root = new JsonReader().parse(scenario);
+        JsonValue map = root.has("map") ? root.get("map") : root;
+
+        return new MapDescriptor(
+            map.getInt("width", MAP_WIDTH),
+            map.getInt("height", MAP_HEIGHT),
+            map.getInt("tileSize", TILE_SIZE));
+    }
+
+    public int getGameWidth() {
+        return width * tileSize;
+    }
+
+    public int getGameHeight() {
+        return height * tileSize;
+    }
+
+    public int getCellCount() {
+        return width * height;
+    }
+
+    public boolean inBounds(int column, int row) {
+        return column >= 0 && column < width && row >= 0 && row < height;
+    }
+
+    /**
+     * @return viewport X position of the left edge of a column
+     */
+    public int cellX(int column) {
+        return column * tileSize + offsetX;
+    }
+
+    /**
+     * @return viewport Y position of the top edge of a row
+     */
+    public int cellY(int row) {
+        return (height - row) * tileSize + offsetY;
+    }
+
+    public Position remapScreenToCell(Vector2 coordinate) {
+        return remapScreenToCell(coordinate.x, coordinate.y);
+    }
+
+    /**
+     * Remap viewport coordinate into what cell position it is in.
+     * @param screenX viewport X position anywhere in between a cell.
+     * @param screenY viewport Y position anywhere in between a cell.
+     * @return The cell position if found, null if not.
+     */
+    public Position remapScreenToCell(float screenX, float screenY) {
+        int column = MathUtils.floor((screenX - offsetX) / tileSize);
+        if(column < 0 || column >= width) return null;
+
+        int row = MathUtils.floor(height - (screenY - offsetY) / tileSize);
+        if(row < 0 || row >= height) return null;
+
+        return new Position(column, row);
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + " (" + tileSize + "px)";
+    }
+}
@@ -1,8 +1,9 @@
 package com.tin.game.core;
 
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.IntSet;
-import com.badlogic.gdx.utils.ObjectMap;
 import com.tin.game.utils.SimplePath;
 import com.tin.game.utils.Position;
 
@@ -11,28 +12,56 @@ import static com.tin.game.core.PathMap.SubPath;
 public class PathGroup {
     private int pathID = 0;
 
+    // ID of this group in its owning PathMap
+    public final int groupID;
+
     // ID -> SubPath all path in this group
     public final IntMap<SubPath> allPath;
 
     // ID -> [ID, ...] all adjacency path to this SubPath
     public final IntMap<IntSet> adjacentPath;
 
-    // Position -> [ID, ...] all nodes to its corresponding SubPath
-    public final ObjectMap<Position, IntSet> allCell;
+    // CellKey -> [ID, ...] all nodes to its corresponding SubPath
+    public final IntMap<IntSet> allCell;
+
+    // every traversed edge of this group as (cell index << 3 | CELL_BITS),
+    // used to draw the roads and roll back the traversal
+    public final IntArray allEdge;
+
+    private final OnAddCell onAddCell;
+
+    // debug colors of the SubPaths, shared with the owning PathMap
+    private final RandomXS128 debugColors;
+
+    // search graph of the SubPaths, built on demand and dropped when a path changes
+    private SubPathGraph graph;
+
+    @FunctionalInterface
+    public interface OnAddCell {
+        void addCell(int groupID, int cell);
+    }
 
     public PathGroup() {
+        this(-1, null, new RandomXS128());
+    }
+
+    public PathGroup(int groupID, OnAddCell onAddCell, RandomXS128 debugColors) {
+        this.groupID = groupID;
+        this.onAddCell = onAddCell;
+        this.debugColors = debugColors;
         this.allPath = new IntMap<>();
         this.adjacentPath = new IntMap<>();
-        this.allCell = new ObjectMap<>();
+        this.allCell = new IntMap<>();
+        this.allEdge = new IntArray();
     }
 
     public int addNewPath(MapCell start) {
-        SubPath path = new SubPath(start);
+        graph = null;
+        SubPath path = new SubPath(start, debugColors);
         pathID++;
 
         allPath.put(pathID, path);
-        putCellIfAbsent(start.pos, new IntSet());
-        allCell.get(start.pos).add(pathID);
+        cellPaths(start.pos.key()).add(pathID);
 
         adjacentPath.put(pathID, new IntSet());
 
@@ -41,20 +70,35 @@ public class PathGroup {
 
     public boolean addVertexToPath(int pathID, MapCell cell) {
         SimplePath path = allPath.get(pathID);
+        graph = null;
 
         path.addVertex(cell);
-        putCellIfAbsent(cell.pos, new IntSet());
+        IntSet paths = cellPaths(cell.pos.key());
 
         // vertex may intersect some other path
-        IntSet.IntSetIterator itr = allCell.get(cell.pos).iterator();
+        IntSet.IntSetIterator itr = paths.iterator();
         while(itr.hasNext) adjacentPath.get(itr.next()).add(pathID);
 
-        return allCell.get(cell.pos).add(pathID);
+        return paths.add(pathID);
+    }
+
+    public void addEdge(int edge) {
+        allEdge.add(edge);
+    }
+
+    private IntSet cellPaths(int cell) {
+        IntSet paths = allCell.get(cell);
+        if(paths != null) return paths;
+
+        paths = new IntSet();
+        allCell.put(cell, paths);
+        if(onAddCell != null) onAddCell.addCell(groupID, cell);
+        return paths;
     }
 
-    private void putCellIfAbsent(Position cell, IntSet defaultValue) {
-        if(allCell.containsKey(cell)) return;
-        allCell.put(cell, defaultValue);
+    public SubPathGraph getGraph() {
+        if(graph == null) graph = new SubPathGraph(this);
+        return graph;
     }
 
     public IntMap.Values<SubPath> allPaths() {
@@ -62,6 +106,10 @@ public class PathGroup {
     }
 
     public boolean containCell(Position cell) {
+        return allCell.containsKey(cell.key());
+    }
+
+    public boolean containCell(int cell) {
         return allCell.containsKey(cell);
     }
 }
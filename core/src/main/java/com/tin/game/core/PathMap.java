@@ -2,17 +2,18 @@ package com.tin.game.core;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntMap;
-import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.OrderedSet;
-import com.tin.game.utils.Edge;
+import com.tin.game.utils.CellKey;
 import com.tin.game.utils.Position;
 import com.tin.game.utils.SimplePath;
 
 public class PathMap {
     // Constants for integer-based path calculation
-    private static final int STRAIGHT_COST = 100;
-    private static final int DIAGONAL_COST = 141; // Approximate √2 * 100 = 141
+    public static final int STRAIGHT_COST = 100;
+    public static final int DIAGONAL_COST = 141; // Approximate √2 * 100 = 141
 
     /// A PathGroup has its unique ID
     /// ID -> PathGroup
@@ -21,9 +22,24 @@ public class PathMap {
     private final IntMap<PathGroup> pathGroup;
     private final PathMapTraverser traverser;
 
+    // node -> group lookup
+    private final ConnectivityIndex index;
+
+    // debug colors of the traversed SubPaths
+    private final RandomXS128 debugColors;
+
     public PathMap(PathMapTraverser traverser) {
+        this(traverser, new RandomXS128());
+    }
+
+    /**
+     * @param debugColors seeded stream of the SubPath debug colors, so a replay draws the same colors
+     */
+    public PathMap(PathMapTraverser traverser, RandomXS128 debugColors) {
         pathGroup = new IntMap<>();
         this.traverser = traverser;
+        this.index = new ConnectivityIndex(traverser.getWidth(), traverser.getHeight());
+        this.debugColors = debugColors;
     }
 
     public void init() {
@@ -31,7 +47,7 @@ public class PathMap {
     }
 
     public PathGroup createNewGroup() {
-        PathGroup group = new PathGroup();
+        PathGroup group = new PathGroup(nextID, index::join, debugColors);
         pathGroup.put(nextID, group);
         nextID++;
         return group;
@@ -41,12 +57,21 @@ public class PathMap {
         return  pathGroup.get(groupID);
     }
 
-    public ObjectSet<Edge> getVisitedEdges() {
-        return traverser.getVisitedEdges();
+    @FunctionalInterface
+    public interface OnEdge {
+        void edge(MapCell from, MapCell to);
     }
 
-    public ObjectSet<Position> getVisitedNodes() {
-        return traverser.getVisitedNodes();
+    /**
+     * Visit every traversed road connection of every group.
+     */
+    public void forEachEdge(OnEdge onEdge) {
+        for (PathGroup group : pathGroup.values()) {
+            for (int i = 0; i < group.allEdge.size; i++) {
+                int edge = group.allEdge.get(i);
+                onEdge.edge(traverser.getEdgeStart(edge), traverser.getEdgeEnd(edge));
+            }
+        }
     }
 
     public PathMapTraverser getTraverser() {
@@ -54,18 +79,85 @@ public class PathMap {
     }
 
     public PathGroup getGroup(Position node) {
-        IntMap.Values<PathGroup> itr = pathGroup.values();
-        while(itr.hasNext()) {
-            PathGroup next = itr.next();
-            if(next.allCell.containsKey(node)) {
-                return next;
-            }
-        }
-        return null;
+        return getGroupOf(node.key());
+    }
+
+    /**
+     * @param node {@link CellKey} of a road node
+     * @return the group of this node, null if it is not in any group
+     */
+    public PathGroup getGroupOf(int node) {
+        int groupID = index.groupOf(node);
+        if(groupID < 0) return null;
+        return pathGroup.get(groupID);
     }
 
-    public void deleteGroup() {
+    /**
+     * @return true if both nodes are in the same group, i.e. there is a road between them
+     */
+    public boolean isConnected(Position from, Position to) {
+        return index.isConnected(from.key(), to.key());
+    }
+
+    public void deleteGroup(PathGroup group) {
+        traverser.forgetGroup(group);
+
+        IntMap.Keys nodes = group.allCell.keys();
+        while(nodes.hasNext) index.remove(group.groupID, nodes.next());
 
+        pathGroup.remove(group.groupID);
+    }
+
+    /**
+     * Apply a road edit as a delta: only the groups touching the edited
+     * nodes are dropped and traversed again, every other group is kept as is.
+     * <p>
+     * The delta is a whole group: an edit inside one large connected road network,
+     * the common case of a single city, traverses all of its roads again and costs
+     * as much as traversing from scratch, see PathUpdateBenchmark. Only edits in
+     * separate, smaller groups are cheaper.
+     * @param dirty {@link CellKey}s of nodes whose adjacency changed (both ends
+     *              of an added edge, removed nodes and their former neighbours)
+     * @return the groups created by this update
+     */
+    public Array<PathGroup> updateGroups(IntArray dirty) {
+        IntArray seeds = new IntArray(dirty);
+        // ordered, so a replay traverses the groups again in the same order
+        OrderedSet<PathGroup> stale = new OrderedSet<>();
+
+        for (int i = 0; i < dirty.size; i++) {
+            PathGroup group = getGroupOf(dirty.get(i));
+            if(group != null) stale.add(group);
+        }
+
+        // a split may leave any node of a stale group in a new group
+        stale.forEach((group) -> {
+            IntMap.Keys nodes = group.allCell.keys();
+            while(nodes.hasNext) seeds.add(nodes.next());
+            deleteGroup(group);
+        });
+
+        int firstID = nextID;
+
+        // start from path ends and intersections so SubPaths keep their order,
+        // nodes in the middle of a road are only seeds for closed loops
+        for (int i = 0; i < seeds.size; i++) {
+            int node = seeds.get(i);
+            if(traverser.isRoad(node) && traverser.degreeOf(node) != 2)
+                traverser.traverseNewPath(node);
+        }
+        for (int i = 0; i < seeds.size; i++) {
+            int node = seeds.get(i);
+            if(traverser.isRoad(node))
+                traverser.traverseNewPath(node);
+        }
+
+        Array<PathGroup> created = new Array<>();
+        for (int id = firstID; id < nextID; id++) {
+            PathGroup group = pathGroup.get(id);
+            if(group != null) created.add(group);
+        }
+        return created;
     }
 
     public IntMap.Values<PathGroup> allGroups() {
@@ -74,15 +166,15 @@ public class PathMap {
 
     public void clearAllPath() {
         pathGroup.clear();
+        index.clear();
     }
 
     public static class SubPath extends SimplePath {
         public Color debugColor;
 
-        public SubPath(MapCell start) {
+        public SubPath(MapCell start, RandomXS128 random) {
             super(start);
 
-            RandomXS128 random = new RandomXS128();
             debugColor = new Color(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1.0f);
         }
 
@@ -103,8 +195,8 @@ public class PathMap {
                 Position prev = vertices.orderedItems().get(i - 1);
                 Position curr = vertices.orderedItems().get(i);
 
-                int dx = Math.abs(curr.col - prev.row);
-                int dy = Math.abs(curr.row - prev.col);
+                int dx = Math.abs(curr.col - prev.col);
+                int dy = Math.abs(curr.row - prev.row);
 
                 if (dx == 1 && dy == 1)
                     length += DIAGONAL_COST; // Diagonal move
@@ -112,5 +204,14 @@ public class PathMap {
             }
             return length;
         }
+
+        /**
+         * @return cost of a route of SubPaths, the sum of their lengths
+         */
+        public static int lengthOf(Array<SubPath> route) {
+            int length = 0;
+            for (int i = 0; i < route.size; i++) length += route.get(i).getPathLength();
+            return length;
+        }
     }
 }
@@ -2,13 +2,41 @@ package com.tin.game.core;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.badlogic.gdx.utils.ObjectSet;
-import com.tin.game.utils.Edge;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.tin.game.utils.CellKey;
 import com.tin.game.utils.Position;
 
+import java.util.Arrays;
+
+import static com.tin.game.core.MapCell.CELL_BITS;
+
+/**
+ * Splits the road map into {@link PathGroup}s of {@link PathMap.SubPath}s,
+ * every SubPath runs between two path ends or intersections.
+ * <p>
+ * The traversal walks each SubPath in a loop and keeps the pending branches
+ * of intersections on its own work stack, so the depth of the road network
+ * does not grow the call stack. Visited nodes and edges are stamped with
+ * the current traversal epoch in arrays indexed by cell, clearing them
+ * only moves the epoch forward.
+ */
 public class PathMapTraverser extends AbstractDrawer {
-    private final ObjectSet<Edge> visitedEdges;
-    private final ObjectSet<Position> visitedNodes;
+    private static final int NONE = -1;
+
+    private final int width;
+    private final int height;
+
+    // cell index -> epoch the node was visited in
+    private final int[] nodeStamp;
+
+    // cell index -> epoch of edgeMask, and the CELL_BITS of its visited edges
+    private final int[] edgeStamp;
+    private final byte[] edgeMask;
+    private int epoch;
+
+    // pending branches as (from, to) CellKey pairs
+    private final IntArray branches;
 
     // handlers
     private final OnTraversal onTraversal;
@@ -16,7 +44,10 @@ public class PathMapTraverser extends AbstractDrawer {
 
     @FunctionalInterface
     public interface OnTraversal {
-        ObjectSet<MapCell> getAdjacent(Position position, ObjectSet<MapCell> defaultValue);
+        /**
+         * @return {@link CELL_BITS} mask of the connections of this node, {@link IRoadMap#NO_ROAD} if it is not a road
+         */
+        int getAdjacentMask(int key);
     }
 
     @FunctionalInterface
@@ -27,8 +58,21 @@ public class PathMapTraverser extends AbstractDrawer {
     public PathMapTraverser(IGameMap drawMap, OnTraversal onTraversal) {
         super(drawMap);
         this.onTraversal = onTraversal;
-        this.visitedEdges = new ObjectSet<>();
-        this.visitedNodes = new ObjectSet<>();
+        this.width = drawMap.getDescriptor().width;
+        this.height = drawMap.getDescriptor().height;
+        this.nodeStamp = new int[width * height];
+        this.edgeStamp = new int[width * height];
+        this.edgeMask = new byte[width * height];
+        this.epoch = 1;
+        this.branches = new IntArray();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
     }
 
     public void initTraverser(OnCreate onCreate) {
@@ -36,9 +80,13 @@ public class PathMapTraverser extends AbstractDrawer {
     }
 
     public void traverseNewPath(Position start) {
+        traverseNewPath(start.key());
+    }
+
+    public void traverseNewPath(int start) {
         if(onCreate == null) throw new GdxRuntimeException("PathMapTraverser has not been initialized");
 
-        if(!visitedNodes.contains(start)) {
+        if(!isVisited(start)) {
             PathGroup group = onCreate.newGroup();
             traverseFromNode(start, group);
         }
@@ -47,141 +95,241 @@ public class PathMapTraverser extends AbstractDrawer {
     public void traverseNewPath(Position start, String debugMsg) {
         if(onCreate == null) throw new GdxRuntimeException("PathMapTraverser has not been initialized");
 
-        if(!visitedNodes.contains(start)) {
+        if(!isVisited(start.key())) {
             Gdx.app.log("dev", debugMsg);
             PathGroup group = onCreate.newGroup();
-            traverseFromNode(start, group);
+            traverseFromNode(start.key(), group);
         }
     }
 
-    public ObjectSet<Edge> getVisitedEdges() {
-        return visitedEdges;
+    public boolean isVisited(int node) {
+        return nodeStamp[indexOf(node)] == epoch;
     }
 
-    public ObjectSet<Position> getVisitedNodes() {
-        return visitedNodes;
+    public boolean isVisited(int from, int to) {
+        return isEdgeVisited(from, to);
     }
 
     public void clearTraversalData() {
-        visitedEdges.clear();
-        visitedNodes.clear();
+        epoch++;
+
+        // stamps would be ambiguous after overflow, start over
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(nodeStamp, 0);
+            Arrays.fill(edgeStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Roll back the traversal of a single group so its nodes
+     * can be traversed again without touching any other group.
+     * @param group the group to forget
+     */
+    public void forgetGroup(PathGroup group) {
+        IntMap.Keys nodes = group.allCell.keys();
+        while(nodes.hasNext) nodeStamp[indexOf(nodes.next())] = 0;
+
+        for (int i = 0; i < group.allEdge.size; i++) {
+            int edge = group.allEdge.get(i);
+            int from = edge >>> 3;
+            CELL_BITS direction = CELL_BITS.fromID(edge & 7);
+
+            unmarkEdge(from, direction);
+            unmarkEdge(neighborOf(from, direction), direction.opposite());
+        }
     }
 
-    private void traverseFromNode(Position start, PathGroup group) {
+    public boolean isRoad(int node) {
+        return onTraversal.getAdjacentMask(node) != IRoadMap.NO_ROAD;
+    }
+
+    public int degreeOf(int node) {
+        return Integer.bitCount(adjacencyOf(node));
+    }
 
-        int pathID = group.addNewPath(drawMap.getCellAt(start));
+    /**
+     * @param edge an edge from {@link PathGroup#allEdge}
+     * @return the cell the edge was traversed from
+     */
+    public MapCell getEdgeStart(int edge) {
+        int index = edge >>> 3;
+        return drawMap.getCellAt(index % width, index / width);
+    }
 
-        startDFT(start, group, pathID);
+    /**
+     * @param edge an edge from {@link PathGroup#allEdge}
+     * @return the cell the edge was traversed to
+     */
+    public MapCell getEdgeEnd(int edge) {
+        int index = neighborOf(edge >>> 3, CELL_BITS.fromID(edge & 7));
+        return drawMap.getCellAt(index % width, index / width);
     }
 
-    private void startDFT(Position start, PathGroup group, int pathID) {
+    private void traverseFromNode(int start, PathGroup group) {
+        int root = findPathEnd(start);
+        nodeStamp[indexOf(root)] = epoch;
+
+        int adjacency = adjacencyOf(root);
 
-        // Avoid duplicate node visits
-        if(visitedNodes.contains(start)) {
-            // but make sure there are no unfinished path
-            group.allPath.get(pathID).endPath(start);
+        // a lone node is a path of its own
+        if(adjacency == 0) {
+            group.addNewPath(cellAt(root));
             return;
-        };
-        visitedNodes.add(start);
+        }
 
-        ObjectSet<MapCell> adjacency = onTraversal.getAdjacent(start, new ObjectSet<>());
-        MapCell intersection = drawMap.getCellAt(start);
+        for (int bits = adjacency; bits != 0; bits &= bits - 1) {
+            pushBranch(root, CELL_BITS.lowest(bits).neighborOf(root));
+        }
+
+        while(branches.size > 0) {
+            int to = branches.pop();
+            int from = branches.pop();
+            traversePath(from, to, group);
+        }
+    }
 
+    /**
+     * Walk a single SubPath from a path end or intersection until
+     * the next one, then queue up the branches found there.
+     */
+    private void traversePath(int from, int to, PathGroup group) {
+        if(isEdgeVisited(from, to)) return;
 
-        // check for connections
-        switch (adjacency.size) {
-            case 0:
-                // throw new GdxRuntimeException("A node has 0 adjacency");
-                Gdx.app.log("dev", "A node has 0 adjacency");
+        MapCell start = cellAt(from);
+        int pathID = group.addNewPath(start);
+        group.addVertexToPath(pathID, start);
+
+        int previous = from;
+        int current = to;
+
+        while(true) {
+            MapCell cell = cellAt(current);
+            markEdge(previous, current, group);
+            group.addVertexToPath(pathID, cell);
+
+            // closed a loop or reached an already traversed intersection
+            if(nodeStamp[indexOf(current)] == epoch) {
+                group.allPath.get(pathID).endPath(cell);
+                return;
+            }
+            nodeStamp[indexOf(current)] = epoch;
+
+            int adjacency = adjacencyOf(current);
+            int index = indexOf(current);
+
+            // found a path end or >3 way intersection
+            if(Integer.bitCount(adjacency) != 2) {
+                group.allPath.get(pathID).endPath(cell);
+
+                for (int bits = adjacency; bits != 0; bits &= bits - 1) {
+                    CELL_BITS direction = CELL_BITS.lowest(bits);
+                    if(!isEdgeVisited(index, direction)) pushBranch(current, direction.neighborOf(current));
+                }
                 return;
-            case 1:
-                Gdx.app.log("dev", "end path: " + start + " -> " + adjacency.first().pos );
-                group.allPath.get(pathID).endPath(start);
-                pathDFT(start, adjacency, group, pathID);
-                break;
-            case 2:
-                pathDFT(start, adjacency, group, pathID);
-                break;
-            case 3:
-            case 4:
-            default: {
-                // found >3 way intersection
-                group.allPath.get(pathID).endPath(start);
-
-                // look at its adjacency
-                ObjectSet<MapCell> connection = new ObjectSet<>(adjacency);
-
-                connection.forEach((node) -> {
-                    if(node != null && visitedNodes.contains(node.pos)) {
-                        Gdx.app.log("dev", "found used node: " + node.pos);
-                        connection.remove(node);
-                    }
-                });
-
-                Gdx.app.log("dev", "intersection: " + connection.size);
-
-                // the only node left in this adjacency is now the un-traversed "branch"
-                connection.forEach((subPath) -> {
-                    // if(visitedNodes.contains(subPath.pos)) return;
-
-                    Edge edge = new Edge(start, subPath.pos);
-
-                    if(!canAddPath(edge)) return;
-
-                    Gdx.app.log("dev", "new branch at: " + subPath.pos);
-                    int nextID = group.addNewPath(intersection);
-                    group.addVertexToPath(nextID, intersection);
-                    addPath(edge, group, nextID);
-
-                    if(!visitedNodes.contains(subPath.pos))
-                        startDFT(subPath.pos, group, nextID);
-                    else group.allPath.get(nextID).endPath(subPath.pos);
-                });
-
-                break;
             }
+
+            int next = NONE;
+            for (int bits = adjacency; bits != 0; bits &= bits - 1) {
+                CELL_BITS direction = CELL_BITS.lowest(bits);
+                if(!isEdgeVisited(index, direction)) next = direction.neighborOf(current);
+            }
+
+            if(next == NONE) {
+                group.allPath.get(pathID).endPath(cell);
+                return;
+            }
+
+            previous = current;
+            current = next;
         }
     }
 
-    private void pathDFT(Position start, ObjectSet<MapCell> adjacency, PathGroup group, int pathID) {
-        adjacency.forEach((cell) -> {
-            Edge edge = new Edge(start.col, start.row, cell.pos.col, cell.pos.row);
-            if(canAddPath(edge)) {
-                addPath(edge, group, pathID);
-                startDFT(cell.pos, group, pathID);
+    /**
+     * SubPaths have to start at a path end or intersection, so starting
+     * in the middle of a road first walks to one of its ends.
+     * @return the end found, or the start itself if the road is a closed loop
+     */
+    private int findPathEnd(int start) {
+        int adjacency = adjacencyOf(start);
+        if(Integer.bitCount(adjacency) != 2) return start;
+
+        int previous = start;
+        int current = CELL_BITS.lowest(adjacency).neighborOf(start);
+
+        while(current != start) {
+            adjacency = adjacencyOf(current);
+            if(Integer.bitCount(adjacency) != 2) return current;
+
+            int next = NONE;
+            for (int bits = adjacency; bits != 0; bits &= bits - 1) {
+                int adjacent = CELL_BITS.lowest(bits).neighborOf(current);
+                if(adjacent != previous) next = adjacent;
             }
-            else Gdx.app.log("dev", "cannot add edge: " + edge);
-        });
+
+            previous = current;
+            current = next;
+        }
+
+        return start;
     }
 
-    private void addPath(Position start, Position adjacent, PathGroup group, int pathID) {
+    private int adjacencyOf(int node) {
+        int adjacency = onTraversal.getAdjacentMask(node);
+        return adjacency == IRoadMap.NO_ROAD ? 0 : adjacency;
+    }
 
-        Edge edge = new Edge(start.col, start.row, adjacent.col, adjacent.row);
+    private void pushBranch(int from, int to) {
+        branches.add(from);
+        branches.add(to);
+    }
+
+    private void markEdge(int from, int to, PathGroup group) {
+        CELL_BITS direction = directionOf(from, to);
+        int index = indexOf(from);
 
-        if (!visitedEdges.contains(edge)) {
-            visitedEdges.add(edge);
-            group.addVertexToPath(pathID, drawMap.getCellAt(start));
-            group.addVertexToPath(pathID, drawMap.getCellAt(adjacent));
+        markEdge(index, direction);
+        markEdge(indexOf(to), direction.opposite());
+        group.addEdge((index << 3) | direction.id());
+    }
 
-            Gdx.app.log("dev", "traversing: " + start + " -> " + adjacent);
+    private void markEdge(int index, CELL_BITS direction) {
+        if(edgeStamp[index] != epoch) {
+            edgeStamp[index] = epoch;
+            edgeMask[index] = 0;
         }
+        edgeMask[index] |= (byte) direction.bit();
     }
 
-    private void addPath(Edge edge, PathGroup group, int pathID) {
+    private void unmarkEdge(int index, CELL_BITS direction) {
+        if(edgeStamp[index] != epoch) return;
+        edgeMask[index] &= (byte) ~direction.bit();
+    }
+
+    private boolean isEdgeVisited(int from, int to) {
+        CELL_BITS direction = directionOf(from, to);
+        return direction != null && isEdgeVisited(indexOf(from), direction);
+    }
 
-        visitedEdges.add(edge);
-        boolean pos1 = group.addVertexToPath(pathID, drawMap.getCellAt(edge.pos1));
-        boolean pos2 = group.addVertexToPath(pathID, drawMap.getCellAt(edge.pos2));
+    private boolean isEdgeVisited(int index, CELL_BITS direction) {
+        return edgeStamp[index] == epoch && (edgeMask[index] & direction.bit()) != 0;
+    }
+
+    private static CELL_BITS directionOf(int from, int to) {
+        return CELL_BITS.fromOffset(
+            CellKey.col(to) - CellKey.col(from),
+            CellKey.row(to) - CellKey.row(from));
+    }
 
-        if(pos1) Gdx.app.log("dev", "added vertex: " + edge.pos1);
-        if(pos2) Gdx.app.log("dev", "added vertex: " + edge.pos2);
+    private int neighborOf(int index, CELL_BITS direction) {
+        return index + direction.row * width + direction.col;
     }
 
-    private boolean canAddPath(Position from, Position to) {
-        return !visitedEdges.contains(new Edge(from.col, from.row, to.col, to.row));
+    private MapCell cellAt(int node) {
+        return drawMap.getCellAt(CellKey.col(node), CellKey.row(node));
     }
 
-    private boolean canAddPath(Edge edge) {
-        return !visitedEdges.contains(edge);
+    private int indexOf(int node) {
+        return CellKey.row(node) * width + CellKey.col(node);
     }
 }
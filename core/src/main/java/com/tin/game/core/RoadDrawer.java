@@ -10,6 +10,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.*;
 import com.badlogic.gdx.utils.*;
 import com.badlogic.gdx.math.Vector2;
+import com.tin.game.utils.CellKey;
 import com.tin.game.utils.DijkstraPathfinder;
 import com.tin.game.utils.Position;
 import com.tin.game.utils.Vector2D;
@@ -56,7 +57,7 @@ public class RoadDrawer extends AbstractDrawer implements Disposable {
         super(drawMap);
         this.roadMap = new RoadMap();
         this.random = new Random();
-        this.pathMap = new PathMap(new PathMapTraverser(this.drawMap, roadMap::getAdjacent));
+        this.pathMap = new PathMap(new PathMapTraverser(this.drawMap, roadMap::getAdjacentMask));
         this.pathMap.init();
         initDrawer();
     }
@@ -126,7 +127,7 @@ public class RoadDrawer extends AbstractDrawer implements Disposable {
         pathMap.clearAllPath();
         debugPathFind.clear();
 
-        ObjectMap.Keys<Position> allNodes = roadMap.getPositions();
+        IntMap.Keys allNodes = roadMap.getPositions();
 
         // traverse existing house first
         for (int i = 0; i < debugHouse.size; i++) {
@@ -136,9 +137,9 @@ public class RoadDrawer extends AbstractDrawer implements Disposable {
         }
 
         // then look for any disconnected nodes
-        allNodes.forEach((node) -> {
-            pathMap.getTraverser().traverseNewPath(node, "= = = disconnected group = = =");
-        });
+        while(allNodes.hasNext) {
+            pathMap.getTraverser().traverseNewPath(CellKey.toPosition(allNodes.next()), "= = = disconnected group = = =");
+        }
 
         pathMap.allGroups().forEach((group) -> {
             Gdx.app.log("dev", "= = = traversal output = = =");
@@ -208,23 +209,19 @@ public class RoadDrawer extends AbstractDrawer implements Disposable {
     }
 
     private void drawEachRoadCell() {
-        roadMap.getPositions().forEach((node) -> {
-            Vector2 center = drawMap.getCellAt(node).getCenter();
+        IntMap.Keys nodes = roadMap.getPositions();
+        while(nodes.hasNext) {
+            int node = nodes.next();
+            Vector2 center = drawMap.getCellAt(CellKey.col(node), CellKey.row(node)).getCenter();
             drawer.setColor(Color.LIGHT_GRAY);
             drawer.circle(center.x, center.y, RADIUS);
             drawer.setColor(Color.GRAY);
             drawer.filledCircle(center, RADIUS - 2);
-        });
+        }
     }
 
     private void drawEachRoadConnection() {
-        pathMap.getVisitedEdges().forEach((edge) -> {
-            Position fromPos = edge.pos1;
-            Position toPos = edge.pos2;
-
-            MapCell from = drawMap.getCellAt(fromPos);
-            MapCell to = drawMap.getCellAt(toPos);
-
+        pathMap.forEachEdge((from, to) -> {
             float[] vertices = makeAdjacencyVertices(from, to);
 
             if(vertices == null) return;
@@ -308,41 +305,41 @@ public class RoadDrawer extends AbstractDrawer implements Disposable {
     public Array<Position> getDebugHouse() {
         Array<Position> debugHouse = new Array<>(true, 4);
 
-        int x1 = random.nextInt(MAP_WIDTH);
-        int y1 = random.nextInt(MAP_HEIGHT);
+        int x1 = random.nextInt(drawMap.getDescriptor().width);
+        int y1 = random.nextInt(drawMap.getDescriptor().height);
 
         MapCell house1 = drawMap.getCellAt(x1, y1);
 
 
-        Position road1 = MapCell.remapScreenToCell(
+        Position road1 = drawMap.getDescriptor().remapScreenToCell(
             Vector2D.extendEnd(house1.getCenter(), house1.getCorner(random.nextInt(7)), 20.0f)
         );
 
 
         while (road1  == null) {
-             road1 = MapCell.remapScreenToCell(
+             road1 = drawMap.getDescriptor().remapScreenToCell(
                  Vector2D.extendEnd(house1.getCenter(), house1.getCorner(random.nextInt(7)), 20.0f)
             );
         }
 
 
-        int x2 = random.nextInt(MAP_WIDTH);
-        int y2 = random.nextInt(MAP_HEIGHT);
+        int x2 = random.nextInt(drawMap.getDescriptor().width);
+        int y2 = random.nextInt(drawMap.getDescriptor().height);
 
 
         while (x1 == x2 && y1 == y2) {
-            x2 = random.nextInt(MAP_WIDTH);
-            y2 = random.nextInt(MAP_HEIGHT);
+            x2 = random.nextInt(drawMap.getDescriptor().width);
+            y2 = random.nextInt(drawMap.getDescriptor().height);
         }
 
         MapCell house2 = drawMap.getCellAt(x2, y2);
 
-        Position road2 = MapCell.remapScreenToCell(
+        Position road2 = drawMap.getDescriptor().remapScreenToCell(
             Vector2D.extendEnd(house2.getCenter(), house2.getCorner(random.nextInt(7)), 20.0f)
         );
 
         while (road2 == null || drawMap.getCellAt(road2).isOccupied()) {
-            road2 = MapCell.remapScreenToCell(
+            road2 = drawMap.getDescriptor().remapScreenToCell(
                 Vector2D.extendEnd(house2.getCenter(), house2.getCorner(random.nextInt(7)), 20.0f)
             );
         }
@@ -1,11 +1,11 @@
 package com.tin.game.core;
 
-import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.IntSet;
 import com.tin.game.utils.Position;
 
 /**
  * Adjacency List Structure implementation for road map.
- * extends {@link com.badlogic.gdx.utils.ObjectMap}
+ * extends {@link com.badlogic.gdx.utils.IntMap}
  */
 public class RoadMap extends AbstractRoadMap {
 
@@ -15,58 +15,62 @@ public class RoadMap extends AbstractRoadMap {
 
     public void pushRoad(MapCell from, MapCell to) {
         // put key node with blank adjacency
-        putIfAbsent(from, new ObjectSet<>());
-        putIfAbsent(to, new ObjectSet<>());
+        putIfAbsent(from, new IntSet());
+        putIfAbsent(to, new IntSet());
         if(from.equals(to)) return;
 
         // add adjacency to node
-        getAdjacent(from.pos).add(to);
-        getAdjacent(to.pos).add(from);
+        getAdjacent(from.pos.key()).add(to.pos.key());
+        getAdjacent(to.pos.key()).add(from.pos.key());
     }
 
     public void removeRoad(MapCell cell) {
-        ObjectSet<MapCell> adjacency = getAdjacent(cell.pos);
+        int key = cell.pos.key();
+        IntSet adjacency = getAdjacent(key);
 
         if(adjacency == null) return;
 
         // clear connections
-        adjacency.forEach((adj) -> {
-            if(getAdjacent(adj.pos) != null) {
-                getAdjacent(adj.pos).remove(cell);
-            }
-        });
+        IntSet.IntSetIterator itr = adjacency.iterator();
+        while(itr.hasNext) {
+            IntSet adjacent = getAdjacent(itr.next());
+            if(adjacent != null) adjacent.remove(key);
+        }
 
         //delete itself
-        remove(adjacency);
+        remove(key);
     }
 
     public void excludeConnection(Position start, MapCell cell, Position end) {
-
-        ObjectSet<MapCell> adjacency = getAdjacent(cell.pos);
+        int key = cell.pos.key();
+        int startKey = start.key();
+        int endKey = end.key();
 
         // clear connections
-        adjacency.forEach((adj) -> {
-            if(adj != null && !adj.pos.equals(start) && !adj.pos.equals(end)) {
-
-                getAdjacent(adj.pos).remove(cell);
-                if(getAdjacent(adj.pos).size == 0) {
-                    remove(getAdjacent(adj.pos));
-                }
-
-                getAdjacent(cell.pos).remove(adj);
+        IntSet.IntSetIterator itr = getAdjacent(key).iterator();
+        while(itr.hasNext) {
+            int adj = itr.next();
+            if(adj == startKey || adj == endKey) continue;
+
+            IntSet adjacent = getAdjacent(adj);
+            adjacent.remove(key);
+            if(adjacent.size == 0) {
+                remove(adj);
             }
-        });
+
+            itr.remove();
+        }
     }
 
 
 
     @Override
-    public void putIfAbsent(MapCell cell, ObjectSet<MapCell> adjacency) {
+    public void putIfAbsent(MapCell cell, IntSet adjacency) {
         if(hasRoad(cell.pos)) return;
 
         cell.setType(MapCell.CELL_TYPE.ROAD);
 
 
-        put(cell.pos, adjacency);
+        put(cell.pos.key(), adjacency);
     }
 }
@@ -0,0 +1,269 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.EdgeKey;
+import com.tin.game.utils.Position;
+
+/**
+ * Routes found for (house, store) pairs, kept until a road edit can affect them.
+ * <p>
+ * Every cached route is indexed by the cells and edges it runs over, so removing
+ * a road only drops the routes that actually use it. A new edge can only shorten
+ * a route whose endpoints are close enough to it: the octile distance from one
+ * end to the edge, plus the edge, plus the octile distance from the edge to the
+ * other end has to be below the route length. Only those routes are dropped.
+ * Such an edge lies within the route length of both ends, so every route is also
+ * indexed by the regions of that box, and a new edge only tests the routes of its region.
+ */
+public class RouteCache {
+
+    // side of the square regions of cells the routes are indexed by for new edges
+    static final int REGION_SIZE = 16;
+
+    /**
+     * Cached route between two cells
+     */
+    public static class Route {
+        public final int from;
+        public final int to;
+
+        // length in SubPath cost units
+        public final int cost;
+
+        // CellKeys in travel order
+        public final IntArray cells;
+
+        Route(int from, int to, int cost, IntArray cells) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.cells = cells;
+        }
+    }
+
+    // EdgeKey of (from, to) -> route
+    private final LongMap<Route> routes;
+
+    // CellKey -> ids of the routes over that cell
+    private final IntMap<LongArray> cellRoutes;
+
+    // EdgeKey -> ids of the routes over that edge
+    private final LongMap<LongArray> edgeRoutes;
+
+    // CellKey of a region -> ids of the routes a new edge in that region could shorten
+    private final IntMap<LongArray> regionRoutes;
+
+    // routes shortened by a new edge, collected before they are dropped
+    private final LongArray shortened;
+
+    private int hits;
+    private int misses;
+    private int invalidations;
+
+    public RouteCache() {
+        this.routes = new LongMap<>();
+        this.cellRoutes = new IntMap<>();
+        this.edgeRoutes = new LongMap<>();
+        this.regionRoutes = new IntMap<>();
+        this.shortened = new LongArray();
+    }
+
+    /**
+     * Look a route up and count it as hit or miss.
+     * @return the cached route, null if there is none
+     */
+    public Route get(int from, int to) {
+        Route route = routes.get(EdgeKey.of(from, to));
+        if(route != null) hits++;
+        else misses++;
+        return route;
+    }
+
+    public boolean contains(int from, int to) {
+        return routes.containsKey(EdgeKey.of(from, to));
+    }
+
+    /**
+     * Cache a route, replacing any route between the same cells.
+     * @param cells the cells of the route in travel order
+     */
+    public void put(int from, int to, int cost, Array<Position> cells) {
+        long id = EdgeKey.of(from, to);
+        remove(id);
+
+        IntArray keys = new IntArray(cells.size);
+        for (int i = 0; i < cells.size; i++) keys.add(cells.get(i).key());
+
+        Route route = new Route(from, to, cost, keys);
+        routes.put(id, route);
+        for (int i = 0; i < keys.size; i++) {
+            index(cellRoutes, keys.get(i), id);
+            if(i > 0) index(edgeRoutes, EdgeKey.of(keys.get(i - 1), keys.get(i)), id);
+        }
+        indexRegions(route, id, true);
+    }
+
+    /**
+     * Drop a route without counting it as invalidated, e.g. when its store is gone.
+     */
+    public void remove(int from, int to) {
+        remove(EdgeKey.of(from, to));
+    }
+
+    /**
+     * A road cell was removed, drop every route over it.
+     */
+    public void cellRemoved(int cell) {
+        LongArray ids = cellRoutes.get(cell);
+        while(ids != null && ids.size > 0) invalidate(ids.peek());
+    }
+
+    /**
+     * A road connection was removed, drop every route over it.
+     */
+    public void edgeRemoved(int from, int to) {
+        LongArray ids = edgeRoutes.get(EdgeKey.of(from, to));
+        while(ids != null && ids.size > 0) invalidate(ids.peek());
+    }
+
+    /**
+     * A road connection was added, drop every route it could shorten.
+     * @param cost length of the new connection in SubPath cost units
+     */
+    public void edgeAdded(int from, int to, int cost) {
+        LongArray ids = regionRoutes.get(regionOf(CellKey.col(from), CellKey.row(from)));
+        if(ids == null) return;
+
+        shortened.clear();
+        for (int i = 0; i < ids.size; i++) {
+            Route route = routes.get(ids.get(i));
+
+            // the route could run through the new edge in either direction
+            int forward = AStarPathfinder.octile(route.from, from) + cost + AStarPathfinder.octile(to, route.to);
+            int backward = AStarPathfinder.octile(route.from, to) + cost + AStarPathfinder.octile(from, route.to);
+            if(Math.min(forward, backward) < route.cost) shortened.add(ids.get(i));
+        }
+
+        for (int i = 0; i < shortened.size; i++) invalidate(shortened.get(i));
+    }
+
+    public void clear() {
+        routes.clear();
+        cellRoutes.clear();
+        edgeRoutes.clear();
+        regionRoutes.clear();
+    }
+
+    public int size() {
+        return routes.size;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getInvalidations() {
+        return invalidations;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+    }
+
+    private void invalidate(long id) {
+        if(remove(id)) invalidations++;
+    }
+
+    private boolean remove(long id) {
+        Route route = routes.remove(id);
+        if(route == null) return false;
+
+        IntArray keys = route.cells;
+        for (int i = 0; i < keys.size; i++) {
+            unindex(cellRoutes, keys.get(i), id);
+            if(i > 0) unindex(edgeRoutes, EdgeKey.of(keys.get(i - 1), keys.get(i)), id);
+        }
+        indexRegions(route, id, false);
+        return true;
+    }
+
+    /**
+     * Add or remove a route in the regions a shortening edge can start in: the start
+     * cell of such an edge is closer than the route length to one end and at most a
+     * cell farther from the other, octile distances are at least the straight cells.
+     */
+    private void indexRegions(Route route, long id, boolean add) {
+        int reach = route.cost / PathMap.STRAIGHT_COST + 1;
+        int fromCol = CellKey.col(route.from);
+        int fromRow = CellKey.row(route.from);
+        int toCol = CellKey.col(route.to);
+        int toRow = CellKey.row(route.to);
+
+        int minCol = Math.max(0, Math.max(fromCol, toCol) - reach) / REGION_SIZE;
+        int maxCol = (Math.min(fromCol, toCol) + reach) / REGION_SIZE;
+        int minRow = Math.max(0, Math.max(fromRow, toRow) - reach) / REGION_SIZE;
+        int maxRow = (Math.min(fromRow, toRow) + reach) / REGION_SIZE;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                if(add) index(regionRoutes, CellKey.of(col, row), id);
+                else unindex(regionRoutes, CellKey.of(col, row), id);
+            }
+        }
+    }
+
+    private static int regionOf(int col, int row) {
+        return CellKey.of(col / REGION_SIZE, row / REGION_SIZE);
+    }
+
+    private static void index(IntMap<LongArray> index, int key, long id) {
+        LongArray ids = index.get(key);
+        if(ids == null) {
+            ids = new LongArray(2);
+            index.put(key, ids);
+        }
+        if(!ids.contains(id)) ids.add(id);
+    }
+
+    private static void index(LongMap<LongArray> index, long key, long id) {
+        LongArray ids = index.get(key);
+        if(ids == null) {
+            ids = new LongArray(2);
+            index.put(key, ids);
+        }
+        if(!ids.contains(id)) ids.add(id);
+    }
+
+    private static void unindex(IntMap<LongArray> index, int key, long id) {
+        LongArray ids = index.get(key);
+        if(ids == null) return;
+
+        ids.removeValue(id);
+        if(ids.size == 0) index.remove(key);
+    }
+
+    private static void unindex(LongMap<LongArray> index, long key, long id) {
+        LongArray ids = index.get(key);
+        if(ids == null) return;
+
+        ids.removeValue(id);
+        if(ids.size == 0) index.remove(key);
+    }
+
+    @Override
+    public String toString() {
+        return size() + " routes, " + hits + " hits, " + misses + " misses, " + invalidations + " invalidations";
+    }
+}
@@ -0,0 +1,216 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.tin.game.utils.Position;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Compact snapshot of the {@link SubPath} graph of a {@link PathGroup}.
+ * <p>
+ * Every SubPath end cell gets a dense node id in [0, nodeCount), and the
+ * SubPaths leaving a node are laid out in one contiguous run of edge ids
+ * (compressed sparse rows), so searches can keep their state in plain
+ * arrays indexed by node id. Every SubPath is stored once per direction.
+ */
+public class SubPathGraph {
+
+    public final int nodeCount;
+    public final int edgeCount;
+
+    // node id -> CellKey
+    private final int[] nodeKey;
+
+    // CellKey -> node id
+    private final IntIntMap nodeID;
+
+    // node id -> first edge id, edges of node n are [firstEdge[n], firstEdge[n + 1])
+    private final int[] firstEdge;
+
+    // edge id -> node ids of both ends, its length and its SubPath
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final int[] edgeCost;
+    private final SubPath[] edgePath;
+
+    // shortcut index of this graph, may be attached later from another thread
+    private volatile ContractionHierarchy hierarchy;
+
+    // lane expanded view of this graph, built on first use
+    private LaneGraph lanes;
+
+    public SubPathGraph(PathGroup group) {
+        this.nodeID = new IntIntMap();
+
+        // assign node ids and count the edges of every node
+        int[] keys = new int[16];
+        int[] degree = new int[16];
+        int nodes = 0;
+        int edges = 0;
+
+        for (SubPath path : new IntMap.Values<>(group.allPath)) {
+            if(path.getEnd() == null) continue;
+
+            for (int end = 0; end < 2; end++) {
+                int key = end == 0 ? path.getStart().key() : path.getEnd().key();
+                int id = nodeID.get(key, -1);
+                if(id < 0) {
+                    id = nodes++;
+                    nodeID.put(key, id);
+                    if(id == keys.length) {
+                        keys = grow(keys);
+                        degree = grow(degree);
+                    }
+                    keys[id] = key;
+                }
+                degree[id]++;
+                edges++;
+            }
+        }
+
+        this.nodeCount = nodes;
+        this.edgeCount = edges;
+        this.nodeKey = new int[nodes];
+        System.arraycopy(keys, 0, nodeKey, 0, nodes);
+
+        this.firstEdge = new int[nodes + 1];
+        for (int i = 0; i < nodes; i++) firstEdge[i + 1] = firstEdge[i] + degree[i];
+
+        this.edgeSource = new int[edges];
+        this.edgeTarget = new int[edges];
+        this.edgeCost = new int[edges];
+        this.edgePath = new SubPath[edges];
+
+        // fill every node's run, reusing degree as its write cursor
+        for (int i = 0; i < nodes; i++) degree[i] = firstEdge[i];
+
+        for (SubPath path : new IntMap.Values<>(group.allPath)) {
+            if(path.getEnd() == null) continue;
+
+            int start = nodeID.get(path.getStart().key(), -1);
+            int end = nodeID.get(path.getEnd().key(), -1);
+            int cost = path.getPathLength();
+
+            addEdge(degree[start]++, start, end, cost, path);
+            addEdge(degree[end]++, end, start, cost, path);
+        }
+    }
+
+    private void addEdge(int edge, int source, int target, int cost, SubPath path) {
+        edgeSource[edge] = source;
+        edgeTarget[edge] = target;
+        edgeCost[edge] = cost;
+        edgePath[edge] = path;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * @return node id of a SubPath end cell, -1 if the cell is not one
+     */
+    public int idOf(int key) {
+        return nodeID.get(key, -1);
+    }
+
+    /**
+     * @return {@link com.tin.game.utils.CellKey} of a node
+     */
+    public int keyOf(int node) {
+        return nodeKey[node];
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    /**
+     * @return edge id after the last edge of a node
+     */
+    public int endEdge(int node) {
+        return firstEdge[node + 1];
+    }
+
+    public int sourceOf(int edge) {
+        return edgeSource[edge];
+    }
+
+    public int targetOf(int edge) {
+        return edgeTarget[edge];
+    }
+
+    public int costOf(int edge) {
+        return edgeCost[edge];
+    }
+
+    public SubPath pathOf(int edge) {
+        return edgePath[edge];
+    }
+
+    /**
+     * Replace a cell route between two SubPath ends by its SubPaths. Between two
+     * ends a route can only follow the one SubPath it entered, so the cell right
+     * after each end is enough to pick it.
+     * @param cells {@link com.tin.game.utils.CellKey}s of the route in travel order
+     * @param out receives the SubPaths in travel order
+     * @return false if the cells don't follow the SubPaths of this graph
+     */
+    public boolean subPathsAlong(IntArray cells, Array<SubPath> out) {
+        out.clear();
+        int at = 0;
+        while (at < cells.size - 1) {
+            int key = cells.get(at);
+            int node = idOf(key);
+            if(node < 0) return false;
+
+            int next = cells.get(at + 1);
+            SubPath found = null;
+            int end = -1;
+
+            for (int edge = firstEdge(node); edge < endEdge(node) && found == null; edge++) {
+                SubPath path = pathOf(edge);
+                int start = path.getStart().key();
+                int last = path.getEnd().key();
+                if(start == last) continue; // a shortest route never runs a loop
+
+                Array<Position> vertices = path.getCellVertices().orderedItems();
+                if(start == key && vertices.get(1).key() == next) end = last;
+                else if(last == key && vertices.get(vertices.size - 2).key() == next) end = start;
+                else continue;
+
+                found = path;
+                at += vertices.size - 1;
+            }
+
+            if(found == null || at >= cells.size || cells.get(at) != end) return false;
+            out.add(found);
+        }
+        return true;
+    }
+
+    /**
+     * @return the directed lanes of this graph and the turns between them
+     */
+    public LaneGraph getLanes() {
+        if(lanes == null) lanes = new LaneGraph(this);
+        return lanes;
+    }
+
+    /**
+     * @return the contraction hierarchy built over this graph, null if there is none yet
+     */
+    public ContractionHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    public void setHierarchy(ContractionHierarchy hierarchy) {
+        if(hierarchy != null && hierarchy.graph != this) throw new IllegalArgumentException("Hierarchy was built over another graph");
+        this.hierarchy = hierarchy;
+    }
+}
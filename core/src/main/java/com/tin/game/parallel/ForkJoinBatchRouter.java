@@ -0,0 +1,83 @@
+package com.tin.game.parallel;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.IBatchRouter;
+import com.tin.game.utils.RouteBatch;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers a {@link RouteBatch} on a {@link ForkJoinPool}. The queries are split
+ * in halves until a few are left per task, and every worker thread searches in
+ * its own {@link AStarPathfinder}, so the workers share nothing but the
+ * read-only graph snapshots.
+ * <p>
+ * Not available on GWT, this package is excluded from the web build.
+ */
+public class ForkJoinBatchRouter implements IBatchRouter, Disposable {
+
+    // queries answered by one task without splitting further
+    private static final int LEAF_SIZE = 4;
+
+    private final ForkJoinPool pool;
+
+    // search workspace of every worker
+    private final ThreadLocal<AStarPathfinder> pathfinders;
+
+    public ForkJoinBatchRouter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForkJoinBatchRouter(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.pathfinders = ThreadLocal.withInitial(AStarPathfinder::new);
+    }
+
+    @Override
+    public void route(RouteBatch<?> batch) {
+        if(batch.size() == 0) return;
+        pool.invoke(new Range(batch, pathfinders, 0, batch.size()));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void dispose() {
+        pool.shutdown();
+    }
+
+    /**
+     * Queries [start, end) of a batch
+     */
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RouteBatch<?> batch;
+        private final ThreadLocal<AStarPathfinder> pathfinders;
+        private final int start;
+        private final int end;
+
+        Range(RouteBatch<?> batch, ThreadLocal<AStarPathfinder> pathfinders, int start, int end) {
+            this.batch = batch;
+            this.pathfinders = pathfinders;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start <= LEAF_SIZE) {
+                AStarPathfinder pathfinder = pathfinders.get();
+                for (int i = start; i < end; i++) batch.route(i, pathfinder);
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new Range(batch, pathfinders, start, middle), new Range(batch, pathfinders, middle, end));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.tin.game.parallel;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.tin.game.system.CarFleet;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Updates a {@link CarFleet} on a {@link ForkJoinPool}. The cars are split in
+ * halves down to chunks of a few thousand, every chunk writes its own slice of
+ * the fleet's arrays only, so the workers share nothing but the read-only routes.
+ * <p>
+ * Not available on GWT, this package is excluded from the web build.
+ */
+public class ForkJoinFleetUpdater implements CarFleet.IFleetUpdater, Disposable {
+
+    // cars updated by one task without splitting further
+    private static final int CHUNK_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinFleetUpdater() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForkJoinFleetUpdater(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public void update(CarFleet fleet, float delta) {
+        if(fleet.size() <= CHUNK_SIZE) {
+            fleet.updateRange(0, fleet.size(), delta);
+            return;
+        }
+        pool.invoke(new Range(fleet, 0, fleet.size(), delta));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void dispose() {
+        pool.shutdown();
+    }
+
+    /**
+     * Cars [start, end) of a fleet
+     */
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CarFleet fleet;
+        private final int start;
+        private final int end;
+        private final float delta;
+
+        Range(CarFleet fleet, int start, int end, float delta) {
+            this.fleet = fleet;
+            this.start = start;
+            this.end = end;
+            this.delta = delta;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start <= CHUNK_SIZE) {
+                fleet.updateRange(start, end, delta);
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new Range(fleet, start, middle, delta), new Range(fleet, middle, end, delta));
+        }
+    }
+}
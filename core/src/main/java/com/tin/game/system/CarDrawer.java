@@ -1,75 +1,78 @@
 package com.tin.game.system;
 
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.BSpline;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 
+/**
+ * Draws every car of a {@link CarFleet} between its last two simulation steps,
+ * one shared white sprite tinted with the color of the car's town. The sprite is
+ * set up once, only its color, position and rotation change per car, and the
+ * loop allocates nothing.
+ */
 public class CarDrawer {
-    float speed = 75.0f;
-    float time = 0;
-    float path = 1;
 
-    Sprite car;
-    BSpline<Vector2> spline;
-    SpriteBatch drawBatch;
-    OnDelivery onDelivery;
+    private final SpriteBatch drawBatch;
+    private final Texture carTexture;
+    private final Sprite car;
+    private final Vector2 position = new Vector2();
 
-    boolean isDelivering = true;
+    public CarDrawer() {
+        drawBatch = new SpriteBatch();
 
-    @FunctionalInterface
-    public interface OnDelivery {
-        void deliverToStore();
-    }
+        Pixmap carPixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        carPixmap.setColor(Color.WHITE);
+        carPixmap.drawPixel(0, 0);
+        carTexture = new Texture(carPixmap); //remember to dispose of later
+        carPixmap.dispose();
 
-    public CarDrawer(SpriteBatch drawBatch, Sprite car, BSpline<Vector2> spline, OnDelivery onDelivery) {
-        this.car = car;
-        this.spline = spline;
-        this.drawBatch = drawBatch;
-        this.onDelivery = onDelivery;
+        // turns around its center, which sits on the route
+        car = new Sprite(new TextureRegion(carTexture, 50, 50, 16, 8));
+        car.setOriginCenter();
     }
 
-    public void translateCarAlongSpline(float delta) {
-        if(spline.controlPoints == null) return;
-
-
-        Vector2 dxTime = new Vector2();
-        Vector2 dxPath = new Vector2();
-        Vector2 out = new Vector2();
-        Vector2 angle = new Vector2();
-
-        spline.derivativeAt(dxTime, time);
-        spline.derivativeAt(dxPath, path);
-        time += (delta * speed / spline.spanCount) / dxTime.len();
+    public void begin() {
+        drawBatch.begin();
+    }
 
+    public void end() {
+        drawBatch.end();
+    }
 
-        if(time >= 0 && time < 1.0f) {
-            path -= (delta * speed / spline.spanCount) / dxPath.len();
-            if(!isDelivering) {
-                isDelivering = true;
-            }
+    /**
+     * @param alpha fraction of a step since the last simulation step, see {@link SimulationClock#getAlpha()}
+     */
+    public void drawAllCar(TownSystem town, float alpha) {
+        CarFleet fleet = town.getFleet();
+        for (int i = 0; i < fleet.size(); i++) {
+            drawCar(fleet, i, town.getRouteColor(fleet.routeOf(i)), alpha);
         }
-        if(time >= 1.0f) {
-            path += (delta * speed / spline.spanCount) / dxPath.len();
-            if(isDelivering) {
-                onDelivery.deliverToStore();
-                isDelivering = false;
-            }
-        } // time 1, 1.1, 1.2, 2
-        if(path > 1) time = 0;
-
-        spline.derivativeAt(angle, 1 - path);
-        spline.valueAt(out, 1 - path);
-
-        float facing = angle.angleDeg();
+    }
 
-        car.flip(true, true);
-        car.setPosition(out.x, out.y);
-        car.setRotation(facing);
+    public void drawCar(CarFleet fleet, int id, Color colorID, float alpha) {
+        placeCar(car, fleet, id, colorID, alpha, position);
         car.draw(drawBatch);
     }
 
+    /**
+     * Set the sprite to the color, position and heading of a car between its last
+     * two simulation steps, all of drawing a car that needs no GL context.
+     * @param position scratch vector
+     */
+    static void placeCar(Sprite car, CarFleet fleet, int id, Color colorID, float alpha, Vector2 position) {
+        fleet.positionOf(id, alpha, position);
+
+        car.setColor(colorID);
+        car.setOriginBasedPosition(position.x, position.y);
+        car.setRotation(fleet.rotationOf(id, alpha));
+    }
+
     public void dispose() {
         drawBatch.dispose();
+        carTexture.dispose();
     }
 }
@@ -0,0 +1,239 @@
+package com.tin.game.system;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.utils.ArcLengthTable;
+
+import java.util.Arrays;
+
+/**
+ * Every delivery car of the game as parallel primitive arrays (struct of arrays).
+ * A car drives its route from the house to the store and home again, over and
+ * over, and only its distance along the route changes in an update, so a step
+ * is one tight loop over a few float arrays. Positions are only looked up by
+ * distance in the route's {@link ArcLengthTable} when a car is drawn.
+ * <p>
+ * Car ids are dense, removing a car moves the last car into its slot. Route ids
+ * are stable and reused once a route is removed with its cars.
+ * <p>
+ * An update may be split over threads by an {@link IFleetUpdater}: every car is
+ * written by one range only, and the cars arriving at their store are reported
+ * on the calling thread after the update, in car order.
+ */
+public class CarFleet {
+
+    public static final float DEFAULT_SPEED = 75.0f;
+
+    @FunctionalInterface
+    public interface OnArrive {
+        void arrive(int route);
+    }
+
+    /**
+     * Runs {@link #updateRange} over every car, serially or spread over threads.
+     */
+    @FunctionalInterface
+    public interface IFleetUpdater {
+        void update(CarFleet fleet, float delta);
+    }
+
+    private final OnArrive onArrive;
+    private IFleetUpdater updater;
+
+    // car -> distance from the house along the route after and before the last update
+    private float[] distance;
+    private float[] lastDistance;
+
+    // car -> world units per second, route id, +1 on the way to the store and -1 on the way home
+    private float[] speed;
+    private int[] route;
+    private byte[] direction;
+
+    // car -> reached its store in the last update
+    private boolean[] arrived;
+    private int size;
+
+    // route id -> points along the route from the house to the store and its length, null once removed
+    private final Array<ArcLengthTable> routeTable;
+    private float[] routeLength;
+    private final IntArray freeRoutes;
+
+    public CarFleet(OnArrive onArrive) {
+        this.onArrive = onArrive;
+        this.distance = new float[16];
+        this.lastDistance = new float[16];
+        this.speed = new float[16];
+        this.route = new int[16];
+        this.direction = new byte[16];
+        this.arrived = new boolean[16];
+        this.routeTable = new Array<>();
+        this.routeLength = new float[16];
+        this.freeRoutes = new IntArray();
+    }
+
+    /**
+     * @param updater splits the updates over threads, e.g. a
+     *                {@link com.tin.game.parallel.ForkJoinFleetUpdater}, null updates on the calling thread
+     */
+    public void setUpdater(IFleetUpdater updater) {
+        this.updater = updater;
+    }
+
+    public IFleetUpdater getUpdater() {
+        return updater;
+    }
+
+    /**
+     * @param table route from the house, at distance 0, to the store, shared by every car on it
+     * @return id of the new route
+     */
+    public int addRoute(ArcLengthTable table) {
+        int id = freeRoutes.size > 0 ? freeRoutes.pop() : routeTable.size;
+        if(id == routeTable.size) routeTable.add(table);
+        else routeTable.set(id, table);
+
+        if(id == routeLength.length) routeLength = Arrays.copyOf(routeLength, id * 2);
+        routeLength[id] = Math.max(table.getLength(), MathUtils.FLOAT_ROUNDING_ERROR);
+        return id;
+    }
+
+    /**
+     * Remove a route and every car driving it.
+     */
+    public void removeRoute(int id) {
+        for (int car = size - 1; car >= 0; car--) {
+            if(route[car] == id) removeCar(car);
+        }
+        routeTable.set(id, null);
+        freeRoutes.add(id);
+    }
+
+    /**
+     * Put a car at the house end of a route.
+     * @return id of the new car, valid until a car is removed
+     */
+    public int addCar(int route, float speed) {
+        if(size == distance.length) grow(size * 2);
+
+        int car = size++;
+        this.distance[car] = 0;
+        this.lastDistance[car] = 0;
+        this.speed[car] = speed;
+        this.route[car] = route;
+        this.direction[car] = 1;
+        this.arrived[car] = false;
+        return car;
+    }
+
+    /**
+     * Remove a car, the last car takes its id.
+     */
+    public void removeCar(int car) {
+        int last = --size;
+        distance[car] = distance[last];
+        lastDistance[car] = lastDistance[last];
+        speed[car] = speed[last];
+        route[car] = route[last];
+        direction[car] = direction[last];
+        arrived[car] = arrived[last];
+    }
+
+    /**
+     * Drive every car for delta seconds, then report the cars that reached their store.
+     */
+    public void update(float delta) {
+        if(updater == null) updateRange(0, size, delta);
+        else updater.update(this, delta);
+
+        for (int car = 0; car < size; car++) {
+            if(!arrived[car]) continue;
+
+            arrived[car] = false;
+            onArrive.arrive(route[car]);
+        }
+    }
+
+    /**
+     * Drive the cars [from, to) for delta seconds, writes nothing outside that range.
+     */
+    public void updateRange(int from, int to, float delta) {
+        float[] distance = this.distance;
+        float[] lastDistance = this.lastDistance;
+        float[] speed = this.speed;
+        int[] route = this.route;
+        byte[] direction = this.direction;
+        float[] routeLength = this.routeLength;
+
+        for (int car = from; car < to; car++) {
+            float at = distance[car];
+            lastDistance[car] = at;
+            at += direction[car] * speed[car] * delta;
+
+            float length = routeLength[route[car]];
+            if(at >= length) {
+                // delivered, turn around at the store
+                at = length + length - at;
+                direction[car] = -1;
+                arrived[car] = true;
+            }
+            else if(at <= 0) {
+                // home again, off to the store
+                at = -at;
+                direction[car] = 1;
+            }
+            distance[car] = MathUtils.clamp(at, 0, length);
+        }
+    }
+
+    /**
+     * @param alpha fraction of a step since the last update, see {@link SimulationClock#getAlpha()}
+     * @return out set to where the car is between its last two updates
+     */
+    public Vector2 positionOf(int car, float alpha, Vector2 out) {
+        return routeTable.get(route[car]).positionAt(distanceAt(car, alpha), out);
+    }
+
+    /**
+     * @return heading of the car in degrees between its last two updates
+     */
+    public float rotationOf(int car, float alpha) {
+        float facing = routeTable.get(route[car]).angleAt(distanceAt(car, alpha));
+        return direction[car] > 0 ? facing : facing + 180;
+    }
+
+    // distance along the route between the last two updates
+    private float distanceAt(int car, float alpha) {
+        return lastDistance[car] + (distance[car] - lastDistance[car]) * alpha;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int routeOf(int car) {
+        return route[car];
+    }
+
+    public float distanceOf(int car) {
+        return distance[car];
+    }
+
+    public boolean isDelivering(int car) {
+        return direction[car] > 0;
+    }
+
+    public float lengthOf(int route) {
+        return routeLength[route];
+    }
+
+    private void grow(int capacity) {
+        distance = Arrays.copyOf(distance, capacity);
+        lastDistance = Arrays.copyOf(lastDistance, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        route = Arrays.copyOf(route, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        arrived = Arrays.copyOf(arrived, capacity);
+    }
+}
@@ -2,32 +2,92 @@ package com.tin.game.system;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.BSpline;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.OrderedSet;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.tin.game.core.*;
-import com.tin.game.utils.DijkstraPathfinder;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.IBatchRouter;
+import com.tin.game.utils.IPathfinder;
 import com.tin.game.utils.Position;
+import com.tin.game.utils.RandomStreams;
+import com.tin.game.utils.RouteBatch;
 
 public class GameData {
     private final GameMap gameMap;
     private final PathMap pathMap;
-    private final RoadMap roadMap;
+    private final IRoadMap roadMap;
     private final TownSystem townSystem;
     private final PathSystem pathSystem;
 
+    // route search engine of this game
+    private IPathfinder pathfinder;
+
+    // answers all searches of an update round at once when set, e.g. on worker threads
+    private IBatchRouter batchRouter;
+
+    // store CellKey -> routes of every road cell to that store, repaired on every road edit
+    private final IntMap<DynamicShortestPathTree> storeTrees = new IntMap<>();
+
+    // routes still valid after the last road edits
+    private final RouteCache routeCache = new RouteCache();
+
+    // entrances and distances of the map's clusters, kept up to date with every road edit
+    private final ClusterMap clusterMap;
+
+    // seeded random streams of every subsystem, the same seed and inputs replay the same game
+    private final RandomStreams random;
+
+    // turns frame times into fixed simulation steps
+    private final SimulationClock clock = new SimulationClock();
+    private long stepCount;
+
     // road pushing
     private int lastRow, lastCol;
 
     public GameData() {
-        this.gameMap = new GameMap(true, false);
-        this.roadMap = new RoadMap();
-        this.townSystem = new TownSystem(this.gameMap, this::populateTown, this::deleteStore);
-        this.pathSystem = new PathSystem(this.gameMap, roadMap::excludeConnection);
-        this.pathMap = new PathMap(new PathMapTraverser(this.gameMap, roadMap::getAdjacent));
+        this(MapDescriptor.defaults());
+    }
+
+    public GameData(MapDescriptor map) {
+        this(map, new RoadMap());
+    }
+
+    public GameData(MapDescriptor map, IRoadMap roadMap) {
+        this(map, roadMap, new AStarPathfinder());
+    }
+
+    /**
+     * @param map dimensions of the board
+     * @param roadMap road adjacency storage, e.g. {@link RoadMap} or {@link BitmaskRoadMap}
+     * @param pathfinder route search used where a store tree route doesn't follow the SubPaths,
+     *                   e.g. {@link com.tin.game.utils.DijkstraPathfinder}, {@link AStarPathfinder},
+     *                   {@link com.tin.game.utils.BidirectionalDijkstraPathfinder}, {@link com.tin.game.utils.HierarchyPathfinder}
+     *                   or {@link com.tin.game.utils.LanePathfinder}, see also {@link #getClusterMap()}
+     */
+    public GameData(MapDescriptor map, IRoadMap roadMap, IPathfinder pathfinder) {
+        this(map, roadMap, pathfinder, MathUtils.random.nextLong());
+    }
+
+    /**
+     * @param seed seed of every random stream of the game, see {@link #getSeed()}
+     */
+    public GameData(MapDescriptor map, IRoadMap roadMap, IPathfinder pathfinder, long seed) {
+        this.pathfinder = pathfinder;
+        this.random = new RandomStreams(seed);
+        this.gameMap = GameMap.newBoard(map);
+        this.roadMap = roadMap;
+        this.clusterMap = new ClusterMap(roadMap, map);
+        this.townSystem = new TownSystem(this.gameMap, random, this::populateTown, this::deleteStore);
+        this.pathSystem = new PathSystem(this.gameMap, this::excludeConnection);
+        this.pathMap = new PathMap(new PathMapTraverser(this.gameMap, roadMap::getAdjacentMask),
+            random.get(RandomStreams.STREAM.PATH_DEBUG_COLOR));
         this.pathMap.init();
     }
 
@@ -43,10 +103,41 @@ public class GameData {
         return this.pathMap;
     }
 
-    public RoadMap getRoadMap() {
+    public IRoadMap getRoadMap() {
         return this.roadMap;
     }
 
+    /**
+     * @return cluster index of the roads, route over it with {@link com.tin.game.utils.ClusterPathfinder}
+     */
+    public ClusterMap getClusterMap() {
+        return clusterMap;
+    }
+
+    public RouteCache getRouteCache() {
+        return this.routeCache;
+    }
+
+    public IPathfinder getPathfinder() {
+        return this.pathfinder;
+    }
+
+    public void setPathfinder(IPathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+
+    public IBatchRouter getBatchRouter() {
+        return batchRouter;
+    }
+
+    /**
+     * @param batchRouter routes every house of an update round in one batch,
+     *                    e.g. {@link com.tin.game.utils.SerialBatchRouter}, null searches house by house
+     */
+    public void setBatchRouter(IBatchRouter batchRouter) {
+        this.batchRouter = batchRouter;
+    }
+
     public PathSystem getPathSystem() {
         return pathSystem;
     }
@@ -55,9 +146,50 @@ public class GameData {
         return this.townSystem;
     }
 
+    /**
+     * Advance the simulation by one {@link SimulationClock#STEP_TIME}, towns grow and cars deliver.
+     * Needs no GL context, the drawers only read the state it leaves behind.
+     */
+    public void step() {
+        townSystem.step();
+        stepCount++;
+    }
+
+    /**
+     * Run the simulation steps due after a frame of delta seconds.
+     * @return fraction of a step to interpolate the drawn state by
+     */
+    public float advance(float delta) {
+        int steps = clock.advance(delta);
+        for (int i = 0; i < steps; i++) step();
+        return clock.getAlpha();
+    }
+
+    /**
+     * @return seed of this game, replays it given the same inputs at the same steps
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * @return simulation steps since the game started
+     */
+    public long getStepCount() {
+        return stepCount;
+    }
+
     public void deleteStore(Color colorID) {
         Array<Position> allCell = this.pathSystem.getCellMap(colorID);
         Position storePos = this.townSystem.getStoreMap().get(colorID);
+        IntArray dirty = new IntArray();
+
+        storeTrees.remove(storePos.key());
+
+        Array<House> houses = this.townSystem.getHousesByID(colorID);
+        if(houses != null) {
+            for (House house : houses) routeCache.remove(house.key(), storePos.key());
+        }
 
         MapCell store = this.gameMap.getCellAt(storePos);
         MapCell storeX = this.gameMap.getCellAt(storePos.col + 1, storePos.row);
@@ -69,17 +201,17 @@ public class GameData {
         storeY.clearCell();
         storeXY.clearCell();
 
-        this.roadMap.removeRoad(store);
-        this.roadMap.removeRoad(storeX);
-        this.roadMap.removeRoad(storeY);
-        this.roadMap.removeRoad(storeXY);
+        removeRoad(store, dirty);
+        removeRoad(storeX, dirty);
+        removeRoad(storeY, dirty);
+        removeRoad(storeXY, dirty);
 
         allCell.forEach((pos) -> {
 
             try {
                 MapCell cell = this.gameMap.getCellAt(pos);
                 cell.clearCell();
-                this.roadMap.removeRoad(cell);
+                removeRoad(cell, dirty);
             }
             catch (GdxRuntimeException ignored) {}
         });
@@ -89,7 +221,61 @@ public class GameData {
         this.townSystem.removeHouse(colorID);
         this.townSystem.removeStore(colorID);
 
-        traverseAllPath();
+        updatePath(dirty);
+    }
+
+    /**
+     * Remove a road node and remember it with its former neighbours as dirty.
+     */
+    private void removeRoad(MapCell cell, IntArray dirty) {
+        int key = cell.pos.key();
+        IntArray cut = new IntArray();
+        dirty.add(key);
+        roadMap.forEachAdjacent(key, (adjacent) -> {
+            dirty.add(adjacent);
+            cut.add(key, adjacent);
+            clusterMap.roadChanged(adjacent);
+        });
+        clusterMap.roadChanged(key);
+
+        routeCache.cellRemoved(key);
+        this.roadMap.removeRoad(cell);
+        for (DynamicShortestPathTree tree : storeTrees.values()) tree.edgesRemoved(cut);
+    }
+
+    /**
+     * Connect two adjacent road cells.
+     */
+    private void connect(MapCell from, MapCell to) {
+        roadMap.pushRoad(from, to);
+        clusterMap.roadChanged(from.pos.key());
+        clusterMap.roadChanged(to.pos.key());
+        if(from.equals(to)) return;
+
+        boolean diagonal = from.pos.col != to.pos.col && from.pos.row != to.pos.row;
+        int cost = diagonal ? PathMap.DIAGONAL_COST : PathMap.STRAIGHT_COST;
+        routeCache.edgeAdded(from.pos.key(), to.pos.key(), cost);
+        for (DynamicShortestPathTree tree : storeTrees.values()) tree.edgeAdded(from.pos.key(), to.pos.key());
+    }
+
+    /**
+     * Cut the connections of a pushed path's cell, see {@link IRoadMap#excludeConnection}.
+     */
+    private void excludeConnection(Position start, MapCell cell, Position end) {
+        int key = cell.pos.key();
+        IntArray cut = new IntArray();
+        roadMap.forEachAdjacent(key, (adjacent) -> {
+            if(adjacent == start.key() || adjacent == end.key()) return;
+
+            cut.add(key, adjacent);
+            routeCache.edgeRemoved(key, adjacent);
+            clusterMap.roadChanged(adjacent);
+        });
+        clusterMap.roadChanged(key);
+
+        roadMap.excludeConnection(start, cell, end);
+        if(cut.size == 0) return;
+        for (DynamicShortestPathTree tree : storeTrees.values()) tree.edgesRemoved(cut);
     }
 
     public void pushRoad(int column, int row) {
@@ -104,7 +290,7 @@ public class GameData {
             lastRow = row;
 
             // dev stuff for debugging
-            Gdx.app.log("dev", "first click! (" + lastCol + ", " + lastRow + ")");
+            if(Gdx.app != null) Gdx.app.log("dev", "first click! (" + lastCol + ", " + lastRow + ")");
         }
 
         MapCell pendingCell = this.gameMap.getCellAt(lastCol,  lastRow);
@@ -115,8 +301,8 @@ public class GameData {
             // CELL_BITS adjacency = MapCell.checkAdjacencyType(latestCell, confirmCell);
             if(confirmCell.getType().id() == MapCell.CELL_TYPE.HIGHWAY.id()) return;
 
-            roadMap.pushRoad(pendingCell, confirmCell);
-            traverseAllPath();
+            connect(pendingCell, confirmCell);
+            updatePath(IntArray.with(pendingCell.pos.key(), confirmCell.pos.key()));
         }
         lastCol = column;
         lastRow = row;
@@ -126,19 +312,19 @@ public class GameData {
         MapCell cell = this.gameMap.getCellAt(newHouse);
         MapCell road = this.gameMap.getCellAt(newHouse.facing);
 
-        roadMap.pushRoad(cell, road);
+        connect(cell, road);
 
         MapCell store = this.gameMap.getCellAt(newStore);
         MapCell storeX = this.gameMap.getCellAt(newStore.col + 1, newStore.row);
         MapCell storeY = this.gameMap.getCellAt(newStore.col, newStore.row + 1);
         MapCell storeXY = this.gameMap.getCellAt(newStore.col + 1, newStore.row + 1);
 
-        roadMap.pushRoad(store, storeX);
-        roadMap.pushRoad(storeX, storeXY);
-        roadMap.pushRoad(store, storeXY);
-        roadMap.pushRoad(storeX, storeY);
-        roadMap.pushRoad(storeXY, storeY);
-        roadMap.pushRoad(storeY, store);
+        connect(store, storeX);
+        connect(storeX, storeXY);
+        connect(store, storeXY);
+        connect(storeX, storeY);
+        connect(storeXY, storeY);
+        connect(storeY, store);
 
         cell.setType(MapCell.CELL_TYPE.HOUSE);
         store.setType(MapCell.CELL_TYPE.STORE);
@@ -146,61 +332,163 @@ public class GameData {
         storeY.setType(MapCell.CELL_TYPE.STORE);
         storeXY.setType(MapCell.CELL_TYPE.STORE);
 
-        traverseAllPath();
-
+        updatePath(IntArray.with(
+            cell.pos.key(), road.pos.key(), store.pos.key(),
+            storeX.pos.key(), storeY.pos.key(), storeXY.pos.key()
+        ));
     }
 
+    /**
+     * Rebuild every path group and route every house from scratch.
+     */
     public void traverseAllPath() {
         pathMap.getTraverser().clearTraversalData();
         pathMap.clearAllPath();
 
-        ObjectMap.Keys<Position> allNodes = roadMap.getPositions();
+        IntArray allNodes = new IntArray(roadMap.roadCount());
+        roadMap.forEachRoad(allNodes::add);
 
-        // traverse existing house first
-        townSystem.getAllHouse().forEach(entry ->
-            entry.forEach(house -> {
-                    Gdx.app.log("dev", "traversing " + house + " to " + house.facing);
-                    pathMap.getTraverser().traverseNewPath(new Position(house.col, house.row), "= = = housing group = = =");
+        updatePath(allNodes);
+    }
 
-                    // Check for path finding after we got the path data
-                    Array<PathMap.SubPath> pathFind = DijkstraPathfinder.dijkstraShortestPath(
-                        house,
-                        house.destination,
-                        pathMap.getGroup(house));
-                    if(pathFind != null && pathFind.size > 0) {
-                        // TODO: think of a better way to get colorID
-                        Color colorID = townSystem.getStoreID(new Store(house.destination));
+    /**
+     * Apply a road edit incrementally: only the groups around the dirty nodes
+     * are traversed again, and only the houses inside those groups are re-routed.
+     * @param dirty {@link com.tin.game.utils.CellKey}s of nodes whose road connection changed
+     */
+    public void updatePath(IntArray dirty) {
+        ObjectSet<PathGroup> changed = new ObjectSet<>();
+        ObjectSet<House> routed = new ObjectSet<>();
+        changed.addAll(pathMap.updateGroups(dirty));
+
+        while(changed.size > 0) {
+            Array<PathGroup> rebuilt = new Array<>();
+
+            // houses to re-route by the store they deliver to
+            ObjectMap<Position, Array<House>> byStore = new ObjectMap<>();
+            for (Array<House> houses : townSystem.getAllHouse()) {
+                for (House house : houses) {
+                    if(routed.contains(house)) continue;
+
+                    PathGroup group = pathMap.getGroup(house);
+                    if(group == null || !changed.contains(group)) continue;
+
+                    // no edit since its last routing touched this route
+                    if(routeCache.get(house.key(), house.destination.key()) != null) {
+                        routed.add(house);
+                        continue;
+                    }
 
-                        pathSystem.pushPath(colorID, pathFind);
-                        pathMap.getTraverser().clearTraversalData();
+                    if(!byStore.containsKey(house.destination)) byStore.put(house.destination, new Array<>());
+                    byStore.get(house.destination).add(house);
+                }
+            }
 
-                        townSystem.pushCarDrawer(colorID, house.getCar(), pathSystem.getSpline(colorID));
-                    }
+            ObjectMap<House, Array<PathMap.SubPath>> routes = batchRouter == null ? null : routeBatch(byStore, changed);
 
+            for (ObjectMap.Entry<Position, Array<House>> store : byStore) {
+                // an earlier route of this round may have rebuilt the group
+                PathGroup group = pathMap.getGroup(store.key);
+                if(group == null || !changed.contains(group)) continue;
+
+                routed.addAll(routeStore(store.key, store.value, group, routes, rebuilt));
+            }
+
+            changed.clear();
+            changed.addAll(rebuilt);
+        }
+    }
+
+    /**
+     * Search the routes of every house of the round at once, over the roads before any of them is pushed.
+     */
+    private ObjectMap<House, Array<PathMap.SubPath>> routeBatch(ObjectMap<Position, Array<House>> byStore, ObjectSet<PathGroup> changed) {
+        RouteBatch<House> batch = new RouteBatch<>();
+        for (ObjectMap.Entry<Position, Array<House>> store : byStore) {
+            PathGroup group = pathMap.getGroup(store.key);
+            if(group == null || !changed.contains(group)) continue;
+
+            for (House house : store.value) {
+                if(pathMap.getGroup(house) == group) batch.add(house, house.key(), store.key.key(), group);
+            }
+        }
+
+        batchRouter.route(batch);
+        return batch.results();
+    }
+
+    /**
+     * Route the houses of a store in the group one at a time, each on the roads the routes
+     * before it left. Routes of a batch are pushed as they are while their group stands;
+     * once a pushed route rebuilt it, the rest are parent walks through the store's tree,
+     * which is repaired as a route cuts the roads, over the group the house is in now.
+     * @param routes routes searched in a batch before this round, null to search here
+     * @param rebuilt collects the groups rebuilt by pushing the routes
+     * @return the houses that were routed, or were cut off the store by an earlier route
+     */
+    private Array<House> routeStore(Position store, Array<House> houses, PathGroup group,
+                                    ObjectMap<House, Array<PathMap.SubPath>> routes, Array<PathGroup> rebuilt) {
+        Array<House> routed = new Array<>();
+        DynamicShortestPathTree tree = null;
+
+        IntArray cells = new IntArray();
+        for (int i = 0; i < houses.size; i++) {
+            House house = houses.get(i);
+            routed.add(house);
+
+            // pushing a route rebuilds the group, the house may no longer reach the store
+            PathGroup current = pathMap.getGroup(house);
+            if(current == null || current != pathMap.getGroup(store)) continue;
+
+            // the batch routes are SubPaths of the group they were searched in
+            Array<PathMap.SubPath> route;
+            if(routes != null && current == group && routes.containsKey(house)) route = routes.get(house);
+            else {
+                if(tree == null) tree = treeOf(store);
+
+                route = new Array<>();
+                if(!tree.pathFrom(house.key(), cells) || !current.getGraph().subPathsAlong(cells, route)) {
+                    route = pathfinder.findPath(house, store, current);
                 }
-            )
-        );
+            }
 
-        // then look for any disconnected nodes
-        allNodes.forEach((node) -> {
-            pathMap.getTraverser().traverseNewPath(node, "= = = disconnected group = = =");
-        });
+            pushRoute(house, route, rebuilt);
+        }
+        return routed;
+    }
 
-        pathMap.allGroups().forEach((group) -> {
-            Gdx.app.log("dev", "= = = traversal output = = =");
-            group.allPath.values().forEach((path) -> {
-                Gdx.app.log(path.debugColor.toString(), path.getStart() + " -> " + path + " <- " + path.getEnd());
-                // Gdx.app.log("dev", "drawing path: " + path.toString());
-            });
-        });
+    /**
+     * @return shortest-path tree rooted at the store, grown on first use and repaired on every road edit
+     */
+    private DynamicShortestPathTree treeOf(Position store) {
+        DynamicShortestPathTree tree = storeTrees.get(store.key());
+        if(tree == null) {
+            tree = new DynamicShortestPathTree(roadMap, store.key());
+            storeTrees.put(store.key(), tree);
+        }
+        return tree;
+    }
+
+    private static IntArray keysOf(Array<Position> cells) {
+        IntArray keys = new IntArray(cells.size);
+        for (Position cell : cells) keys.add(cell.key());
+        return keys;
+    }
+
+    private void pushRoute(House house, Array<PathMap.SubPath> route, Array<PathGroup> rebuilt) {
+        if(route == null || route.size == 0) return;
+
+        // TODO: think of a better way to get colorID
+        Color colorID = townSystem.getStoreID(new Store(house.destination));
+
+        pathSystem.pushPath(colorID, route);
+        townSystem.pushCar(colorID, pathSystem.getArcLengthTable(colorID));
+
+        Array<Position> cells = pathSystem.getCellMap(colorID);
+        routeCache.put(house.key(), house.destination.key(), PathMap.SubPath.lengthOf(route), cells);
 
-//        townSystem.getAllHouse().forEach(entry ->
-//            entry.forEach(house -> {
-//                Gdx.app.log("dev", "path finding " + pathMap.getGroup(house));
-//
-//
-//            })
-//        );
+        // a pushed path cuts its cells off the other roads
+        rebuilt.addAll(pathMap.updateGroups(keysOf(cells)));
     }
 
 }
@@ -1,16 +1,10 @@
 package com.tin.game.system;
 
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.tin.game.utils.Edge;
 import com.tin.game.utils.Position;
 
 public class House extends Position {
 
-    private Sprite car;
     public final Position destination;
     public final Position facing;
 
@@ -26,20 +20,6 @@ public class House extends Position {
         this.facing = new Position(edgePos.pos2.col, edgePos.pos2.row);
     }
 
-    public void initCarSprite(Color color) {
-        Pixmap carPixmap = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
-        carPixmap.setColor(color);
-        carPixmap.drawPixel(0, 0);
-        TextureRegion carTexture = new TextureRegion(new Texture(carPixmap), 50, 50, 16, 8);
-        carPixmap.dispose();
-
-        this.car =  new Sprite(carTexture);
-    }
-
-    public Sprite getCar() {
-        return car;
-    }
-
     //    @Override
 //    public boolean equals(Object obj) {
 //        if (this == obj) return true;
@@ -11,11 +11,13 @@ import com.tin.game.core.AbstractDrawer;
 import com.tin.game.core.IGameMap;
 import com.tin.game.core.MapCell;
 import com.tin.game.core.PathMap;
+import com.tin.game.utils.ArcLengthTable;
 import com.tin.game.utils.Position;
 
 public class PathSystem extends AbstractDrawer {
 
     private final ObjectMap<Color, BSpline<Vector2>> splineMap;
+    private final ObjectMap<Color, ArcLengthTable> tableMap;
     private final ObjectMap<Color, Array<Vector2>> pathMap;
     private final ObjectMap<Color, Array<Position>> cellMap;
 
@@ -29,6 +31,7 @@ public class PathSystem extends AbstractDrawer {
     public PathSystem(IGameMap drawMap, OnPushPath onPushPath) {
         super(drawMap);
         this.splineMap = new ObjectMap<>();
+        this.tableMap = new ObjectMap<>();
         this.pathMap = new ObjectMap<>();
         this.cellMap = new ObjectMap<>();
         this.onPushPath = onPushPath;
@@ -54,10 +57,10 @@ public class PathSystem extends AbstractDrawer {
     public void pushPath(Color colorID, Array<PathMap.SubPath> pathFind) {
         OrderedSet<Vector2> dataset = new OrderedSet<>();
         OrderedSet<Position> cellData = new OrderedSet<>();
-        Gdx.app.log("path", "got path finding");
+        if(Gdx.app != null) Gdx.app.log("path", "got path finding");
 
         pathFind.forEach((path) -> {
-            Gdx.app.log("path", path.getStart() + " -> " + path.getEnd() + " " + path.debugColor);
+            if(Gdx.app != null) Gdx.app.log("path", path.getStart() + " -> " + path.getEnd() + " " + path.debugColor);
 
             // Check and reverse if path is not flipped
             Array<Position> latest = cellData.orderedItems();
@@ -82,7 +85,9 @@ public class PathSystem extends AbstractDrawer {
         for (int i = 0; i < ordered.size; i++) items[i + 1] = ordered.get(i);
         items[dataset.size + 1] = ordered.get(ordered.size - 1);
 
-        this.splineMap.put(colorID, new BSpline<>(items, 3, false));
+        BSpline<Vector2> spline = new BSpline<>(items, 3, false);
+        this.splineMap.put(colorID, spline);
+        this.tableMap.put(colorID, new ArcLengthTable(spline));
         this.pathMap.put(colorID, ordered);
         this.cellMap.put(colorID, cellData.orderedItems());
     }
@@ -91,6 +96,13 @@ public class PathSystem extends AbstractDrawer {
         return this.splineMap.get(colorID);
     }
 
+    /**
+     * @return the route's spline resampled by distance, shared by every car driving it
+     */
+    public ArcLengthTable getArcLengthTable(Color colorID) {
+        return this.tableMap.get(colorID);
+    }
+
     public Array<Position> getCellMap(Color colorID) {
         return this.cellMap.get(colorID);
     }
@@ -101,5 +113,6 @@ public class PathSystem extends AbstractDrawer {
 
     public void removePath(Color colorID) {
         this.pathMap.remove(colorID);
+        this.tableMap.remove(colorID);
     }
 }
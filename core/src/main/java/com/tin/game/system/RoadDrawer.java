@@ -4,36 +4,34 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Vector2;
 import com.tin.game.core.*;
-import com.tin.game.utils.Position;
+import com.tin.game.utils.CellKey;
 
 public class RoadDrawer extends AbstractShapeDrawer {
 
     public static final float RADIUS = 10.0f;
     public static final float LINE_WIDTH = 4.0f;
 
+    private final IRoadMap.OnRoad drawRoadCell = this::drawRoadCell;
+
     public RoadDrawer(IGameMap drawMap, Color baseColor) {
         super(drawMap, baseColor);
         drawer.setDefaultLineWidth(LINE_WIDTH);
     }
 
-    public void drawEachRoadCell(RoadMap roadMap) {
-        roadMap.getPositions().forEach((node) -> {
-            Vector2 center = drawMap.getCellAt(node).getCenter();
-            drawer.setColor(Color.LIGHT_GRAY);
-            drawer.circle(center.x, center.y, RADIUS);
-            drawer.setColor(Color.GRAY);
-            drawer.filledCircle(center, RADIUS - 2);
-        });
+    public void drawEachRoadCell(IRoadMap roadMap) {
+        roadMap.forEachRoad(drawRoadCell);
     }
 
-    public void drawEachRoadConnection(PathMap pathMap) {
-        pathMap.getVisitedEdges().forEach((edge) -> {
-            Position fromPos = edge.pos1;
-            Position toPos = edge.pos2;
-
-            MapCell from = drawMap.getCellAt(fromPos);
-            MapCell to = drawMap.getCellAt(toPos);
+    private void drawRoadCell(int node) {
+        Vector2 center = drawMap.getCellAt(CellKey.col(node), CellKey.row(node)).getCenter();
+        drawer.setColor(Color.LIGHT_GRAY);
+        drawer.circle(center.x, center.y, RADIUS);
+        drawer.setColor(Color.GRAY);
+        drawer.filledCircle(center, RADIUS - 2);
+    }
 
+    public void drawEachRoadConnection(PathMap pathMap) {
+        pathMap.forEachEdge((from, to) -> {
             float[] vertices = makeAdjacencyVertices(from, to);
 
             if(vertices == null) return;
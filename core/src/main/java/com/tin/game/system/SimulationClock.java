@@ -0,0 +1,46 @@
+package com.tin.game.system;
+
+/**
+ * Fixed timestep clock of the simulation. Frame times are accumulated and
+ * spent in whole steps of {@link #STEP_TIME}, so the simulation advances the
+ * same way whatever the frame rate; what is left over is the fraction of a step
+ * the drawers interpolate by.
+ */
+public class SimulationClock {
+
+    // seconds of game time per simulation step
+    public static final float STEP_TIME = 1 / 60f;
+    public static final int STEPS_PER_SECOND = 60;
+
+    // steps caught up in a single frame at most, a longer stall is dropped instead of replayed
+    private static final int MAX_FRAME_STEPS = 8;
+
+    private float accumulator;
+
+    /**
+     * Add a frame's time to the clock.
+     * @return number of simulation steps due in this frame
+     */
+    public int advance(float delta) {
+        accumulator += delta;
+
+        int due = 0;
+        while(accumulator >= STEP_TIME && due < MAX_FRAME_STEPS) {
+            accumulator -= STEP_TIME;
+            due++;
+        }
+        if(due == MAX_FRAME_STEPS) accumulator = Math.min(accumulator, STEP_TIME);
+        return due;
+    }
+
+    /**
+     * @return fraction of a step between the last simulated state and the next one, from 0 to 1
+     */
+    public float getAlpha() {
+        return Math.min(accumulator / STEP_TIME, 1f);
+    }
+
+    public void reset() {
+        accumulator = 0;
+    }
+}
@@ -4,7 +4,6 @@ package com.tin.game.system;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectMap;
-import com.tin.game.Config;
 import com.tin.game.core.IGameMap;
 import com.tin.game.core.MapCell;
 
@@ -26,8 +25,8 @@ public class TownDrawer extends AbstractShapeDrawer {
                 drawer.filledRectangle(
                     cell.x + INSET_PIXEL,
                     cell.y - INSET_PIXEL,
-                    Config.TILE_SIZE - (INSET_PIXEL * 2),
-                    (Config.TILE_SIZE * -1) + (INSET_PIXEL * 2),
+                    cell.tileSize - (INSET_PIXEL * 2),
+                    (cell.tileSize * -1) + (INSET_PIXEL * 2),
                     colorID);
             });
         }));
@@ -42,8 +41,8 @@ public class TownDrawer extends AbstractShapeDrawer {
             drawer.filledRectangle(
                 cell.x + INSET_PIXEL,
                 cell.y - INSET_PIXEL,
-                (Config.TILE_SIZE * 2) - (INSET_PIXEL * 2),
-                (Config.TILE_SIZE * -2) + (INSET_PIXEL * 2),
+                (cell.tileSize * 2) - (INSET_PIXEL * 2),
+                (cell.tileSize * -2) + (INSET_PIXEL * 2),
                 colorID);
         }));
     }
@@ -2,43 +2,59 @@ package com.tin.game.system;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.g2d.Sprite;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.BSpline;
 import com.badlogic.gdx.math.RandomXS128;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
-import com.badlogic.gdx.utils.Timer;
 import com.tin.game.core.GameMap;
+import com.tin.game.core.GridPathfinder;
 import com.tin.game.core.MapCell;
+import com.tin.game.utils.ArcLengthTable;
 import com.tin.game.utils.Edge;
 import com.tin.game.utils.Position;
+import com.tin.game.utils.RandomStreams;
 
 import static com.tin.game.core.MapCell.CELL_TYPE.NONE;
 import static com.tin.game.core.MapCell.CELL_TYPE.ROAD;
 
 public class TownSystem {
 
-    private final RandomXS128 random;
+    // seeded streams of town growth, placement, store size and color
+    private final RandomXS128 growthRandom;
+    private final RandomXS128 spawnRandom;
+    private final RandomXS128 storeRandom;
+    private final RandomXS128 colorRandom;
+
     private static final int GROWTH_RATE = 50; // in 1/10th of a second
     private static final int START_DELAY = 1; // in seconds
+    private static final int TICK_STEPS = SimulationClock.STEPS_PER_SECOND / 10; // 1/10th of a second
+    private static final int HOUSE_FACING = MapCell.CELL_TYPE.maskOf(NONE, ROAD);
 
     private final GameMap map;
 
+    // tells whether roads could ever connect a new house to its store
+    private final GridPathfinder reachability;
+
     // TODO: maybe figure out better data structure for this
     private final ObjectMap<Color, Array<House>> houseMap;
-    private final ObjectMap<Color, CarDrawer> carMap;
     private final ObjectMap<Color, Store> storeMap;
 
-    private static Timer timer;
-    private static int tick = 0;
+    // delivery cars of every town, a town's route id -> its colorID and back
+    private final CarFleet fleet;
+    private final Array<Color> routeColor;
+    private final ObjectIntMap<Color> routeOf;
+
+    // stores filled by the cars of the current update, deleted once every car has moved
+    private final Array<Color> fullStores;
+
+    // steps since the last population tick, negative while the start delay runs
+    private int tickSteps;
+    private int tick = 0;
+    private boolean populating;
 
     private final OnPopulate onPopulate;
     private final OnStoreFull onStoreFull;
 
-    public final SpriteBatch carBatch;
-
     @FunctionalInterface
     public interface OnPopulate {
         void populateTown(House newHouse, Store newStore);
@@ -49,85 +65,109 @@ public class TownSystem {
         void deleteStore(Color colorID);
     }
 
-    public TownSystem(GameMap map, OnPopulate onPopulate, OnStoreFull onStoreFull) {
-        this.random = new RandomXS128();
+    public TownSystem(GameMap map, RandomStreams random, OnPopulate onPopulate, OnStoreFull onStoreFull) {
+        this.growthRandom = random.get(RandomStreams.STREAM.TOWN_GROWTH);
+        this.spawnRandom = random.get(RandomStreams.STREAM.TOWN_SPAWN);
+        this.storeRandom = random.get(RandomStreams.STREAM.STORE_SIZE);
+        this.colorRandom = random.get(RandomStreams.STREAM.COLOR_ID);
         this.houseMap = new ObjectMap<>();
         this.storeMap = new ObjectMap<>();
-        this.carMap = new ObjectMap<>();
-        this.carBatch = new SpriteBatch();
+        this.fleet = new CarFleet(this::deliver);
+        this.routeColor = new Array<>();
+        this.routeOf = new ObjectIntMap<>();
+        this.fullStores = new Array<>();
         this.onPopulate = onPopulate;
         this.onStoreFull = onStoreFull;
         this.map = map;
+        this.reachability = new GridPathfinder(map);
     }
 
     public void scheduleTownPopulation() {
-        timer = new Timer();
-        timer.scheduleTask(new Timer.Task() {
-
-            @Override
-            public void run() {
-                // Tick every 1 / 10th a seconds
-                tick++;
-
-                if(tick > GROWTH_RATE + random.nextInt(30)) { // in 5 seconds +- 3
-                    tick = 0;
-                    randomizeNewTown();
-                    Gdx.app.log("timer", "populating 1");
-                }
-            }
-        }, START_DELAY, 0.1f);
+        tick = 0;
+        tickSteps = -START_DELAY * SimulationClock.STEPS_PER_SECOND;
         stopPopulate();
     }
 
     public void startPopulate() {
-        timer.start();
+        populating = true;
     }
 
     public void stopPopulate() {
-        timer.stop();
+        populating = false;
+    }
+
+    /**
+     * Advance the towns by one {@link SimulationClock#STEP_TIME}: grow a new town
+     * every few seconds while populating, drive every car and delete the stores it fills.
+     */
+    public void step() {
+        if(populating && ++tickSteps >= TICK_STEPS) {
+            tickSteps = 0;
+            populateTick();
+        }
+
+        fleet.update(SimulationClock.STEP_TIME);
+
+        // deleting a store removes its car, so not while the cars are iterated
+        for (int i = 0; i < fullStores.size; i++) onStoreFull.deleteStore(fullStores.get(i));
+        fullStores.clear();
     }
 
-    public void pushCarDrawer(Color colorID, Sprite car, BSpline<Vector2> spline) {
-        if(!carMap.containsKey(colorID))
-            carMap.put(colorID, new CarDrawer(carBatch, car, spline, () -> {
-                Store store = storeMap.get(colorID);
-                store.deliver();
-                if(store.isFull()) {
-                    onStoreFull.deleteStore(colorID);
-                }
-            }));
+    private void populateTick() {
+        // Tick every 1 / 10th a seconds
+        tick++;
+
+        if(tick > GROWTH_RATE + growthRandom.nextInt(30)) { // in 5 seconds +- 3
+            tick = 0;
+            randomizeNewTown();
+            if(Gdx.app != null) Gdx.app.log("timer", "populating 1");
+        }
     }
 
-    public void animateAllCar(float delta) {
-        this.carMap.values().forEach((car) -> {
-            car.translateCarAlongSpline(delta);
-        });
+    public void pushCar(Color colorID, ArcLengthTable route) {
+        if(routeOf.containsKey(colorID)) return;
+
+        int id = fleet.addRoute(route);
+        if(id >= routeColor.size) routeColor.setSize(id + 1);
+        routeColor.set(id, colorID);
+        routeOf.put(colorID, id);
+        fleet.addCar(id, CarFleet.DEFAULT_SPEED);
     }
 
+    private void deliver(int route) {
+        Color colorID = routeColor.get(route);
+        Store store = storeMap.get(colorID);
+        store.deliver();
+        if(store.isFull()) {
+            fullStores.add(colorID);
+        }
+    }
 
     private void randomizeNewTown() {
-        Array<Position> empty = map.getEmptyCells();
-        Array<Position> emptyStore = map.getEmptyQuadCells();
+        Position house = map.randomEmptyCell(spawnRandom);
+        if(house == null) return;
 
-        Position house = empty.random();
+        // a house connects to an adjacent empty or road cell
+        int facing = map.getAdjacentMask(house.col, house.row, HOUSE_FACING);
+        if(facing == 0) return;
 
-        Position houseRoad = map.getAdjacentCell(house, NONE, ROAD).random();
+        MapCell.CELL_BITS direction = randomDirection(facing);
+        Position houseRoad = new Position(house.col + direction.col, house.row + direction.row);
 
         Edge edgePos = new Edge(house, houseRoad);
 
-        empty.removeValue(house, false);
-
-        Position store = emptyStore.random();
+        Position store = map.randomEmptyQuad(spawnRandom);
+        if(store == null || !canConnect(house, houseRoad, store)) return;
 
         House newHouse = new House(edgePos, store);
-        Store newStore = new Store(store.col, store.row, 3 + random.nextInt(10));
+        Store newStore = new Store(store.col, store.row, 3 + storeRandom.nextInt(10));
 
         onPopulate.populateTown(newHouse, newStore);
 
         Color colorID = new Color(
-            random.nextFloat(),
-            random.nextFloat(),
-            random.nextFloat(),
+            colorRandom.nextFloat(),
+            colorRandom.nextFloat(),
+            colorRandom.nextFloat(),
             1.0f);
 
         if(!houseMap.containsKey(colorID)) {
@@ -136,7 +176,30 @@ public class TownSystem {
 
         houseMap.get(colorID).add(newHouse);
         storeMap.put(colorID, newStore);
-        newHouse.initCarSprite(colorID);
+    }
+
+    /**
+     * @return true if a road over empty and road cells can run from the house's road to the store
+     */
+    private boolean canConnect(Position house, Position houseRoad, Position store) {
+        reachability.block(house.key());
+        boolean reachable = reachability.isReachable(houseRoad.key(), store.key());
+        reachability.clearBlocked();
+        return reachable;
+    }
+
+    private MapCell.CELL_BITS randomDirection(int mask) {
+        int skip = spawnRandom.nextInt(Integer.bitCount(mask));
+        for (int i = 0; i < skip; i++) mask &= mask - 1;
+
+        return MapCell.CELL_BITS.lowest(mask);
+    }
+
+    /**
+     * @return search over the cell types of the map, e.g. to suggest where a road could go
+     */
+    public GridPathfinder getGridPathfinder() {
+        return reachability;
     }
 
     public ObjectMap<Color, Store> getStoreMap() {
@@ -155,6 +218,17 @@ public class TownSystem {
         return houseMap.get(colorID);
     }
 
+    /**
+     * @return every delivery car, see {@link #getRouteColor} for the town of a car's route
+     */
+    public CarFleet getFleet() {
+        return fleet;
+    }
+
+    public Color getRouteColor(int route) {
+        return routeColor.get(route);
+    }
+
     public ObjectMap.Values<Store> getAllStore() {
         return storeMap.values();
     }
@@ -164,7 +238,11 @@ public class TownSystem {
     }
 
     public void removeCar(Color colorID) {
-        carMap.remove(colorID);
+        int route = routeOf.remove(colorID, -1);
+        if(route < 0) return;
+
+        fleet.removeRoute(route);
+        routeColor.set(route, null);
     }
 
     public void removeStore(Color colorID) {
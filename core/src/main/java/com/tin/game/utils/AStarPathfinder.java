@@ -0,0 +1,32 @@
+package com.tin.game.utils;
+
+import static com.tin.game.core.PathMap.DIAGONAL_COST;
+import static com.tin.game.core.PathMap.STRAIGHT_COST;
+
+/**
+ * A* search guided by the octile distance to the destination.
+ * <p>
+ * Every SubPath step costs {@link com.tin.game.core.PathMap#STRAIGHT_COST} or
+ * {@link com.tin.game.core.PathMap#DIAGONAL_COST}, so the octile distance between
+ * two cells never overestimates the route between them and the first route
+ * found is still the shortest.
+ */
+public class AStarPathfinder extends DijkstraPathfinder {
+
+    @Override
+    protected int estimate(int from, int to) {
+        return octile(from, to);
+    }
+
+    /**
+     * @return octile distance between two {@link CellKey}s in SubPath cost units
+     */
+    public static int octile(int from, int to) {
+        int distanceX = Math.abs(CellKey.col(to) - CellKey.col(from));
+        int distanceY = Math.abs(CellKey.row(to) - CellKey.row(from));
+
+        int diagonal = Math.min(distanceX, distanceY);
+        int straight = Math.max(distanceX, distanceY) - diagonal;
+        return DIAGONAL_COST * diagonal + STRAIGHT_COST * straight;
+    }
+}
@@ -0,0 +1,123 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.math.BSpline;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * A route spline resampled by arc length: points and headings at even steps of
+ * at most {@link #SPACING} world units from one end of the curve to the other,
+ * so whatever drives the route looks up where it is by the distance it has
+ * travelled in constant time and at a truly constant speed, without evaluating
+ * the spline.
+ * <p>
+ * Built once when a route is pushed and shared, read-only, by every car on it.
+ */
+public class ArcLengthTable {
+
+    // most world units between two samples
+    public static final float SPACING = 2f;
+
+    // parameter steps per spline span when measuring the curve
+    private static final int STEPS_PER_SPAN = 16;
+
+    private final float length;
+
+    // samples per world unit, the curve length split evenly between the samples
+    private final float samplesPerUnit;
+
+    // x, y and heading in degrees of every sample, interleaved so a lookup reads one place,
+    // the headings are unwrapped to turn the short way between two samples
+    private final float[] samples;
+    private final int size;
+
+    public ArcLengthTable(BSpline<Vector2> spline) {
+        Vector2 point = new Vector2();
+        Vector2 last = new Vector2();
+
+        // cumulative length at every parameter step
+        int steps = Math.max(1, spline.spanCount * STEPS_PER_SPAN);
+        float[] measured = new float[steps + 1];
+        spline.valueAt(last, 0);
+        for (int i = 1; i <= steps; i++) {
+            spline.valueAt(point, i / (float) steps);
+            measured[i] = measured[i - 1] + point.dst(last);
+            last.set(point);
+        }
+        this.length = measured[steps];
+
+        this.size = (int) Math.ceil(length / SPACING) + 1;
+        this.samples = new float[size * 3];
+        this.samplesPerUnit = size > 1 ? (size - 1) / length : 0;
+
+        Vector2 tangent = new Vector2();
+        float heading = 0;
+        int firstMove = -1;
+        int step = 0;
+        for (int i = 0; i < size; i++) {
+            float distance = i == size - 1 ? length : i * length / (size - 1);
+            while(step < steps - 1 && measured[step + 1] < distance) step++;
+
+            // parameter of the distance, linear within the parameter step
+            float span = measured[step + 1] - measured[step];
+            float fraction = span > 0 ? (distance - measured[step]) / span : 0;
+            float t = (step + MathUtils.clamp(fraction, 0, 1)) / steps;
+
+            spline.valueAt(point, t);
+            samples[i * 3] = point.x;
+            samples[i * 3 + 1] = point.y;
+
+            // the ends of a route may stand still, keep the heading of the last move
+            spline.derivativeAt(tangent, t);
+            if(!tangent.isZero(MathUtils.FLOAT_ROUNDING_ERROR)) {
+                float turn = tangent.angleDeg() - heading;
+                heading += turn - 360 * MathUtils.round(turn / 360);
+                if(firstMove < 0) firstMove = i;
+            }
+            samples[i * 3 + 2] = heading;
+        }
+
+        // and a route starting still takes the heading of its first move
+        for (int i = 0; i < firstMove; i++) samples[i * 3 + 2] = samples[firstMove * 3 + 2];
+    }
+
+    /**
+     * @param distance from the start of the curve, clamped to its length
+     * @return out set to the point at that distance
+     */
+    public Vector2 positionAt(float distance, Vector2 out) {
+        float at = MathUtils.clamp(distance, 0, length) * samplesPerUnit;
+        int i = Math.min((int) at, size - 1);
+        int next = Math.min(i + 1, size - 1) * 3;
+        float fraction = at - i;
+        i *= 3;
+
+        return out.set(
+            samples[i] + (samples[next] - samples[i]) * fraction,
+            samples[i + 1] + (samples[next + 1] - samples[i + 1]) * fraction);
+    }
+
+    /**
+     * @return heading in degrees at a distance from the start of the curve, not wrapped to [0, 360)
+     */
+    public float angleAt(float distance) {
+        float at = MathUtils.clamp(distance, 0, length) * samplesPerUnit;
+        int i = Math.min((int) at, size - 1);
+        int next = Math.min(i + 1, size - 1) * 3 + 2;
+        float fraction = at - i;
+        i = i * 3 + 2;
+
+        return samples[i] + (samples[next] - samples[i]) * fraction;
+    }
+
+    public float getLength() {
+        return length;
+    }
+
+    /**
+     * @return number of samples along the curve
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Dijkstra search grown from both ends at once, the smaller frontier is expanded
+ * first. It stops once the two frontiers together can't beat the best meeting
+ * node, which settles roughly two small balls instead of one large one.
+ */
+public class BidirectionalDijkstraPathfinder implements IPathfinder {
+
+    private int expanded;
+
+    // one workspace per direction, the backward search starts at the destination
+    private final SearchWorkspace forward;
+    private final SearchWorkspace backward;
+
+    // best route found so far through a node reached by both searches
+    private int best;
+    private int meeting;
+
+    public BidirectionalDijkstraPathfinder() {
+        this.forward = new SearchWorkspace();
+        this.backward = new SearchWorkspace();
+    }
+
+    @Override
+    public Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        Array<SubPath> path = new Array<>();
+        if (!findPath(nodeA.key(), nodeB.key(), pathGroup, path)) return null;
+        return path;
+    }
+
+    /**
+     * Allocation free search, the route is written into out.
+     * @return false if either node is not in the group, out is left empty if there is no route
+     */
+    public boolean findPath(int nodeA, int nodeB, PathGroup pathGroup, Array<SubPath> out) {
+        expanded = 0;
+        out.clear();
+        if (pathGroup == null || !pathGroup.containCell(nodeA) || !pathGroup.containCell(nodeB)) {
+            return false; // No path exists if they are in different PathGroups
+        }
+
+        SubPathGraph graph = pathGroup.getGraph();
+        int source = graph.idOf(nodeA);
+        int target = graph.idOf(nodeB);
+        if (source < 0 || target < 0 || source == target) return true;
+
+        forward.reset(graph.nodeCount);
+        backward.reset(graph.nodeCount);
+        forward.relax(source, 0, -1, 0);
+        backward.relax(target, 0, -1, 0);
+        best = Integer.MAX_VALUE;
+        meeting = -1;
+
+        while (forward.hasQueued() && backward.hasQueued()) {
+            // no unsettled node can be on a shorter route anymore
+            if ((long) forward.heap.peekPriority() + backward.heap.peekPriority() >= best) break;
+
+            if (forward.heap.size <= backward.heap.size) expand(graph, forward, backward);
+            else expand(graph, backward, forward);
+        }
+
+        if (meeting < 0) return true; // No path found
+
+        // nodeA -> meeting, then meeting -> nodeB
+        DijkstraPathfinder.reconstructPath(graph, forward, meeting, out);
+        out.reverse();
+        DijkstraPathfinder.reconstructPath(graph, backward, meeting, out);
+        return true;
+    }
+
+    private void expand(SubPathGraph graph, SearchWorkspace search, SearchWorkspace other) {
+        int current = search.settleNext();
+        expanded++;
+
+        int distance = search.distanceOf(current);
+        for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+            int next = graph.targetOf(edge);
+            if (search.isSettled(next)) continue;
+
+            int newCost = distance + graph.costOf(edge);
+            if (newCost < search.distanceOf(next)) search.relax(next, newCost, edge, newCost);
+
+            // the other direction already reached this node
+            int otherCost = other.distanceOf(next);
+            if (otherCost != SearchWorkspace.UNREACHED && search.distanceOf(next) + otherCost < best) {
+                best = search.distanceOf(next) + otherCost;
+                meeting = next;
+            }
+        }
+    }
+
+    @Override
+    public int getExpandedCount() {
+        return expanded;
+    }
+}
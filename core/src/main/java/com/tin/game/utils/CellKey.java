@@ -0,0 +1,36 @@
+package com.tin.game.utils;
+
+/**
+ * Packs a (col, row) cell position into a single int, so cells can be used
+ * as primitive {@link com.badlogic.gdx.utils.IntMap}/{@link com.badlogic.gdx.utils.IntSet}
+ * keys without allocating a {@link Position} for every lookup.
+ * Both col and row have to be within 0 - 65535.
+ */
+public final class CellKey {
+
+    private CellKey() {}
+
+    public static int of(int col, int row) {
+        return (row << 16) | (col & 0xFFFF);
+    }
+
+    public static int of(Position position) {
+        return of(position.col, position.row);
+    }
+
+    public static int col(int key) {
+        return key & 0xFFFF;
+    }
+
+    public static int row(int key) {
+        return key >>> 16;
+    }
+
+    public static Position toPosition(int key) {
+        return new Position(col(key), row(key));
+    }
+
+    public static String toString(int key) {
+        return "(" + col(key) + ", " + row(key) + ")";
+    }
+}
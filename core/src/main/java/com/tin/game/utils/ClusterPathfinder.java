@@ -0,0 +1,69 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.ClusterMap;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Routes through the entrances of a {@link ClusterMap} and maps the refined
+ * cells back onto the SubPaths of the group, see {@link SubPathGraph#subPathsAlong}.
+ */
+public class ClusterPathfinder implements IPathfinder {
+
+    private final ClusterMap clusterMap;
+
+    // used when the cluster map is out of date with the group
+    private final AStarPathfinder fallback;
+
+    private final IntArray cells;
+    private int expanded;
+
+    public ClusterPathfinder(ClusterMap clusterMap) {
+        this.clusterMap = clusterMap;
+        this.fallback = new AStarPathfinder();
+        this.cells = new IntArray();
+    }
+
+    @Override
+    public Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        Array<SubPath> path = new Array<>();
+        if (!findPath(nodeA.key(), nodeB.key(), pathGroup, path)) return null;
+        return path;
+    }
+
+    /**
+     * @param nodeA {@link CellKey} of the start
+     * @param nodeB {@link CellKey} of the destination
+     * @return false if either node is not in the group, out is left empty if there is no route
+     */
+    public boolean findPath(int nodeA, int nodeB, PathGroup pathGroup, Array<SubPath> out) {
+        out.clear();
+        expanded = 0;
+        if (pathGroup == null || !pathGroup.containCell(nodeA) || !pathGroup.containCell(nodeB)) {
+            return false;
+        }
+
+        SubPathGraph graph = pathGroup.getGraph();
+        if (graph.idOf(nodeA) < 0 || graph.idOf(nodeB) < 0 || nodeA == nodeB) return true;
+
+        clusterMap.findPath(nodeA, nodeB, cells);
+        expanded = clusterMap.getExpandedCount();
+
+        // both ends are in one group, so a missing route means roads were edited behind the cluster map's back
+        if (cells.size == 0 || !graph.subPathsAlong(cells, out)) {
+            boolean found = fallback.findPath(nodeA, nodeB, pathGroup, out);
+            expanded += fallback.getExpandedCount();
+            return found;
+        }
+        return true;
+    }
+
+    @Override
+    public int getExpandedCount() {
+        return expanded;
+    }
+}
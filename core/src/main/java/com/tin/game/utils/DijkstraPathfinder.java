@@ -3,8 +3,8 @@ package com.tin.game.utils;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.ObjectIntMap;
-import com.badlogic.gdx.utils.ObjectMap;
 import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
 
 import java.util.Comparator;
 import java.util.PriorityQueue;
@@ -12,10 +12,22 @@ import java.util.PriorityQueue;
 import static com.tin.game.core.PathMap.SubPath;
 import static com.badlogic.gdx.utils.IntSet.IntSetIterator;
 
-public class DijkstraPathfinder {
+/**
+ * Uninformed Dijkstra search, every node is settled once in order of its distance.
+ * Subclasses can guide the search with {@link #estimate}.
+ * <p>
+ * Searches run over the {@link SubPathGraph} of a group in a reused
+ * {@link SearchWorkspace}, so repeated queries do not allocate.
+ */
+public class DijkstraPathfinder implements IPathfinder {
 
-    public DijkstraPathfinder() {
+    // nodes settled by the last search
+    protected int expanded;
+
+    protected final SearchWorkspace workspace;
 
+    public DijkstraPathfinder() {
+        this.workspace = new SearchWorkspace();
     }
 
     private interface ToIntFunction<T> extends java.util.function.ToIntFunction<T> {
@@ -28,48 +40,98 @@ public class DijkstraPathfinder {
     }
 
     public static Array<SubPath> dijkstraShortestPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        return new DijkstraPathfinder().findPath(nodeA, nodeB, pathGroup);
+    }
+
+    @Override
+    public Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        Array<SubPath> path = new Array<>();
+        if (!findPath(nodeA.key(), nodeB.key(), pathGroup, path)) return null;
+        return path;
+    }
+
+    /**
+     * Allocation free search, the route is written into out.
+     * @param nodeA {@link CellKey} of the start
+     * @param nodeB {@link CellKey} of the destination
+     * @return false if either node is not in the group, out is left empty if there is no route
+     */
+    public boolean findPath(int nodeA, int nodeB, PathGroup pathGroup, Array<SubPath> out) {
+        expanded = 0;
+        out.clear();
         if (pathGroup == null || !pathGroup.containCell(nodeA) || !pathGroup.containCell(nodeB)) {
-            return null; // No path exists if they are in different PathGroups
+            return false; // No path exists if they are in different PathGroups
         }
 
-        PriorityQueue<Node<SubPath>> pq = new PriorityQueue<>();
+        findPath(nodeA, nodeB, pathGroup.getGraph(), out);
+        return true;
+    }
 
-        // distance from nodeA to Position
-        ObjectIntMap<Position> distances = new ObjectIntMap<>();
+    /**
+     * Search a graph snapshot directly, e.g. from a worker thread while the group is not edited.
+     * @param nodeA {@link CellKey} of the start
+     * @param nodeB {@link CellKey} of the destination
+     * @return false if there is no route, out is left empty then
+     */
+    public boolean findPath(int nodeA, int nodeB, SubPathGraph graph, Array<SubPath> out) {
+        expanded = 0;
+        out.clear();
 
-        // Array to store the path in order
-        ObjectMap<Position, SubPath> previousPath = new ObjectMap<>();
+        int source = graph.idOf(nodeA);
+        int target = graph.idOf(nodeB);
+        if (source < 0 || target < 0) return false; // not a SubPath end
 
-        pq.add(new Node<>(nodeA, 0, null));
-        distances.put(nodeA, 0);
+        workspace.reset(graph.nodeCount);
+        workspace.relax(source, 0, -1, estimate(nodeA, nodeB));
 
-        while (!pq.isEmpty()) {
-            Node<SubPath> current = pq.poll();
-            Position currentPos = current.position;
+        while (workspace.hasQueued()) {
+            int current = workspace.settleNext();
+            expanded++;
 
             // If we reached the destination, reconstruct the path
-            if (currentPos.equals(nodeB)) {
-                return reconstructPath(nodeB, previousPath);
+            if (current == target) {
+                reconstructPath(graph, workspace, target, out);
+                out.reverse();
+                return true;
             }
 
-            // from current path (nodeA)
-            IntSetIterator pathInNode = pathGroup.allCell.get(currentPos).iterator();
-
-            while (pathInNode.hasNext) {
-                int pathID = pathInNode.next();
-
-                SubPath subPath = pathGroup.allPath.get(pathID);
-                Position nextPos = subPath.getOppositeEnd(currentPos); // Get the other end of the path
-                int newCost = distances.get(currentPos, 0) + subPath.getPathLength();
+            int distance = workspace.distanceOf(current);
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                int next = graph.targetOf(edge); // Get the other end of the path
+                if (workspace.isSettled(next)) continue;
 
-                if (!distances.containsKey(nextPos) || newCost < distances.get(nextPos, 0)) {
-                    distances.put(nextPos, newCost);
-                    previousPath.put(nextPos, subPath);
-                    pq.add(new Node<>(nextPos, newCost, subPath));
+                int newCost = distance + graph.costOf(edge);
+                if (newCost < workspace.distanceOf(next)) {
+                    workspace.relax(next, newCost, edge, newCost + estimate(graph.keyOf(next), nodeB));
                 }
             }
         }
-        return new Array<>(); // No path found
+        return false; // No path found
+    }
+
+    /**
+     * Lower bound of the route length between two nodes, 0 keeps the search uninformed.
+     * Has to be consistent, i.e. never shrink by more than a SubPath's length along it.
+     * @param from {@link CellKey} of a node
+     * @param to {@link CellKey} of the destination
+     */
+    protected int estimate(int from, int to) {
+        return 0;
+    }
+
+    @Override
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * Append the SubPaths from node back to the source of a search.
+     */
+    static void reconstructPath(SubPathGraph graph, SearchWorkspace workspace, int node, Array<SubPath> out) {
+        for (int edge = workspace.parentOf(node); edge >= 0; edge = workspace.parentOf(node)) {
+            out.add(graph.pathOf(edge));
+            node = graph.sourceOf(edge); // Move backward in the path
+        }
     }
 
     /**@deprecated  */
@@ -105,7 +167,7 @@ public class DijkstraPathfinder {
             Gdx.app.log("path", "indexing path: " + current);
 
             // from current path (nodeA)
-            IntSetIterator pathInNode = pathGroup.allCell.get(current).iterator();
+            IntSetIterator pathInNode = pathGroup.allCell.get(current.key()).iterator();
 
 
             while (pathInNode.hasNext) {
@@ -164,18 +226,4 @@ public class DijkstraPathfinder {
 
         return path;
     }
-
-    private static Array<SubPath> reconstructPath(Position nodeB, ObjectMap<Position, SubPath> previousPath) {
-        Array<SubPath> path = new Array<>();
-        Position current = nodeB;
-
-        while (previousPath.containsKey(current)) {
-            SubPath subPath = previousPath.get(current);
-            path.add(subPath);
-            current = subPath.getOppositeEnd(current); // Move backward in the path
-        }
-
-        path.reverse();
-        return path;
-    }
 }
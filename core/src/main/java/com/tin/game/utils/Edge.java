@@ -29,9 +29,16 @@ public class Edge {
             || (pos1.equals(other.pos2) && pos2.equals(other.pos1));
     }
 
+    /**
+     * @return this edge packed as an {@link EdgeKey}, the same for both directions
+     */
+    public long key() {
+        return EdgeKey.of(pos1, pos2);
+    }
+
     @Override
     public int hashCode() {
-        return pos1.hashCode() + pos2.hashCode();
+        return EdgeKey.hash(key());
     }
 
     @Override
@@ -0,0 +1,48 @@
+package com.tin.game.utils;
+
+/**
+ * Packs an undirected edge of two {@link CellKey}s into a single long.
+ * The smaller key always goes into the high half, so (a, b) and (b, a)
+ * give the same key and distinct edges never share one.
+ */
+public final class EdgeKey {
+
+    private EdgeKey() {}
+
+    public static long of(int from, int to) {
+        long a = from & 0xFFFFFFFFL;
+        long b = to & 0xFFFFFFFFL;
+        return a < b ? (a << 32) | b : (b << 32) | a;
+    }
+
+    public static long of(Position from, Position to) {
+        return of(from.key(), to.key());
+    }
+
+    /**
+     * @return the smaller {@link CellKey} of this edge
+     */
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * @return the larger {@link CellKey} of this edge
+     */
+    public static int second(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Spread all 64 bits of the key over an int, neighbouring edges only differ
+     * in a few low bits of each half so simply folding the halves collides.
+     */
+    public static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public static String toString(long key) {
+        return CellKey.toString(first(key)) + " -> " + CellKey.toString(second(key));
+    }
+}
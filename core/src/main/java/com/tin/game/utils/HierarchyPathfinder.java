@@ -0,0 +1,164 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.tin.game.core.ContractionHierarchy;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Answers queries from the {@link ContractionHierarchy} of a group's graph.
+ * <p>
+ * A hierarchy belongs to one {@link SubPathGraph}, and a group drops its graph
+ * whenever a road edit changes it, so an edited group is never answered from a
+ * stale index. Until the new hierarchy is ready the query falls back to A*.
+ * With an {@link AsyncExecutor} the hierarchy is contracted in the background and
+ * handed to its graph by the next query once done, without one it is contracted on
+ * the first query that needs it. A contraction that failed in the background is
+ * rethrown by that query.
+ */
+public class HierarchyPathfinder implements IPathfinder, Disposable {
+
+    // smaller groups are cheaper to search than to contract
+    public static final int MIN_NODES = 64;
+
+    private final AStarPathfinder fallback;
+    private final ContractionHierarchy.Query query;
+
+    // null contracts on the calling thread
+    private final AsyncExecutor executor;
+
+    // graphs being contracted in the background
+    private final ObjectMap<SubPathGraph, AsyncResult<ContractionHierarchy>> building;
+
+    private int expanded;
+    private int hierarchyQueries;
+    private int fallbackQueries;
+
+    public HierarchyPathfinder() {
+        this(null);
+    }
+
+    /**
+     * @param executor runs the contraction, disposed with this pathfinder
+     */
+    public HierarchyPathfinder(AsyncExecutor executor) {
+        this.executor = executor;
+        this.fallback = new AStarPathfinder();
+        this.query = new ContractionHierarchy.Query();
+        this.building = new ObjectMap<>();
+    }
+
+    @Override
+    public Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        Array<SubPath> path = new Array<>();
+        if (!findPath(nodeA.key(), nodeB.key(), pathGroup, path)) return null;
+        return path;
+    }
+
+    /**
+     * Allocation free search once the hierarchy is built, the route is written into out.
+     * @param nodeA {@link CellKey} of the start
+     * @param nodeB {@link CellKey} of the destination
+     * @return false if either node is not in the group, out is left empty if there is no route
+     */
+    public boolean findPath(int nodeA, int nodeB, PathGroup pathGroup, Array<SubPath> out) {
+        if (pathGroup == null || !pathGroup.containCell(nodeA) || !pathGroup.containCell(nodeB)) {
+            out.clear();
+            expanded = 0;
+            return false;
+        }
+
+        ContractionHierarchy hierarchy = hierarchyOf(pathGroup.getGraph());
+        if (hierarchy == null) {
+            fallbackQueries++;
+            boolean found = fallback.findPath(nodeA, nodeB, pathGroup, out);
+            expanded = fallback.getExpandedCount();
+            return found;
+        }
+
+        hierarchyQueries++;
+        hierarchy.findPath(nodeA, nodeB, query, out);
+        expanded = query.expanded;
+        return true;
+    }
+
+    /**
+     * @return the hierarchy of graph, null while it is still being contracted
+     */
+    public ContractionHierarchy hierarchyOf(SubPathGraph graph) {
+        collect();
+
+        ContractionHierarchy hierarchy = graph.getHierarchy();
+        if (hierarchy != null || graph.nodeCount < MIN_NODES) return hierarchy;
+
+        if (executor == null) {
+            hierarchy = new ContractionHierarchy(graph);
+            graph.setHierarchy(hierarchy);
+            return hierarchy;
+        }
+
+        if (!building.containsKey(graph)) {
+            building.put(graph, executor.submit(() -> new ContractionHierarchy(graph)));
+        }
+        return null;
+    }
+
+    /**
+     * Hand finished background builds to their graphs, including graphs that were dropped meanwhile.
+     * @throws GdxRuntimeException if a contraction failed
+     */
+    private void collect() {
+        if (building.size == 0) return;
+
+        ObjectMap.Entries<SubPathGraph, AsyncResult<ContractionHierarchy>> entries = building.entries();
+        while (entries.hasNext) {
+            ObjectMap.Entry<SubPathGraph, AsyncResult<ContractionHierarchy>> entry = entries.next();
+            if (!entry.value.isDone()) continue;
+
+            SubPathGraph graph = entry.key;
+            AsyncResult<ContractionHierarchy> result = entry.value;
+            entries.remove();
+
+            try {
+                graph.setHierarchy(result.get());
+            }
+            catch (GdxRuntimeException e) {
+                throw new GdxRuntimeException("contracting the hierarchy of " + graph.nodeCount + " nodes failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return true while a hierarchy is being contracted in the background
+     */
+    public boolean isBuilding() {
+        collect();
+        return building.size > 0;
+    }
+
+    @Override
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    public int getHierarchyQueries() {
+        return hierarchyQueries;
+    }
+
+    public int getFallbackQueries() {
+        return fallbackQueries;
+    }
+
+    @Override
+    public void dispose() {
+        if (executor != null) executor.dispose();
+        building.clear();
+    }
+}
@@ -0,0 +1,12 @@
+package com.tin.game.utils;
+
+/**
+ * Answers every query of a {@link RouteBatch}, serially or spread over threads.
+ */
+public interface IBatchRouter {
+
+    /**
+     * Answer every query of the batch, returns once all of them are answered.
+     */
+    void route(RouteBatch<?> batch);
+}
@@ -0,0 +1,24 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.core.PathGroup;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Shortest route search over the {@link SubPath} graph of a {@link PathGroup},
+ * every SubPath is an undirected edge between its two end cells.
+ */
+public interface IPathfinder {
+
+    /**
+     * @return the SubPaths from nodeA to nodeB in travel order,
+     * null if either node is not in the group, empty if there is no route
+     */
+    Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup);
+
+    /**
+     * @return number of nodes settled by the last search
+     */
+    int getExpandedCount();
+}
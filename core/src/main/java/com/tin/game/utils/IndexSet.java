@@ -0,0 +1,86 @@
+package com.tin.game.utils;
+
+import java.util.Random;
+
+/**
+ * Set of indices in [0, capacity), e.g. cell indices of a map.
+ * <p>
+ * The members are kept in a dense array with every index remembering its
+ * place in it, so adding, removing, looking up and picking a uniformly
+ * random member are all constant time and do not allocate.
+ */
+public class IndexSet {
+
+    public int size;
+
+    // dense members, only the first size entries are valid
+    private final int[] items;
+
+    // index -> position in items + 1, 0 when the index is not a member
+    private final int[] slot;
+
+    public IndexSet(int capacity) {
+        this.items = new int[capacity];
+        this.slot = new int[capacity];
+    }
+
+    /**
+     * @return a set holding every index in [0, capacity)
+     */
+    public static IndexSet full(int capacity) {
+        IndexSet set = new IndexSet(capacity);
+        for (int i = 0; i < capacity; i++) {
+            set.items[i] = i;
+            set.slot[i] = i + 1;
+        }
+        set.size = capacity;
+        return set;
+    }
+
+    public boolean add(int index) {
+        if(slot[index] != 0) return false;
+
+        items[size] = index;
+        slot[index] = ++size;
+        return true;
+    }
+
+    public boolean remove(int index) {
+        int position = slot[index] - 1;
+        if(position < 0) return false;
+        slot[index] = 0;
+
+        // move the last member into the hole
+        int last = items[--size];
+        if(position < size) {
+            items[position] = last;
+            slot[last] = position + 1;
+        }
+        return true;
+    }
+
+    public boolean contains(int index) {
+        return slot[index] != 0;
+    }
+
+    public int get(int position) {
+        if(position >= size) throw new IndexOutOfBoundsException("position can't be >= size: " + position + " >= " + size);
+        return items[position];
+    }
+
+    /**
+     * @return a uniformly random member, -1 if the set is empty
+     */
+    public int random(Random random) {
+        if(size == 0) return -1;
+        return items[random.nextInt(size)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return slot.length;
+    }
+}
@@ -0,0 +1,149 @@
+package com.tin.game.utils;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of ids in [0, capacity) ordered by int priorities.
+ * <p>
+ * Every id is in the heap at most once and remembers its place in it,
+ * so the priority of a queued id can be lowered in place instead of
+ * queueing it again. Nothing is allocated unless the capacity grows.
+ */
+public class IndexedIntHeap {
+
+    public int size;
+
+    // heap of ids
+    private int[] heap;
+
+    // id -> place in heap, -1 when not queued
+    private int[] place;
+
+    // id -> priority, valid while queued
+    private int[] priority;
+
+    public IndexedIntHeap() {
+        this(16);
+    }
+
+    public IndexedIntHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.place = new int[capacity];
+        this.priority = new int[capacity];
+        Arrays.fill(place, -1);
+    }
+
+    /**
+     * Make room for ids up to capacity - 1.
+     */
+    public void ensureCapacity(int capacity) {
+        if(capacity <= place.length) return;
+
+        int oldCapacity = place.length;
+        heap = Arrays.copyOf(heap, capacity);
+        place = Arrays.copyOf(place, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        Arrays.fill(place, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Queue an id, or move it to a new priority if it is already queued.
+     */
+    public void update(int id, int newPriority) {
+        int at = place[id];
+        if(at < 0) {
+            at = size++;
+            heap[at] = id;
+            place[id] = at;
+            priority[id] = newPriority;
+            siftUp(at);
+            return;
+        }
+
+        int oldPriority = priority[id];
+        priority[id] = newPriority;
+        if(newPriority < oldPriority) siftUp(at);
+        else siftDown(at);
+    }
+
+    public boolean contains(int id) {
+        return place[id] >= 0;
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public int peekPriority() {
+        return priority[heap[0]];
+    }
+
+    public int priorityOf(int id) {
+        return priority[id];
+    }
+
+    /**
+     * @return the id with the lowest priority
+     */
+    public int pop() {
+        int top = heap[0];
+        place[top] = -1;
+
+        int last = heap[--size];
+        if(size > 0) {
+            heap[0] = last;
+            place[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) place[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int at) {
+        int id = heap[at];
+        int key = priority[id];
+
+        while(at > 0) {
+            int parent = (at - 1) >>> 1;
+            int parentID = heap[parent];
+            if(priority[parentID] <= key) break;
+
+            heap[at] = parentID;
+            place[parentID] = at;
+            at = parent;
+        }
+
+        heap[at] = id;
+        place[id] = at;
+    }
+
+    private void siftDown(int at) {
+        int id = heap[at];
+        int key = priority[id];
+        int half = size >>> 1;
+
+        while(at < half) {
+            int child = 2 * at + 1;
+            int right = child + 1;
+            if(right < size && priority[heap[right]] < priority[heap[child]]) child = right;
+
+            int childID = heap[child];
+            if(key <= priority[childID]) break;
+
+            heap[at] = childID;
+            place[childID] = at;
+            at = child;
+        }
+
+        heap[at] = id;
+        place[id] = at;
+    }
+}
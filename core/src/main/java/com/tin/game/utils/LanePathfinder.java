@@ -0,0 +1,51 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.core.LaneGraph;
+import com.tin.game.core.PathGroup;
+
+import static com.tin.game.core.MapCell.LANE;
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Routes over the {@link LaneGraph} of a group, so a route pays for its turns
+ * at intersections and never turns around in the middle of the roads.
+ * The lane driven along every SubPath of the last route is kept.
+ */
+public class LanePathfinder implements IPathfinder {
+
+    private final LaneGraph.Query query;
+
+    // lane of every SubPath of the last route
+    private final Array<LANE> lanes;
+
+    public LanePathfinder() {
+        this.query = new LaneGraph.Query();
+        this.lanes = new Array<>();
+    }
+
+    @Override
+    public Array<SubPath> findPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        lanes.clear();
+        query.expanded = 0;
+        if (pathGroup == null || !pathGroup.containCell(nodeA.key()) || !pathGroup.containCell(nodeB.key())) {
+            return null;
+        }
+
+        Array<SubPath> path = new Array<>();
+        pathGroup.getGraph().getLanes().findPath(nodeA.key(), nodeB.key(), query, path, lanes);
+        return path;
+    }
+
+    /**
+     * @return lanes of the SubPaths of the last route, in travel order
+     */
+    public Array<LANE> getLanes() {
+        return lanes;
+    }
+
+    @Override
+    public int getExpandedCount() {
+        return query.expanded;
+    }
+}
@@ -0,0 +1,175 @@
+package com.tin.game.utils;
+
+import java.util.Arrays;
+
+/**
+ * Unordered set of primitive longs, in the spirit of libGDX's
+ * {@link com.badlogic.gdx.utils.IntSet} which has no long counterpart.
+ * <p>
+ * Open addressing with linear probing and backward shift deletion,
+ * 0 is used to mark empty slots so it is tracked on its own.
+ * Adding, removing and looking up keys does not allocate.
+ */
+public class LongSet {
+    private static final long EMPTY = 0;
+
+    public int size;
+
+    private long[] keyTable;
+    private boolean hasZeroValue;
+
+    private final float loadFactor;
+    private int threshold;
+    private int shift;
+    private int mask;
+
+    public LongSet() {
+        this(51, 0.8f);
+    }
+
+    public LongSet(int initialCapacity) {
+        this(initialCapacity, 0.8f);
+    }
+
+    public LongSet(int initialCapacity, float loadFactor) {
+        if(loadFactor <= 0f || loadFactor >= 1f)
+            throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        resize(tableSize(initialCapacity, loadFactor));
+    }
+
+    public boolean add(long key) {
+        if(key == EMPTY) {
+            if(hasZeroValue) return false;
+            hasZeroValue = true;
+            size++;
+            return true;
+        }
+
+        long[] keyTable = this.keyTable;
+        int i = place(key);
+        while(keyTable[i] != EMPTY) {
+            if(keyTable[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+
+        keyTable[i] = key;
+        if(++size >= threshold) resize(keyTable.length << 1);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if(key == EMPTY) return hasZeroValue;
+
+        long[] keyTable = this.keyTable;
+        int i = place(key);
+        while(keyTable[i] != EMPTY) {
+            if(keyTable[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean remove(long key) {
+        if(key == EMPTY) {
+            if(!hasZeroValue) return false;
+            hasZeroValue = false;
+            size--;
+            return true;
+        }
+
+        long[] keyTable = this.keyTable;
+        int i = place(key);
+        while(keyTable[i] != key) {
+            if(keyTable[i] == EMPTY) return false;
+            i = (i + 1) & mask;
+        }
+
+        // shift the following keys of the probe chain back into the hole
+        int next = (i + 1) & mask;
+        while(keyTable[next] != EMPTY) {
+            int placement = place(keyTable[next]);
+            if(((next - placement) & mask) > ((i - placement) & mask)) {
+                keyTable[i] = keyTable[next];
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keyTable[i] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if(size == 0) return;
+        Arrays.fill(keyTable, EMPTY);
+        hasZeroValue = false;
+        size = 0;
+    }
+
+    /**
+     * Make room for this many more keys without resizing while adding them.
+     */
+    public void ensureCapacity(int additionalCapacity) {
+        int tableSize = tableSize(size + additionalCapacity, loadFactor);
+        if(keyTable.length < tableSize) resize(tableSize);
+    }
+
+    @FunctionalInterface
+    public interface OnKey {
+        void key(long key);
+    }
+
+    public void forEach(OnKey onKey) {
+        if(hasZeroValue) onKey.key(EMPTY);
+
+        long[] keyTable = this.keyTable;
+        for (int i = 0; i < keyTable.length; i++) {
+            if(keyTable[i] != EMPTY) onKey.key(keyTable[i]);
+        }
+    }
+
+    private int place(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void resize(int newSize) {
+        long[] oldTable = keyTable;
+
+        keyTable = new long[newSize];
+        mask = newSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        threshold = (int) (newSize * loadFactor);
+
+        if(oldTable == null) return;
+
+        for (long key : oldTable) {
+            if(key == EMPTY) continue;
+
+            int i = place(key);
+            while(keyTable[i] != EMPTY) i = (i + 1) & mask;
+            keyTable[i] = key;
+        }
+    }
+
+    private static int tableSize(int capacity, float loadFactor) {
+        int tableSize = 2;
+        while(tableSize * loadFactor <= capacity) tableSize <<= 1;
+        return tableSize;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach((key) -> {
+            if(builder.length() > 1) builder.append(", ");
+            builder.append(key);
+        });
+        return builder.append(']').toString();
+    }
+}
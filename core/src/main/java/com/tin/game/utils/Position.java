@@ -17,13 +17,16 @@ public class Position {
         return row == other.row && col == other.col;
     }
 
+    /**
+     * @return this position packed as a {@link CellKey}
+     */
+    public int key() {
+        return CellKey.of(col, row);
+    }
+
     @Override
     public int hashCode() {
-        final int prime = 53;
-        int result = 1;
-        result = prime * result + this.col;
-        result = prime * result + this.row;
-        return result;
+        return key();
     }
 
     @Override
@@ -0,0 +1,57 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/**
+ * Explicitly seeded random number streams of the simulation, one per subsystem.
+ * <p>
+ * Every stream is seeded from the game seed and its own index, so a subsystem
+ * drawing more or fewer numbers never shifts the numbers of another one, and
+ * the same seed with the same inputs replays the same game.
+ */
+public class RandomStreams {
+
+    public enum STREAM {
+        // when the next town grows
+        TOWN_GROWTH,
+        // where a house, its road and its store go
+        TOWN_SPAWN,
+        // deliveries a store needs
+        STORE_SIZE,
+        // color of a new town
+        COLOR_ID,
+        // debug color of every traversed SubPath
+        PATH_DEBUG_COLOR,
+    }
+
+    // odd constant spreading the stream seeds apart, the generator scrambles them further
+    private static final long STREAM_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final RandomXS128[] streams;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+        this.streams = new RandomXS128[STREAM.values().length];
+        for (int i = 0; i < streams.length; i++) streams[i] = new RandomXS128(seedOf(i));
+    }
+
+    /**
+     * Start every stream over from the seed, the generators handed out stay the same objects.
+     */
+    public void reset() {
+        for (int i = 0; i < streams.length; i++) streams[i].setSeed(seedOf(i));
+    }
+
+    private long seedOf(int stream) {
+        return seed + (stream + 1) * STREAM_GAMMA;
+    }
+
+    public RandomXS128 get(STREAM stream) {
+        return streams[stream.ordinal()];
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,70 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * Route queries collected on the game thread and answered by an {@link IBatchRouter}.
+ * <p>
+ * Every query keeps the {@link SubPathGraph} its group had when it was added.
+ * Those graphs are never changed, an edit gives the group a new one, so the
+ * queries can be answered from any thread while the game goes on. Every query
+ * writes its own route only.
+ * @param <K> what a route is looked up by, e.g. a house
+ */
+public class RouteBatch<K> {
+
+    private final Array<K> keys;
+    private final IntArray from;
+    private final IntArray to;
+    private final Array<SubPathGraph> graphs;
+    private final Array<Array<SubPath>> routes;
+
+    public RouteBatch() {
+        this.keys = new Array<>();
+        this.from = new IntArray();
+        this.to = new IntArray();
+        this.graphs = new Array<>();
+        this.routes = new Array<>();
+    }
+
+    /**
+     * Queue a query over the current roads of a group.
+     * @param from {@link CellKey} of the start
+     * @param to {@link CellKey} of the destination
+     */
+    public void add(K key, int from, int to, PathGroup group) {
+        keys.add(key);
+        this.from.add(from);
+        this.to.add(to);
+        graphs.add(group.getGraph());
+        routes.add(new Array<>());
+    }
+
+    /**
+     * Answer one query, safe to call for different indices from different threads.
+     * @param pathfinder used by the calling thread only
+     * @return false if there is no route
+     */
+    public boolean route(int index, DijkstraPathfinder pathfinder) {
+        return pathfinder.findPath(from.get(index), to.get(index), graphs.get(index), routes.get(index));
+    }
+
+    public int size() {
+        return keys.size;
+    }
+
+    /**
+     * @return SubPaths of every answered query in travel order, empty if there is no route
+     */
+    public ObjectMap<K, Array<SubPath>> results() {
+        ObjectMap<K, Array<SubPath>> results = new ObjectMap<>(keys.size);
+        for (int i = 0; i < keys.size; i++) results.put(keys.get(i), routes.get(i));
+        return results;
+    }
+}
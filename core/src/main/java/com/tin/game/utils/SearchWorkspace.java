@@ -0,0 +1,108 @@
+package com.tin.game.utils;
+
+import java.util.Arrays;
+
+/**
+ * Reusable state of a shortest path search over dense node ids.
+ * <p>
+ * Distances and parents live in arrays stamped with the epoch of the search
+ * that wrote them, so starting a new search only bumps the epoch instead of
+ * clearing anything. The arrays only grow, repeated searches allocate nothing.
+ */
+public class SearchWorkspace {
+
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    public final IndexedIntHeap heap;
+
+    // node id -> distance from the source, parent edge and epoch they were written in
+    private int[] distance;
+    private int[] parent;
+    private int[] stamp;
+
+    // node id -> epoch it was settled in
+    private int[] settled;
+
+    private int epoch;
+
+    public SearchWorkspace() {
+        this(16);
+    }
+
+    public SearchWorkspace(int capacity) {
+        this.heap = new IndexedIntHeap(capacity);
+        this.distance = new int[capacity];
+        this.parent = new int[capacity];
+        this.stamp = new int[capacity];
+        this.settled = new int[capacity];
+    }
+
+    /**
+     * Forget the last search and make room for nodeCount nodes.
+     */
+    public void reset(int nodeCount) {
+        if(nodeCount > stamp.length) {
+            int capacity = Math.max(nodeCount, stamp.length * 2);
+            heap.ensureCapacity(capacity);
+            distance = Arrays.copyOf(distance, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            stamp = Arrays.copyOf(stamp, capacity);
+            settled = Arrays.copyOf(settled, capacity);
+        }
+
+        heap.clear();
+
+        // stamps would collide after wrapping around
+        if(++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(settled, 0);
+            epoch = 1;
+        }
+    }
+
+    public boolean isReached(int node) {
+        return stamp[node] == epoch;
+    }
+
+    public int distanceOf(int node) {
+        return stamp[node] == epoch ? distance[node] : UNREACHED;
+    }
+
+    /**
+     * @return edge the node was reached by, -1 for the source
+     */
+    public int parentOf(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Record a shorter distance to a node and queue it by priority.
+     * @return false if the node already has a distance at least as short
+     */
+    public boolean relax(int node, int newDistance, int parentEdge, int priority) {
+        if(stamp[node] == epoch && distance[node] <= newDistance) return false;
+
+        stamp[node] = epoch;
+        distance[node] = newDistance;
+        parent[node] = parentEdge;
+        heap.update(node, priority);
+        return true;
+    }
+
+    /**
+     * @return the queued node with the lowest priority, now settled
+     */
+    public int settleNext() {
+        int node = heap.pop();
+        settled[node] = epoch;
+        return node;
+    }
+
+    public boolean isSettled(int node) {
+        return settled[node] == epoch;
+    }
+
+    public boolean hasQueued() {
+        return !heap.isEmpty();
+    }
+}
@@ -0,0 +1,23 @@
+package com.tin.game.utils;
+
+/**
+ * Answers a {@link RouteBatch} one query after another on the calling thread,
+ * works on every platform.
+ */
+public class SerialBatchRouter implements IBatchRouter {
+
+    private final DijkstraPathfinder pathfinder;
+
+    public SerialBatchRouter() {
+        this(new AStarPathfinder());
+    }
+
+    public SerialBatchRouter(DijkstraPathfinder pathfinder) {
+        this.pathfinder = pathfinder;
+    }
+
+    @Override
+    public void route(RouteBatch<?> batch) {
+        for (int i = 0; i < batch.size(); i++) batch.route(i, pathfinder);
+    }
+}
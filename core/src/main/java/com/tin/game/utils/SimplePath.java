@@ -30,9 +30,10 @@ public class SimplePath implements Path<Position> {
     }
 
     public void addVertex(MapCell cell) {
+        // measured from the current last vertex, before the new one is appended
+        updatePathLength(cell.pos.col, cell.pos.row);
         cellVertices.add(cell.pos);
         drawVertices.add(cell.getCenter());
-        updatePathLength(cell.pos.col, cell.pos.row);
     }
 
 
@@ -45,12 +46,15 @@ public class SimplePath implements Path<Position> {
     }
 
     protected void updatePathLength(int col, int row) {
-        if(cellVertices.size > 1) {
-            Position last = cellVertices
-                .orderedItems()
-                .get(cellVertices.size - 1);
-            pathLength += getDistance(col, row, last);
-        }
+        if(cellVertices.size == 0) return;
+
+        Position last = cellVertices
+            .orderedItems()
+            .get(cellVertices.size - 1);
+
+        // the same vertex added again is not a step
+        if(last.col == col && last.row == row) return;
+        pathLength += getDistance(col, row, last);
     }
 
     protected int getDistance(int col, int row, Position last) {
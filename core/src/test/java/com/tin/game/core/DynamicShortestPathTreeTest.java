@@ -0,0 +1,122 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.utils.CellKey;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.tin.game.core.PathMap.DIAGONAL_COST;
+import static com.tin.game.core.PathMap.STRAIGHT_COST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Repairs a {@link DynamicShortestPathTree} through random sequences of added
+ * connections, cut connections and removed cells, and checks after every edit
+ * that it matches a tree grown from scratch over the same roads.
+ */
+public class DynamicShortestPathTreeTest {
+
+    private static final int SIZE = 14;
+    private static final int TRIALS = 40;
+    private static final int EDITS = 300;
+
+    private GameMap map;
+    private BitmaskRoadMap roadMap;
+
+    @Test
+    public void repairMatchesFreshTree() {
+        for (long seed = 1; seed <= 3; seed++) {
+            Random random = new Random(seed);
+            for (int trial = 0; trial < TRIALS; trial++) randomEdits(random);
+        }
+    }
+
+    private void randomEdits(Random random) {
+        map = GameMap.newBoard(new MapDescriptor(SIZE, SIZE));
+        roadMap = new BitmaskRoadMap(map.getDescriptor());
+
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            int col = random.nextInt(SIZE - 1);
+            int row = random.nextInt(SIZE - 1);
+            int toCol = col + random.nextInt(2);
+            int toRow = row + random.nextInt(2);
+            if(toCol == col && toRow == row) toCol++;
+            roadMap.pushRoad(map.getCellAt(col, row), map.getCellAt(toCol, toRow));
+        }
+
+        int root = -1;
+        while(root < 0) {
+            int col = random.nextInt(SIZE);
+            int row = random.nextInt(SIZE);
+            if(roadMap.hasRoad(col, row)) root = CellKey.of(col, row);
+        }
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(roadMap, root);
+
+        for (int edit = 0; edit < EDITS; edit++) {
+            int col = random.nextInt(SIZE - 1);
+            int row = random.nextInt(SIZE - 1);
+            int key = CellKey.of(col, row);
+            int kind = random.nextInt(10);
+
+            if(kind < 5) {
+                int to = CellKey.of(col + 1, row + random.nextInt(2));
+                roadMap.pushRoad(map.getCellAt(col, row), map.getCellAt(CellKey.col(to), CellKey.row(to)));
+                tree.edgeAdded(key, to);
+            }
+            else if(kind < 8) {
+                // a path pushed through the cell keeps two of its connections
+                if(!roadMap.hasRoad(key) || key == root) continue;
+
+                IntArray adjacent = new IntArray();
+                roadMap.forEachAdjacent(key, adjacent::add);
+                if(adjacent.size < 2) continue;
+
+                int start = adjacent.get(0);
+                int end = adjacent.get(1);
+                IntArray cut = new IntArray();
+                for (int i = 2; i < adjacent.size; i++) cut.add(key, adjacent.get(i));
+
+                roadMap.excludeConnection(CellKey.toPosition(start), map.getCellAt(col, row), CellKey.toPosition(end));
+                tree.edgesRemoved(cut);
+            }
+            else {
+                if(!roadMap.hasRoad(key) || key == root) continue;
+
+                IntArray cut = new IntArray();
+                roadMap.forEachAdjacent(key, (adjacent) -> cut.add(key, adjacent));
+                roadMap.removeRoad(map.getCellAt(col, row));
+                tree.edgesRemoved(cut);
+            }
+
+            // a store keeps its own roads, a root cut off from every road ends the trial
+            if(!roadMap.hasRoad(root)) return;
+            assertMatchesFreshTree(tree, root);
+        }
+    }
+
+    private void assertMatchesFreshTree(DynamicShortestPathTree tree, int root) {
+        DynamicShortestPathTree fresh = new DynamicShortestPathTree(roadMap, root);
+        assertEquals(fresh.size(), tree.size());
+
+        IntArray path = new IntArray();
+        roadMap.forEachRoad((key) -> {
+            assertEquals(CellKey.toString(key), fresh.distanceTo(key), tree.distanceTo(key));
+            if(!tree.pathFrom(key, path)) return;
+
+            // the parent chain runs over existing connections and is as long as the distance
+            int length = 0;
+            for (int i = 1; i < path.size; i++) {
+                int from = path.get(i - 1);
+                int to = path.get(i);
+                assertTrue(CellKey.toString(from) + " -> " + CellKey.toString(to), roadMap.isConnected(from, to));
+
+                boolean diagonal = CellKey.col(from) != CellKey.col(to) && CellKey.row(from) != CellKey.row(to);
+                length += diagonal ? DIAGONAL_COST : STRAIGHT_COST;
+            }
+            assertEquals(root, path.peek());
+            assertEquals(tree.distanceTo(key), length);
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.tin.game.core;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.Position;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Invalidation of a {@link RouteCache} by road edits.
+ */
+public class RouteCacheTest {
+
+    private static final int SIZE = 200;
+    private static final int ROUTES = 300;
+
+    @Test
+    public void newEdgeDropsExactlyTheRoutesItCouldShorten() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 20; trial++) {
+            RouteCache cache = new RouteCache();
+            int[] from = new int[ROUTES];
+            int[] to = new int[ROUTES];
+            int[] cost = new int[ROUTES];
+            for (int i = 0; i < ROUTES; i++) {
+                from[i] = randomCell(random, SIZE);
+                to[i] = near(random, from[i], 40);
+                // a detour of up to twice the octile distance
+                cost[i] = AStarPathfinder.octile(from[i], to[i]) * (10 + random.nextInt(11)) / 10 + PathMap.STRAIGHT_COST;
+                cache.put(from[i], to[i], cost[i], Array.with(CellKey.toPosition(from[i]), CellKey.toPosition(to[i])));
+            }
+
+            for (int edit = 0; edit < 200; edit++) {
+                // mostly around the end of a route, where the edge may or may not shorten it
+                int route = random.nextInt(ROUTES);
+                int end = random.nextBoolean() ? from[route] : to[route];
+                int edgeFrom = random.nextInt(4) == 0 ? randomCell(random, SIZE - 1) : near(random, end, cost[route] / PathMap.STRAIGHT_COST + 2);
+                edgeFrom = CellKey.of(Math.min(CellKey.col(edgeFrom), SIZE - 2), Math.min(CellKey.row(edgeFrom), SIZE - 2));
+                int edgeTo = CellKey.of(CellKey.col(edgeFrom) + 1, CellKey.row(edgeFrom) + random.nextInt(2));
+                int edgeCost = CellKey.row(edgeTo) != CellKey.row(edgeFrom) ? PathMap.DIAGONAL_COST : PathMap.STRAIGHT_COST;
+
+                boolean[] cached = new boolean[ROUTES];
+                for (int i = 0; i < ROUTES; i++) cached[i] = cache.contains(from[i], to[i]);
+                cache.edgeAdded(edgeFrom, edgeTo, edgeCost);
+
+                for (int i = 0; i < ROUTES; i++) {
+                    int forward = AStarPathfinder.octile(from[i], edgeFrom) + edgeCost + AStarPathfinder.octile(edgeTo, to[i]);
+                    int backward = AStarPathfinder.octile(from[i], edgeTo) + edgeCost + AStarPathfinder.octile(edgeFrom, to[i]);
+                    boolean shortened = Math.min(forward, backward) < cost[i];
+                    assertEquals(cached[i] && !shortened, cache.contains(from[i], to[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removedRouteLeavesNoIndex() {
+        RouteCache cache = new RouteCache();
+        int from = CellKey.of(10, 10);
+        int to = CellKey.of(40, 10);
+        cache.put(from, to, 30 * PathMap.STRAIGHT_COST, Array.with(new Position(10, 10), new Position(40, 10)));
+        cache.remove(from, to);
+
+        // an edge on the straight line would have shortened it, nothing is left to drop
+        cache.edgeAdded(CellKey.of(20, 10), CellKey.of(21, 10), PathMap.STRAIGHT_COST);
+        assertEquals(0, cache.getInvalidations());
+
+        cache.put(from, to, 40 * PathMap.STRAIGHT_COST, Array.with(new Position(10, 10), new Position(40, 10)));
+        cache.edgeAdded(CellKey.of(20, 10), CellKey.of(21, 10), PathMap.STRAIGHT_COST);
+        assertEquals(1, cache.getInvalidations());
+        assertFalse(cache.contains(from, to));
+        assertEquals(0, cache.size());
+    }
+
+    private static int randomCell(Random random, int size) {
+        return CellKey.of(random.nextInt(size), random.nextInt(size));
+    }
+
+    private static int near(Random random, int cell, int range) {
+        int col = Math.max(0, Math.min(SIZE - 1, CellKey.col(cell) + random.nextInt(2 * range + 1) - range));
+        int row = Math.max(0, Math.min(SIZE - 1, CellKey.row(cell) + random.nextInt(2 * range + 1) - range));
+        return CellKey.of(col, row);
+    }
+}
@@ -0,0 +1,95 @@
+package com.tin.game.system;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.Vector2;
+import com.tin.game.core.BitmaskRoadMap;
+import com.tin.game.core.MapDescriptor;
+import com.tin.game.utils.AStarPathfinder;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation rate of the per frame car path: stepping the game through
+ * {@link GameData#advance} and placing the sprite of every car through
+ * {@link CarDrawer#placeCar}, as {@link CarDrawer#drawAllCar} does before
+ * handing it to the SpriteBatch, which needs a GL context and is left out.
+ * The bytes this thread allocates are read from the JVM, where it counts them.
+ * A JIT tier change can allocate a few bytes once, so the test takes the best of
+ * several windows and bounds the bytes per frame rather than expecting none.
+ */
+public class CarFrameAllocationTest {
+
+    private static final int SIZE = 64;
+    private static final int CARS = 5000;
+    private static final int WARMUP_FRAMES = 2000;
+    private static final int FRAMES = 4000;
+    private static final int WINDOWS = 3;
+
+    @Test
+    public void carFrameAllocatesNothing() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("no per thread allocation counter on this JVM", threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled());
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+
+        GameData game = townRows();
+        TownSystem town = game.getTownSystem();
+        CarFleet fleet = town.getFleet();
+        int routes = fleet.size();
+        assertTrue(routes > 0);
+        for (int i = routes; i < CARS; i++) fleet.addCar(fleet.routeOf(i % routes), 50 + i % 50);
+
+        // the sprite of the drawer, without its texture
+        Sprite car = new Sprite();
+        car.setSize(16, 8);
+        car.setOriginCenter();
+        Vector2 position = new Vector2();
+
+        frames(game, car, position, WARMUP_FRAMES);
+        long allocated = Long.MAX_VALUE;
+        for (int window = 0; window < WINDOWS; window++) {
+            long before = allocation.getThreadAllocatedBytes(thread);
+            frames(game, car, position, FRAMES);
+            allocated = Math.min(allocated, allocation.getThreadAllocatedBytes(thread) - before);
+        }
+
+        assertEquals(CARS, fleet.size());
+        assertTrue("bytes allocated over " + FRAMES + " frames: " + allocated, allocated / FRAMES < 1);
+    }
+
+    private static void frames(GameData game, Sprite car, Vector2 position, int frames) {
+        TownSystem town = game.getTownSystem();
+        CarFleet fleet = town.getFleet();
+        for (int frame = 0; frame < frames; frame++) {
+            // frames of uneven length, as rendered
+            float alpha = game.advance(frame % 3 == 0 ? 0.02f : 0.015f);
+            for (int i = 0; i < fleet.size(); i++) {
+                CarDrawer.placeCar(car, fleet, i, town.getRouteColor(fleet.routeOf(i)), alpha, position);
+                car.getVertices();
+            }
+        }
+    }
+
+    /**
+     * Road rows across the board, every row with two towns whose stores never fill.
+     */
+    private static GameData townRows() {
+        GameData game = new GameData(new MapDescriptor(SIZE, SIZE), new BitmaskRoadMap(SIZE, SIZE), new AStarPathfinder(), 1);
+        RoadTowns.roadRows(game, SIZE, 6);
+
+        int id = 0;
+        for (int row = 2; row + 2 < SIZE; row += 6) {
+            RoadTowns.town(game, new Color(id++ / 32f, 0.5f, 0.5f, 1f), row, 3, 20, Integer.MAX_VALUE);
+            RoadTowns.town(game, new Color(id++ / 32f, 0.5f, 0.5f, 1f), row, 36, 56, Integer.MAX_VALUE);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,62 @@
+package com.tin.game.system;
+
+import com.badlogic.gdx.graphics.Color;
+import com.tin.game.core.BitmaskRoadMap;
+import com.tin.game.core.MapDescriptor;
+import com.tin.game.utils.AStarPathfinder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Steps {@link GameData} on a plain JVM, without a libGDX backend or GL context.
+ */
+public class GameDataTest {
+
+    private static final int SIZE = 30;
+    private static final long SEED = 42;
+
+    @Test
+    public void carDeliversUntilStoreIsFull() {
+        GameData game = newGame();
+        RoadTowns.roadRows(game, SIZE, 6);
+        Store store = RoadTowns.town(game, Color.RED, 2, 3, 20, 3);
+
+        TownSystem town = game.getTownSystem();
+        assertEquals(1, town.getFleet().size());
+
+        // a minute of simulation is plenty for three trips along the row
+        for (int i = 0; i < 60 * SimulationClock.STEPS_PER_SECOND && town.getStoreMap().containsKey(Color.RED); i++) {
+            game.step();
+        }
+
+        assertEquals(0, store.needed());
+        assertFalse(town.getStoreMap().containsKey(Color.RED));
+        assertEquals(0, town.getFleet().size());
+    }
+
+    @Test
+    public void townsGrowOnTheRoads() {
+        GameData game = newGame();
+        RoadTowns.roadRows(game, SIZE, 6);
+
+        TownSystem town = game.getTownSystem();
+        town.scheduleTownPopulation();
+        town.startPopulate();
+
+        int mostStores = 0;
+        for (int i = 0; i < 120 * SimulationClock.STEPS_PER_SECOND; i++) {
+            game.step();
+            mostStores = Math.max(mostStores, town.getStoreMap().size);
+        }
+
+        assertEquals(120 * SimulationClock.STEPS_PER_SECOND, game.getStepCount());
+        assertTrue(mostStores > 0);
+    }
+
+    private static GameData newGame() {
+        return new GameData(new MapDescriptor(SIZE, SIZE), new BitmaskRoadMap(SIZE, SIZE), new AStarPathfinder(), SEED);
+    }
+}
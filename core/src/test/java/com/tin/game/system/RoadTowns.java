@@ -0,0 +1,43 @@
+package com.tin.game.system;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.utils.Position;
+
+/**
+ * Headless boards for the system tests: road rows across the board, and towns
+ * whose house sits above a row and whose store sits below it, so the route of
+ * a town runs along its row.
+ */
+class RoadTowns {
+
+    /**
+     * Lay a road along every spacing-th row, starting at row 2.
+     */
+    static void roadRows(GameData game, int size, int spacing) {
+        for (int row = 2; row + 2 < size; row += spacing) {
+            game.pushRoad(0, row);
+            for (int col = 1; col < size; col++) game.pushRoad(col, row);
+        }
+    }
+
+    /**
+     * Spawn a town on a road row and connect its store to the row, which routes the house.
+     * @param houseCol column of the house, above the row
+     * @param storeCol column of the store, below the row
+     */
+    static Store town(GameData game, Color colorID, int row, int houseCol, int storeCol, int requiredDelivery) {
+        House house = new House(houseCol, row - 1, new Position(houseCol, row), new Position(storeCol, row + 1));
+        Store store = new Store(storeCol, row + 1, requiredDelivery);
+
+        TownSystem town = game.getTownSystem();
+        town.getHouseMap().put(colorID, Array.with(house));
+        town.getStoreMap().put(colorID, store);
+        game.populateTown(house, store);
+
+        // the first click picks the row cell, the second connects the store to it
+        game.pushRoad(storeCol, row);
+        game.pushRoad(storeCol, row + 1);
+        return store;
+    }
+}
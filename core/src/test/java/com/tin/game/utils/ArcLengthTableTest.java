@@ -0,0 +1,103 @@
+package com.tin.game.utils;
+
+import com.badlogic.gdx.math.BSpline;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Lookups of an {@link ArcLengthTable} against the spline it was built from.
+ */
+public class ArcLengthTableTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    // most a step of one world unit may be off, the samples cut the corners a little
+    private static final float STEP_ERROR = 0.01f;
+
+    @Test
+    public void endsOfTheTableAreTheEndsOfTheSpline() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            BSpline<Vector2> spline = randomRoute(random, 2 + random.nextInt(24));
+            ArcLengthTable table = new ArcLengthTable(spline);
+
+            assertPoint(spline.valueAt(new Vector2(), 0), table.positionAt(0, new Vector2()));
+            assertPoint(spline.valueAt(new Vector2(), 1), table.positionAt(table.getLength(), new Vector2()));
+        }
+    }
+
+    @Test
+    public void straightRouteIsDrivenAtConstantSpeed() {
+        // 4.67 long, the last sample is closer than SPACING to the one before
+        BSpline<Vector2> spline = route(0, 0, 1, 0, 2, 0, 3, 0, 4, 0, 5, 0);
+        ArcLengthTable table = new ArcLengthTable(spline);
+        float start = spline.valueAt(new Vector2(), 0).x;
+
+        Vector2 position = new Vector2();
+        for (float distance = 0; distance <= table.getLength(); distance += 0.25f) {
+            assertEquals(start + distance, table.positionAt(distance, position).x, 0.01f);
+            assertEquals(0, table.angleAt(distance), EPSILON);
+        }
+    }
+
+    @Test
+    public void everyStepCoversTheSameDistance() {
+        Random random = new Random(11);
+        Vector2 from = new Vector2();
+        Vector2 to = new Vector2();
+        for (int i = 0; i < 200; i++) {
+            ArcLengthTable table = new ArcLengthTable(randomRoute(random, 2 + random.nextInt(24)));
+
+            // up to the end of the route, the last step included
+            for (float distance = 0; distance + 1 <= table.getLength(); distance += 1) {
+                table.positionAt(distance, from);
+                table.positionAt(distance + 1, to);
+                assertEquals(1, from.dst(to), STEP_ERROR);
+            }
+            float last = table.getLength() - 1;
+            if(last >= 0) {
+                assertEquals(1, table.positionAt(last, from).dst(table.positionAt(table.getLength(), to)), STEP_ERROR);
+            }
+        }
+    }
+
+    private static void assertPoint(Vector2 expected, Vector2 actual) {
+        assertEquals(expected.x, actual.x, EPSILON);
+        assertEquals(expected.y, actual.y, EPSILON);
+    }
+
+    // walk over road cells that goes straight or turns a corner, the ends doubled as PathSystem does
+    private static BSpline<Vector2> randomRoute(Random random, int points) {
+        float[] xy = new float[points * 2];
+        float x = random.nextFloat() * 1000;
+        float y = random.nextFloat() * 1000;
+        int dx = 1;
+        int dy = 0;
+        for (int i = 0; i < points; i++) {
+            int turn = random.nextInt(3) - 1;
+            if(turn != 0) {
+                int previous = dx;
+                dx = -dy * turn;
+                dy = previous * turn;
+            }
+            x += dx * 32;
+            y += dy * 32;
+            xy[i * 2] = x;
+            xy[i * 2 + 1] = y;
+        }
+        return route(xy);
+    }
+
+    private static BSpline<Vector2> route(float... xy) {
+        int points = xy.length / 2;
+        Vector2[] items = new Vector2[points + 2];
+        for (int i = 0; i < points; i++) items[i + 1] = new Vector2(xy[i * 2], xy[i * 2 + 1]);
+        items[0] = items[1];
+        items[points + 1] = items[points];
+        return new BSpline<>(items, 3, false);
+    }
+}
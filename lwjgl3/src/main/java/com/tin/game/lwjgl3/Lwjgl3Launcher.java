@@ -2,17 +2,31 @@ package com.tin.game.lwjgl3;
 
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
 import com.tin.game.Main;
+import com.tin.game.core.MapDescriptor;
 
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        createApplication(parseMap(args));
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new Main(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(MapDescriptor map) {
+        return new Lwjgl3Application(new Main(map), getDefaultConfiguration());
+    }
+
+    /**
+     * Board size from the command line, either "--map WIDTHxHEIGHT"
+     * or "--scenario path/to/scenario.json", the default board otherwise.
+     */
+    static MapDescriptor parseMap(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if(args[i].equals("--map")) return MapDescriptor.parse(args[i + 1]);
+            if(args[i].equals("--scenario")) return MapDescriptor.load(new FileHandle(args[i + 1]));
+        }
+        return MapDescriptor.defaults();
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
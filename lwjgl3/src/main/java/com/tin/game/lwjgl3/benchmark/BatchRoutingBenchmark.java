@@ -0,0 +1,92 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.parallel.ForkJoinBatchRouter;
+import com.tin.game.utils.IBatchRouter;
+import com.tin.game.utils.RouteBatch;
+import com.tin.game.utils.SerialBatchRouter;
+
+import java.util.Random;
+
+/**
+ * Answers one {@link RouteBatch} of random intersection pairs through a
+ * {@link RoadGrid}, serially and on 1, 2, 4 and 8 threads. Reports the
+ * throughput and the speedup over the serial router and checks every parallel
+ * route against the serial length.
+ * <p>
+ * usage: BatchRoutingBenchmark [board size, default 400] [road spacing, default 4]
+ * [queries, default 2000] [rounds, default 5]
+ */
+public class BatchRoutingBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int spacing = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        RoadGrid grid = new RoadGrid(size, spacing);
+        PathGroup group = grid.group();
+        System.out.println("board " + size + "x" + size + ", " + group.allPath.size + " SubPaths, "
+            + queries + " queries, " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        Random random = new Random(7);
+        int lines = grid.lines();
+        int[] pairs = new int[queries * 2];
+        for (int i = 0; i < queries; i++) {
+            pairs[2 * i] = grid.intersection(random.nextInt(lines), random.nextInt(lines)).key();
+            pairs[2 * i + 1] = grid.intersection(random.nextInt(lines), random.nextInt(lines)).key();
+        }
+
+        // serial lengths every other router is checked against
+        RouteBatch<Integer> reference = batch(pairs, group);
+        new SerialBatchRouter().route(reference);
+        ObjectMap<Integer, Array<PathMap.SubPath>> expected = reference.results();
+
+        for (int round = 0; round < rounds; round++) {
+            long serialTime = time(new SerialBatchRouter(), pairs, group, expected);
+            StringBuilder line = new StringBuilder("round " + (round + 1) + "  serial: " + rate(queries, serialTime));
+
+            for (int threads : THREADS) {
+                ForkJoinBatchRouter router = new ForkJoinBatchRouter(threads);
+                long time = time(router, pairs, group, expected);
+                router.dispose();
+                line.append("  ").append(threads).append("t: ").append(rate(queries, time))
+                    .append(" x").append(Math.round(serialTime * 100.0 / time) / 100.0);
+            }
+            System.out.println(line);
+        }
+    }
+
+    private static RouteBatch<Integer> batch(int[] pairs, PathGroup group) {
+        RouteBatch<Integer> batch = new RouteBatch<>();
+        for (int i = 0; i < pairs.length / 2; i++) batch.add(i, pairs[2 * i], pairs[2 * i + 1], group);
+        return batch;
+    }
+
+    private static long time(IBatchRouter router, int[] pairs, PathGroup group,
+                             ObjectMap<Integer, Array<PathMap.SubPath>> expected) {
+        RouteBatch<Integer> batch = batch(pairs, group);
+        long start = System.nanoTime();
+        router.route(batch);
+        long time = System.nanoTime() - start;
+
+        for (ObjectMap.Entry<Integer, Array<PathMap.SubPath>> entry : batch.results()) {
+            int length = PathMap.SubPath.lengthOf(entry.value);
+            int serial = PathMap.SubPath.lengthOf(expected.get(entry.key));
+            if(length != serial) {
+                throw new IllegalStateException("query " + entry.key + ": route " + length + " != serial route " + serial);
+            }
+        }
+        return time;
+    }
+
+    private static String rate(int queries, long nanos) {
+        return Math.round(queries * 1e9 / nanos) + " q/s";
+    }
+}
@@ -0,0 +1,95 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.ClusterMap;
+import com.tin.game.core.MapCell;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.Position;
+
+import java.util.Random;
+
+/**
+ * Cross-city routes through a {@link RoadGrid}, A* over the SubPaths of the
+ * whole group against the {@link ClusterMap} search over entrances refined
+ * into cells. Every cluster route is checked against the A* length. Also
+ * times the full precomputation and the one after removing a single road cell.
+ * <p>
+ * usage: ClusterBenchmark [board size, default 1000] [road spacing, default 4]
+ * [cluster size, default 16] [queries, default 200] [rounds, default 5]
+ */
+public class ClusterBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int spacing = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int clusterSize = args.length > 2 ? Integer.parseInt(args[2]) : ClusterMap.DEFAULT_CLUSTER_SIZE;
+        int queries = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        RoadGrid grid = new RoadGrid(size, spacing);
+        PathGroup group = grid.group();
+        System.out.println("board " + size + "x" + size + ", " + grid.roadMap.roadCount() + " road cells, "
+            + group.allPath.size + " SubPaths");
+
+        ClusterMap clusterMap = new ClusterMap(grid.roadMap, size, size, clusterSize);
+        long start = System.nanoTime();
+        clusterMap.refresh();
+        System.out.println(clusterSize + "x" + clusterSize + " clusters precomputed in "
+            + (System.nanoTime() - start) / 1000 / 1000 + " ms, " + clusterMap.getEntranceCount() + " entrances");
+
+        // far apart inner intersections, the same pairs for both searches
+        Random random = new Random(7);
+        int inner = grid.lines() - 2;
+        int[] pairs = new int[queries * 2];
+        for (int i = 0; i < queries; i++) {
+            pairs[2 * i] = grid.intersection(1 + random.nextInt(inner / 4), 1 + random.nextInt(inner)).key();
+            pairs[2 * i + 1] = grid.intersection(inner - random.nextInt(inner / 4), 1 + random.nextInt(inner)).key();
+        }
+
+        AStarPathfinder aStar = new AStarPathfinder();
+        Array<PathMap.SubPath> route = new Array<>();
+        IntArray cells = new IntArray();
+        int[] lengths = new int[queries];
+
+        for (int round = 0; round < rounds; round++) {
+            long settled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                aStar.findPath(pairs[2 * i], pairs[2 * i + 1], group, route);
+                lengths[i] = PathMap.SubPath.lengthOf(route);
+                settled += aStar.getExpandedCount();
+            }
+            long aStarTime = System.nanoTime() - start;
+
+            long clusterSettled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int length = clusterMap.findPath(pairs[2 * i], pairs[2 * i + 1], cells);
+                if(length != lengths[i]) {
+                    throw new IllegalStateException("cluster route " + length + " != A* route " + lengths[i]);
+                }
+                clusterSettled += clusterMap.getExpandedCount();
+            }
+            long clusterTime = System.nanoTime() - start;
+
+            System.out.println("round " + (round + 1)
+                + "  A*: " + aStarTime / queries / 1000.0 + " us, " + settled / queries + " settled"
+                + "  clusters: " + clusterTime / queries / 1000.0 + " us, " + clusterSettled / queries + " settled");
+        }
+
+        // a road edit only marks the clusters of the cell and its neighbours
+        Position crossing = grid.intersection(inner / 2, inner / 2);
+        MapCell cell = grid.map.getCellAt(crossing.col + 1, crossing.row);
+        int middle = cell.pos.key();
+        grid.roadMap.forEachAdjacent(middle, clusterMap::roadChanged);
+        clusterMap.roadChanged(middle);
+        grid.roadMap.removeRoad(cell);
+
+        start = System.nanoTime();
+        clusterMap.refresh();
+        System.out.println("removing " + cell.pos + " precomputed again in " + (System.nanoTime() - start) / 1000.0 + " us");
+    }
+}
@@ -0,0 +1,142 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.utils.DijkstraPathfinder;
+import com.tin.game.utils.Node;
+import com.tin.game.utils.Position;
+
+import java.lang.management.ManagementFactory;
+import java.util.PriorityQueue;
+
+/**
+ * Dijkstra with a reused {@link com.tin.game.utils.SearchWorkspace} against the
+ * former implementation (PriorityQueue of Nodes, Position keyed maps, duplicate
+ * queue entries instead of decrease-key), on {@link RoadGrid}s where every cell
+ * is an intersection. Both answer the same random queries, time and allocated
+ * bytes are reported per query.
+ * <p>
+ * usage: DijkstraWorkspaceBenchmark [intersections..., default 1000 10000 100000 1000000]
+ * <br>the largest board needs a few GB of heap, e.g. -Pheap=6g
+ */
+public class DijkstraWorkspaceBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = { 1000, 10000, 100000, 1000000 };
+        if(args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int intersections : sizes) {
+            int side = (int) Math.ceil(Math.sqrt(intersections));
+            RoadGrid grid = new RoadGrid(side, 1);
+            // fewer queries on larger boards, the legacy search takes long there
+            run(grid, Math.max(5, 2000000 / (side * side)));
+        }
+    }
+
+    private static void run(RoadGrid grid, int queries) {
+        PathGroup group = grid.group();
+        group.getGraph();
+
+        // inner intersections only, board corners are bends inside a SubPath
+        RandomXS128 random = new RandomXS128(grid.size);
+        Position[] from = new Position[queries];
+        Position[] to = new Position[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = new Position(1 + random.nextInt(grid.size - 2), 1 + random.nextInt(grid.size - 2));
+            to[i] = new Position(1 + random.nextInt(grid.size - 2), 1 + random.nextInt(grid.size - 2));
+        }
+
+        DijkstraPathfinder pathfinder = new DijkstraPathfinder();
+        Array<PathMap.SubPath> route = new Array<>();
+        int[] lengths = new int[queries];
+
+        // warm up both, and size the workspace
+        for (int i = 0; i < Math.min(queries, 3); i++) {
+            legacyShortestPath(from[i], to[i], group);
+            pathfinder.findPath(from[i].key(), to[i].key(), group, route);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) lengths[i] = PathMap.SubPath.lengthOf(legacyShortestPath(from[i], to[i], group));
+        long legacyTime = System.nanoTime() - start;
+        long legacyBytes = allocatedBytes() - allocated;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        int mismatches = 0;
+        for (int i = 0; i < queries; i++) {
+            pathfinder.findPath(from[i].key(), to[i].key(), group, route);
+            if(PathMap.SubPath.lengthOf(route) != lengths[i]) mismatches++;
+        }
+        long workspaceTime = System.nanoTime() - start;
+        long workspaceBytes = allocatedBytes() - allocated;
+
+        System.out.println(grid.size * grid.size + " intersections, " + queries + " queries"
+            + (mismatches > 0 ? ", " + mismatches + " DIFFERENT ROUTES" : "")
+            + "  legacy: " + perQuery(legacyTime, legacyBytes, queries)
+            + "  workspace: " + perQuery(workspaceTime, workspaceBytes, queries));
+    }
+
+    private static String perQuery(long nanos, long bytes, int queries) {
+        return Math.round(nanos / 1000.0 / queries) / 1000.0 + " ms, " + bytes / queries + " B";
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // DijkstraPathfinder.dijkstraShortestPath before the search workspace
+    private static Array<PathMap.SubPath> legacyShortestPath(Position nodeA, Position nodeB, PathGroup pathGroup) {
+        if (pathGroup == null || !pathGroup.containCell(nodeA) || !pathGroup.containCell(nodeB)) {
+            return null;
+        }
+
+        PriorityQueue<Node<PathMap.SubPath>> pq = new PriorityQueue<>();
+        ObjectIntMap<Position> distances = new ObjectIntMap<>();
+        ObjectMap<Position, PathMap.SubPath> previousPath = new ObjectMap<>();
+
+        pq.add(new Node<>(nodeA, 0, null));
+        distances.put(nodeA, 0);
+
+        while (!pq.isEmpty()) {
+            Node<PathMap.SubPath> current = pq.poll();
+            Position currentPos = current.position;
+
+            if (currentPos.equals(nodeB)) {
+                Array<PathMap.SubPath> path = new Array<>();
+                Position node = nodeB;
+                while (previousPath.containsKey(node)) {
+                    PathMap.SubPath subPath = previousPath.get(node);
+                    path.add(subPath);
+                    node = subPath.getOppositeEnd(node);
+                }
+                path.reverse();
+                return path;
+            }
+
+            IntSet.IntSetIterator pathInNode = pathGroup.allCell.get(currentPos.key()).iterator();
+            while (pathInNode.hasNext) {
+                PathMap.SubPath subPath = pathGroup.allPath.get(pathInNode.next());
+                Position nextPos = subPath.getOppositeEnd(currentPos);
+                int newCost = distances.get(currentPos, 0) + subPath.getPathLength();
+
+                if (!distances.containsKey(nextPos) || newCost < distances.get(nextPos, 0)) {
+                    distances.put(nextPos, newCost);
+                    previousPath.put(nextPos, subPath);
+                    pq.add(new Node<>(nextPos, newCost, subPath));
+                }
+            }
+        }
+        return new Array<>();
+    }
+}
@@ -0,0 +1,121 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.tin.game.utils.Edge;
+import com.tin.game.utils.EdgeKey;
+import com.tin.game.utils.LongSet;
+import com.tin.game.utils.Position;
+
+/**
+ * Lookup cost of visited edge stores on an 8-connected grid:
+ * <ul>
+ *     <li>ObjectSet of {@link Edge} with the old additive hash</li>
+ *     <li>ObjectSet of {@link Edge} hashed by its {@link EdgeKey}</li>
+ *     <li>{@link LongSet} of {@link EdgeKey}s</li>
+ * </ul>
+ * Every store holds every other edge of the grid, then every edge is
+ * looked up reversed, so half of the lookups miss.
+ * <p>
+ * usage: EdgeKeyBenchmark [grid size, default 200 (~158k edges)] [rounds, default 5]
+ */
+public class EdgeKeyBenchmark {
+
+    // the hash Edge had before EdgeKey: sum of both positions' linear hashes
+    private static class AdditiveEdge extends Edge {
+        AdditiveEdge(Position pos1, Position pos2) {
+            super(pos1, pos2);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(pos1) + hash(pos2);
+        }
+
+        private static int hash(Position position) {
+            return 53 * (53 + position.col) + position.row;
+        }
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // forward edges of every cell: right, bottom left, bottom, bottom right
+        int[][] offsets = { {1, 0}, {-1, 1}, {0, 1}, {1, 1} };
+
+        Array<Position> from = new Array<>();
+        Array<Position> to = new Array<>();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] offset : offsets) {
+                    int nextCol = col + offset[0];
+                    int nextRow = row + offset[1];
+                    if(nextCol < 0 || nextCol >= size || nextRow >= size) continue;
+
+                    from.add(new Position(col, row));
+                    to.add(new Position(nextCol, nextRow));
+                }
+            }
+        }
+
+        int edges = from.size;
+        int[] fromKey = new int[edges];
+        int[] toKey = new int[edges];
+        for (int i = 0; i < edges; i++) {
+            fromKey[i] = from.get(i).key();
+            toKey[i] = to.get(i).key();
+        }
+
+        // only every other edge is stored so half of the lookups miss
+        ObjectSet<Edge> additive = new ObjectSet<>();
+        ObjectSet<Edge> packed = new ObjectSet<>();
+        LongSet keys = new LongSet();
+        Edge[] additiveQuery = new Edge[edges];
+        Edge[] packedQuery = new Edge[edges];
+
+        for (int i = 0; i < edges; i++) {
+            additiveQuery[i] = new AdditiveEdge(to.get(i), from.get(i));
+            packedQuery[i] = new Edge(to.get(i), from.get(i));
+            if(i % 2 != 0) continue;
+
+            additive.add(new AdditiveEdge(from.get(i), to.get(i)));
+            packed.add(new Edge(from.get(i), to.get(i)));
+            keys.add(EdgeKey.of(fromKey[i], toKey[i]));
+        }
+
+        System.out.println("grid " + size + "x" + size + ", " + edges + " edges, "
+            + additive.size + " stored, " + distinctHashes(additiveQuery) + " distinct additive hashes, "
+            + distinctHashes(packedQuery) + " distinct EdgeKey hashes");
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int hits = 0;
+            for (Edge edge : additiveQuery) if(additive.contains(edge)) hits++;
+            long additiveTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Edge edge : packedQuery) if(packed.contains(edge)) hits++;
+            long packedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < edges; i++) if(keys.contains(EdgeKey.of(toKey[i], fromKey[i]))) hits++;
+            long keyTime = System.nanoTime() - start;
+
+            System.out.println("round " + (round + 1) + " (" + hits + " hits)"
+                + "  additive ObjectSet: " + perLookup(additiveTime, edges)
+                + "  EdgeKey ObjectSet: " + perLookup(packedTime, edges)
+                + "  LongSet: " + perLookup(keyTime, edges));
+        }
+    }
+
+    private static int distinctHashes(Edge[] edges) {
+        ObjectSet<Integer> hashes = new ObjectSet<>();
+        for (Edge edge : edges) hashes.add(edge.hashCode());
+        return hashes.size;
+    }
+
+    private static String perLookup(long nanos, int lookups) {
+        return Math.round((double) nanos / lookups * 10) / 10.0 + " ns";
+    }
+}
@@ -0,0 +1,144 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.math.BSpline;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.parallel.ForkJoinFleetUpdater;
+import com.tin.game.system.CarFleet;
+import com.tin.game.system.SimulationClock;
+import com.tin.game.utils.ArcLengthTable;
+
+import java.util.Random;
+
+/**
+ * Steps a {@link CarFleet} of cars spread over random routes, on the calling
+ * thread and on 1, 2, 4 and 8 threads, and reports the time of one simulation
+ * step against a 16 ms frame. Every threaded fleet is checked to end where the
+ * serial one does. Also reports the cost of looking up every car's position, as
+ * a frame drawing all of them does, in the shared {@link ArcLengthTable}s against
+ * evaluating the route splines.
+ * <p>
+ * usage: FleetBenchmark [cars, default 100000] [routes, default 1000] [steps, default 120] [rounds, default 5]
+ */
+public class FleetBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    // control points of every random route
+    private static final int ROUTE_POINTS = 24;
+
+    private static int arrivals;
+
+    // keeps the position lookups from being optimized away
+    static float sink;
+
+    public static void main(String[] args) {
+        int cars = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int routes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 120;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Random random = new Random(7);
+        Array<BSpline<Vector2>> splines = new Array<>(routes);
+        for (int i = 0; i < routes; i++) splines.add(randomRoute(random));
+
+        long start = System.nanoTime();
+        ArcLengthTable[] tables = new ArcLengthTable[routes];
+        long samples = 0;
+        for (int i = 0; i < routes; i++) {
+            tables[i] = new ArcLengthTable(splines.get(i));
+            samples += tables[i].size();
+        }
+        long tableTime = System.nanoTime() - start;
+
+        float[] speeds = new float[cars];
+        int[] carRoutes = new int[cars];
+        for (int i = 0; i < cars; i++) {
+            speeds[i] = 50 + random.nextFloat() * 50;
+            carRoutes[i] = random.nextInt(routes);
+        }
+        System.out.println(cars + " cars on " + routes + " routes, " + steps + " steps per round, "
+            + Runtime.getRuntime().availableProcessors() + " cores");
+        System.out.println("arc length tables built in " + tableTime / 1000 / 1000 + " ms (cold), "
+            + samples * 12 / 1024 + " KiB");
+
+        for (int round = 0; round < rounds; round++) {
+            CarFleet serial = fleet(tables, speeds, carRoutes);
+            long serialTime = run(serial, steps);
+            StringBuilder line = new StringBuilder("round " + (round + 1) + "  serial: " + perStep(serialTime, steps));
+
+            for (int threads : THREADS) {
+                ForkJoinFleetUpdater updater = new ForkJoinFleetUpdater(threads);
+                CarFleet fleet = fleet(tables, speeds, carRoutes);
+                fleet.setUpdater(updater);
+                long time = run(fleet, steps);
+                updater.dispose();
+
+                check(serial, fleet);
+                line.append("  ").append(threads).append("t: ").append(perStep(time, steps));
+            }
+
+            Vector2 position = new Vector2();
+            start = System.nanoTime();
+            for (int i = 0; i < serial.size(); i++) {
+                sink += serial.positionOf(i, 0.5f, position).x + serial.rotationOf(i, 0.5f);
+            }
+            long drawTime = System.nanoTime() - start;
+
+            // the same lookups on the splines, by the fraction of the route driven
+            start = System.nanoTime();
+            for (int i = 0; i < serial.size(); i++) {
+                BSpline<Vector2> spline = splines.get(serial.routeOf(i));
+                float t = serial.distanceOf(i) / serial.lengthOf(serial.routeOf(i));
+                sink += spline.valueAt(position, t).x + spline.derivativeAt(position, t).angleDeg();
+            }
+            long splineTime = System.nanoTime() - start;
+
+            line.append("  positions: ").append(drawTime / 1000 / 1000.0).append(" ms, splines ")
+                .append(splineTime / 1000 / 1000.0).append(" ms  ")
+                .append(arrivals / (THREADS.length + 1)).append(" deliveries");
+            arrivals = 0;
+            System.out.println(line);
+        }
+    }
+
+    private static CarFleet fleet(ArcLengthTable[] tables, float[] speeds, int[] carRoutes) {
+        CarFleet fleet = new CarFleet((route) -> arrivals++);
+        for (ArcLengthTable table : tables) fleet.addRoute(table);
+        for (int i = 0; i < speeds.length; i++) fleet.addCar(carRoutes[i], speeds[i]);
+        return fleet;
+    }
+
+    private static long run(CarFleet fleet, int steps) {
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) fleet.update(SimulationClock.STEP_TIME);
+        return System.nanoTime() - start;
+    }
+
+    private static void check(CarFleet expected, CarFleet fleet) {
+        for (int i = 0; i < expected.size(); i++) {
+            if(expected.distanceOf(i) != fleet.distanceOf(i)) {
+                throw new IllegalStateException("car " + i + " at " + fleet.distanceOf(i) + " instead of " + expected.distanceOf(i));
+            }
+        }
+    }
+
+    private static String perStep(long time, int steps) {
+        return time / steps / 1000 / 1000.0 + " ms";
+    }
+
+    // random walk over a board of road cells
+    private static BSpline<Vector2> randomRoute(Random random) {
+        Vector2[] points = new Vector2[ROUTE_POINTS + 2];
+        float x = random.nextFloat() * 1000;
+        float y = random.nextFloat() * 1000;
+        for (int i = 1; i <= ROUTE_POINTS; i++) {
+            x += random.nextInt(3) * 32 - 32;
+            y += random.nextInt(3) * 32 - 32;
+            points[i] = new Vector2(x, y);
+        }
+        points[0] = points[1];
+        points[ROUTE_POINTS + 1] = points[ROUTE_POINTS];
+        return new BSpline<>(points, 3, false);
+    }
+}
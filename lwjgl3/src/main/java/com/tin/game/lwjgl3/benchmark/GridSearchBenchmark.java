@@ -0,0 +1,114 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.GameMap;
+import com.tin.game.core.GridPathfinder;
+import com.tin.game.core.MapCell;
+import com.tin.game.core.MapDescriptor;
+import com.tin.game.utils.CellKey;
+
+import java.util.Random;
+
+/**
+ * Routes across a board scattered with 2x2 stores and single houses, by the
+ * {@link GridPathfinder} jump point search against a plain A* over every
+ * adjacent cell. Every jump route is checked against the A* length.
+ * <p>
+ * The jump point search is also timed with a cell type edit before every
+ * query, as in the game where a spawn check follows the types written by the
+ * last town: a house is placed on a random empty cell and taken away again.
+ * <p>
+ * usage: GridSearchBenchmark [board size, default 500] [occupied percent, default 20]
+ * [queries, default 200] [rounds, default 5]
+ */
+public class GridSearchBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int occupied = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        GameMap map = new GameMap(new MapDescriptor(size, size));
+        Random random = new Random(7);
+        int target = size * size * occupied / 100;
+        for (int placed = 0; placed < target; ) {
+            int col = random.nextInt(size - 1);
+            int row = random.nextInt(size - 1);
+            if(random.nextBoolean()) {
+                for (int i = 0; i < 4; i++) setType(map, col + i % 2, row + i / 2, MapCell.CELL_TYPE.STORE);
+                placed += 4;
+            }
+            else {
+                setType(map, col, row, MapCell.CELL_TYPE.HOUSE);
+                placed++;
+            }
+        }
+        System.out.println("board " + size + "x" + size + ", " + map.getEmptyCellCount() + " empty cells");
+
+        int[] pairs = new int[queries * 2];
+        for (int i = 0; i < pairs.length; i++) pairs[i] = CellKey.of(random.nextInt(size), random.nextInt(size));
+
+        int[] edits = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            int col, row;
+            do {
+                col = random.nextInt(size);
+                row = random.nextInt(size);
+            } while(map.getTypeAt(col, row) != MapCell.CELL_TYPE.NONE);
+            edits[i] = CellKey.of(col, row);
+        }
+
+        GridPathfinder pathfinder = new GridPathfinder(map);
+        IntArray cells = new IntArray();
+        int[] lengths = new int[queries];
+
+        for (int round = 0; round < rounds; round++) {
+            long queued = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                lengths[i] = pathfinder.findPathByCells(pairs[2 * i], pairs[2 * i + 1], cells);
+                queued += pathfinder.getExpandedCount();
+            }
+            long cellTime = System.nanoTime() - start;
+
+            long jumpQueued = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int length = pathfinder.findPath(pairs[2 * i], pairs[2 * i + 1], cells);
+                if(length != lengths[i]) {
+                    throw new IllegalStateException("jump route " + length + " != A* route " + lengths[i]);
+                }
+                jumpQueued += pathfinder.getExpandedCount();
+            }
+            long jumpTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int col = CellKey.col(edits[i]);
+                int row = CellKey.row(edits[i]);
+                setType(map, col, row, MapCell.CELL_TYPE.HOUSE);
+                pathfinder.findPath(pairs[2 * i], pairs[2 * i + 1], cells);
+                setType(map, col, row, MapCell.CELL_TYPE.NONE);
+            }
+            long editTime = System.nanoTime() - start;
+
+            System.out.println("round " + (round + 1)
+                + "  A*: " + cellTime / queries / 1000.0 + " us, " + queued / queries + " queued"
+                + "  jump points: " + jumpTime / queries / 1000.0 + " us, " + jumpQueued / queries + " queued"
+                + "  after an edit: " + editTime / queries / 1000.0 + " us");
+        }
+    }
+
+    private static void setType(GameMap map, int col, int row, MapCell.CELL_TYPE type) {
+        MapCell cell;
+        try {
+            cell = map.getCellAt(col, row);
+        }
+        catch (RuntimeException notCreated) {
+            map.setCell(col, row, new MapCell(map.getDescriptor(), col, row));
+            cell = map.getCellAt(col, row);
+        }
+        cell.setType(type);
+    }
+}
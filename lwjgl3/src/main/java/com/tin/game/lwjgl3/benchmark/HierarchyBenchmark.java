@@ -0,0 +1,93 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.tin.game.core.ContractionHierarchy;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.core.SubPathGraph;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.HierarchyPathfinder;
+import com.tin.game.utils.Position;
+
+import java.util.Random;
+
+/**
+ * Contraction time of a {@link ContractionHierarchy} over a {@link RoadGrid} and
+ * the time of random intersection to intersection queries, A* against the
+ * hierarchy. Every hierarchy route is checked against the A* length.
+ * <p>
+ * usage: HierarchyBenchmark [board size, default 400] [road spacing, default 4] [queries, default 2000] [rounds, default 5]
+ */
+public class HierarchyBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int spacing = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        RoadGrid grid = new RoadGrid(size, spacing);
+        PathGroup group = grid.group();
+        SubPathGraph graph = group.getGraph();
+        System.out.println("board " + size + "x" + size + ", " + graph.nodeCount + " nodes, " + graph.edgeCount / 2 + " SubPaths");
+
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = new ContractionHierarchy(graph);
+        System.out.println("contracted in " + (System.nanoTime() - start) / 1000 / 1000 + " ms, "
+            + hierarchy.shortcutCount + " shortcuts");
+
+        // background contraction, queries keep being answered by A* meanwhile
+        HierarchyPathfinder pathfinder = new HierarchyPathfinder(new AsyncExecutor(1, "hierarchy"));
+        Position from = grid.intersection(1, 1);
+        Position to = grid.intersection(grid.lines() - 2, grid.lines() - 2);
+        start = System.nanoTime();
+        int waiting = 0;
+        while(pathfinder.hierarchyOf(graph) == null && pathfinder.isBuilding()) {
+            pathfinder.findPath(from, to, group);
+            waiting++;
+        }
+        System.out.println("background contraction took " + (System.nanoTime() - start) / 1000 / 1000 + " ms, "
+            + waiting + " A* queries answered meanwhile");
+        pathfinder.dispose();
+
+        // random inner intersections, the same pairs for both searches
+        Random random = new Random(7);
+        int inner = grid.lines() - 2;
+        int[] pairs = new int[queries * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = grid.intersection(1 + random.nextInt(inner), 1 + random.nextInt(inner)).key();
+        }
+
+        AStarPathfinder aStar = new AStarPathfinder();
+        ContractionHierarchy.Query query = new ContractionHierarchy.Query();
+        Array<PathMap.SubPath> route = new Array<>();
+        int[] lengths = new int[queries];
+
+        for (int round = 0; round < rounds; round++) {
+            long settled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                aStar.findPath(pairs[2 * i], pairs[2 * i + 1], group, route);
+                lengths[i] = PathMap.SubPath.lengthOf(route);
+                settled += aStar.getExpandedCount();
+            }
+            long aStarTime = System.nanoTime() - start;
+
+            long hierarchySettled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int length = hierarchy.findPath(pairs[2 * i], pairs[2 * i + 1], query, route);
+                if(length != lengths[i] || PathMap.SubPath.lengthOf(route) != length) {
+                    throw new IllegalStateException("hierarchy route " + length + " != A* route " + lengths[i]);
+                }
+                hierarchySettled += query.expanded;
+            }
+            long hierarchyTime = System.nanoTime() - start;
+
+            System.out.println("round " + (round + 1)
+                + "  A*: " + aStarTime / queries / 1000.0 + " us, " + settled / queries + " settled"
+                + "  hierarchy: " + hierarchyTime / queries / 1000.0 + " us, " + hierarchySettled / queries + " settled");
+        }
+    }
+}
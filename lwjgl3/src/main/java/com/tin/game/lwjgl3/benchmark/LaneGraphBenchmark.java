@@ -0,0 +1,108 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.core.LaneGraph;
+import com.tin.game.core.MapCell;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.core.SubPathGraph;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.Position;
+
+import java.util.Random;
+
+/**
+ * Size and build time of the {@link LaneGraph} of a {@link RoadGrid} against its
+ * {@link SubPathGraph}, and random intersection to intersection queries, A*
+ * over the SubPaths against A* over the lanes and turns. Every lane route is
+ * checked to drive its SubPaths end to end and to be no shorter than the A* route.
+ * <p>
+ * usage: LaneGraphBenchmark [board size, default 400] [road spacing, default 4] [queries, default 2000] [rounds, default 5]
+ */
+public class LaneGraphBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int spacing = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        RoadGrid grid = new RoadGrid(size, spacing);
+        PathGroup group = grid.group();
+        SubPathGraph graph = group.getGraph();
+
+        long start = System.nanoTime();
+        LaneGraph lanes = new LaneGraph(graph);
+        long buildTime = System.nanoTime() - start;
+
+        int subPaths = graph.edgeCount / 2;
+        System.out.println("board " + size + "x" + size + ", " + graph.nodeCount + " nodes, " + subPaths + " SubPaths");
+        System.out.println("lanes built in " + buildTime / 1000 / 1000 + " ms (cold): " + lanes.laneCount + " lanes, "
+            + lanes.turnCount + " turns, " + lanes.sizeInBytes() / 1024 + " KiB ("
+            + Math.round(lanes.laneCount * 100.0 / subPaths) / 100.0 + "x SubPaths, "
+            + Math.round(lanes.turnCount * 100.0 / subPaths) / 100.0 + "x SubPaths)");
+
+        Random random = new Random(7);
+        int inner = grid.lines() - 2;
+        int[] pairs = new int[queries * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = grid.intersection(1 + random.nextInt(inner), 1 + random.nextInt(inner)).key();
+        }
+
+        AStarPathfinder aStar = new AStarPathfinder();
+        LaneGraph.Query query = new LaneGraph.Query();
+        Array<PathMap.SubPath> route = new Array<>();
+        Array<MapCell.LANE> driven = new Array<>();
+        int[] lengths = new int[queries];
+
+        for (int round = 0; round < rounds; round++) {
+            start = System.nanoTime();
+            lanes = new LaneGraph(graph);
+            buildTime = System.nanoTime() - start;
+
+            long settled = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                aStar.findPath(pairs[2 * i], pairs[2 * i + 1], group, route);
+                lengths[i] = PathMap.SubPath.lengthOf(route);
+                settled += aStar.getExpandedCount();
+            }
+            long aStarTime = System.nanoTime() - start;
+
+            long laneSettled = 0;
+            long turnCost = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int cost = lanes.findPath(pairs[2 * i], pairs[2 * i + 1], query, route, driven);
+                check(pairs[2 * i], pairs[2 * i + 1], route, driven);
+                int length = PathMap.SubPath.lengthOf(route);
+                if(length < lengths[i] || cost < length) {
+                    throw new IllegalStateException("lane route " + length + " costs " + cost + ", A* route " + lengths[i]);
+                }
+                laneSettled += query.expanded;
+                turnCost += cost - length;
+            }
+            long laneTime = System.nanoTime() - start;
+
+            System.out.println("round " + (round + 1) + "  build: " + buildTime / 1000 / 1000 + " ms"
+                + "  A*: " + aStarTime / queries / 1000.0 + " us, " + settled / queries + " settled"
+                + "  lanes: " + laneTime / queries / 1000.0 + " us, " + laneSettled / queries + " settled, "
+                + turnCost / queries + " turn cost");
+        }
+    }
+
+    // the SubPaths have to chain from the start to the destination along their lanes
+    private static void check(int from, int to, Array<PathMap.SubPath> route, Array<MapCell.LANE> driven) {
+        int at = from;
+        for (int i = 0; i < route.size; i++) {
+            PathMap.SubPath path = route.get(i);
+            boolean forward = driven.get(i) == MapCell.LANE.LEFT;
+            Position entry = forward ? path.getStart() : path.getEnd();
+            Position exit = forward ? path.getEnd() : path.getStart();
+            if(entry.key() != at) throw new IllegalStateException("lane " + i + " starts at " + entry + " instead of " + CellKey.toString(at));
+            at = exit.key();
+        }
+        if(at != to) throw new IllegalStateException("route ends at " + CellKey.toString(at));
+    }
+}
@@ -0,0 +1,97 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.DijkstraPathfinder;
+
+/**
+ * Routing every house to its store on a {@link RoadGrid}: one search per
+ * house (Dijkstra and A*) against one {@link ShortestPathTree} per store.
+ * The stores stay fixed while the houses per store grow.
+ * <p>
+ * usage: OneToManyBenchmark [board size, default 400] [stores, default 8] [houses per store..., default 1 4 16 64]
+ */
+public class OneToManyBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int stores = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int[] housesPerStore = { 1, 4, 16, 64 };
+        if(args.length > 2) {
+            housesPerStore = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) housesPerStore[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        RoadGrid grid = new RoadGrid(size, 4);
+        PathGroup group = grid.group();
+        group.getGraph();
+        System.out.println("board " + size + "x" + size + ", " + group.allPath.size + " SubPaths, " + stores + " stores");
+
+        RandomXS128 random = new RandomXS128(size);
+        DijkstraPathfinder dijkstra = new DijkstraPathfinder();
+        AStarPathfinder aStar = new AStarPathfinder();
+        ShortestPathTree tree = new ShortestPathTree();
+        Array<PathMap.SubPath> route = new Array<>();
+
+        for (int houses : housesPerStore) {
+            int[] store = new int[stores];
+            IntArray[] house = new IntArray[stores];
+            for (int s = 0; s < stores; s++) {
+                store[s] = randomNode(grid, random);
+                house[s] = new IntArray(houses);
+                for (int h = 0; h < houses; h++) house[s].add(randomNode(grid, random));
+            }
+
+            // total route length of every method, they have to agree
+            long[] total = new long[3];
+
+            long start = System.nanoTime();
+            for (int s = 0; s < stores; s++) {
+                for (int h = 0; h < houses; h++) {
+                    dijkstra.findPath(house[s].get(h), store[s], group, route);
+                    total[0] += PathMap.SubPath.lengthOf(route);
+                }
+            }
+            long dijkstraTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int s = 0; s < stores; s++) {
+                for (int h = 0; h < houses; h++) {
+                    aStar.findPath(house[s].get(h), store[s], group, route);
+                    total[1] += PathMap.SubPath.lengthOf(route);
+                }
+            }
+            long aStarTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int s = 0; s < stores; s++) {
+                tree.build(store[s], group, house[s]);
+                for (int h = 0; h < houses; h++) {
+                    tree.pathFrom(house[s].get(h), route);
+                    total[2] += PathMap.SubPath.lengthOf(route);
+                }
+            }
+            long treeTime = System.nanoTime() - start;
+
+            System.out.println(houses + " houses per store (" + stores * houses + " routes"
+                + (total[0] == total[1] && total[1] == total[2] ? "" : ", DIFFERENT LENGTHS") + ")"
+                + "  Dijkstra per house: " + millis(dijkstraTime)
+                + "  A* per house: " + millis(aStarTime)
+                + "  tree per store: " + millis(treeTime));
+        }
+    }
+
+    // an intersection away from the board corners
+    private static int randomNode(RoadGrid grid, RandomXS128 random) {
+        int last = grid.lines() - 2;
+        return grid.intersection(1 + random.nextInt(last), 1 + random.nextInt(last)).key();
+    }
+
+    private static String millis(long nanos) {
+        return nanos / 1000 / 1000.0 + " ms";
+    }
+}
@@ -0,0 +1,68 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.MapCell;
+import com.tin.game.core.PathMap;
+import com.tin.game.utils.Position;
+
+/**
+ * Cost of {@link PathMap#updateGroups} for a single road cell removed and laid
+ * again in the middle of one {@link RoadGrid} city, against traversing all of
+ * its roads from scratch. The whole city is one group, so an edit re-traverses
+ * all of it and both times grow with the board.
+ * <p>
+ * usage: PathUpdateBenchmark [road spacing, default 8] [edits, default 20] [rounds, default 5] [board sizes, default 64 128 256 512]
+ */
+public class PathUpdateBenchmark {
+
+    public static void main(String[] args) {
+        int spacing = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int[] sizes = {64, 128, 256, 512};
+        if(args.length > 3) {
+            sizes = new int[args.length - 3];
+            for (int i = 0; i < sizes.length; i++) sizes[i] = Integer.parseInt(args[i + 3]);
+        }
+
+        for (int size : sizes) {
+            RoadGrid grid = new RoadGrid(size, spacing);
+            System.out.println("board " + size + "x" + size + ", " + grid.roadMap.roadCount() + " road cells, "
+                + grid.group().allPath.size + " SubPaths");
+
+            IntArray allNodes = new IntArray(grid.roadMap.roadCount());
+            grid.roadMap.forEachRoad(allNodes::add);
+
+            // a cell between two crossings in the middle of the city
+            int inner = grid.lines() - 2;
+            Position crossing = grid.intersection(inner / 2, inner / 2);
+            MapCell left = grid.map.getCellAt(crossing.col + 1, crossing.row);
+            MapCell cell = grid.map.getCellAt(crossing.col + 2, crossing.row);
+            MapCell right = grid.map.getCellAt(crossing.col + 3, crossing.row);
+            IntArray dirty = IntArray.with(left.pos.key(), cell.pos.key(), right.pos.key());
+
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                grid.pathMap.updateGroups(allNodes);
+                long fullTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < edits; i++) {
+                    grid.roadMap.removeRoad(cell);
+                    grid.pathMap.updateGroups(dirty);
+
+                    grid.roadMap.pushRoad(left, cell);
+                    grid.roadMap.pushRoad(cell, right);
+                    grid.pathMap.updateGroups(dirty);
+                }
+                long editTime = System.nanoTime() - start;
+
+                if(grid.group() != grid.pathMap.getGroup(right.pos)) {
+                    throw new IllegalStateException("the city is no longer one group after the edits");
+                }
+                System.out.println("round " + (round + 1) + "  from scratch: " + fullTime / 1000 / 1000.0
+                    + " ms  one edit: " + editTime / (edits * 2) / 1000 / 1000.0 + " ms");
+            }
+        }
+    }
+}
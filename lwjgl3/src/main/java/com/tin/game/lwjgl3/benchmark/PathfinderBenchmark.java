@@ -0,0 +1,62 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.utils.AStarPathfinder;
+import com.tin.game.utils.BidirectionalDijkstraPathfinder;
+import com.tin.game.utils.DijkstraPathfinder;
+import com.tin.game.utils.IPathfinder;
+import com.tin.game.utils.Position;
+
+/**
+ * Settled nodes and time of every {@link IPathfinder} for cross-city
+ * routes through a {@link RoadGrid}, west to east and corner to corner.
+ * <p>
+ * usage: PathfinderBenchmark [board size, default 1000] [road spacing, default 4] [rounds, default 5]
+ */
+public class PathfinderBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int spacing = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        RoadGrid grid = new RoadGrid(size, spacing);
+        PathGroup group = grid.group();
+        // corners are bends inside a SubPath, the first inner intersections are nodes
+        int last = grid.lines() - 2;
+        Position[][] routes = {
+            { grid.intersection(1, last / 2), grid.intersection(last, last / 2) }, // west -> east
+            { grid.intersection(1, 1), grid.intersection(last, last) },            // corner -> corner
+        };
+
+        System.out.println("board " + size + "x" + size + ", " + grid.roadMap.roadCount() + " road cells, "
+            + group.allPath.size + " SubPaths");
+
+        IPathfinder[] pathfinders = {
+            new DijkstraPathfinder(),
+            new AStarPathfinder(),
+            new BidirectionalDijkstraPathfinder(),
+        };
+
+        for (Position[] route : routes) {
+            System.out.println("route " + route[0] + " -> " + route[1]);
+
+            for (int round = 0; round < rounds; round++) {
+                StringBuilder line = new StringBuilder("round " + (round + 1));
+                for (IPathfinder pathfinder : pathfinders) {
+                    long start = System.nanoTime();
+                    Array<PathMap.SubPath> found = pathfinder.findPath(route[0], route[1], group);
+                    long time = System.nanoTime() - start;
+
+                    line.append("  ").append(pathfinder.getClass().getSimpleName())
+                        .append(": ").append(pathfinder.getExpandedCount()).append(" settled, ")
+                        .append(PathMap.SubPath.lengthOf(found)).append(" long, ")
+                        .append(time / 1000 / 1000.0).append(" ms");
+                }
+                System.out.println(line);
+            }
+        }
+    }
+}
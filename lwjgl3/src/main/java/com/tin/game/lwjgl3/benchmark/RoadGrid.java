@@ -0,0 +1,78 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.tin.game.core.BitmaskRoadMap;
+import com.tin.game.core.GameMap;
+import com.tin.game.core.MapCell;
+import com.tin.game.core.MapDescriptor;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.PathMap;
+import com.tin.game.core.PathMapTraverser;
+import com.tin.game.utils.Position;
+
+/**
+ * Headless city for the benchmarks: straight roads along every spacing-th
+ * row and column of a square board, crossing at 4 way intersections.
+ * Only road cells get a {@link MapCell}, so no GL context is needed.
+ */
+class RoadGrid {
+    final GameMap map;
+    final BitmaskRoadMap roadMap;
+    final PathMap pathMap;
+
+    final int size;
+    final int spacing;
+
+    RoadGrid(int size, int spacing) {
+        this.size = size;
+        this.spacing = spacing;
+        this.map = new GameMap(new MapDescriptor(size, size));
+        this.roadMap = new BitmaskRoadMap(map.getDescriptor());
+
+        for (int line = 0; line < size; line += spacing) {
+            for (int i = 1; i < size; i++) {
+                pushRoad(i - 1, line, i, line);
+                pushRoad(line, i - 1, line, i);
+            }
+        }
+
+        this.pathMap = new PathMap(new PathMapTraverser(map, roadMap::getAdjacentMask));
+        this.pathMap.init();
+
+        IntArray nodes = new IntArray(roadMap.roadCount());
+        roadMap.forEachRoad(nodes::add);
+        pathMap.updateGroups(nodes);
+    }
+
+    private void pushRoad(int fromCol, int fromRow, int toCol, int toRow) {
+        roadMap.pushRoad(cellAt(fromCol, fromRow), cellAt(toCol, toRow));
+    }
+
+    private MapCell cellAt(int col, int row) {
+        try {
+            return map.getCellAt(col, row);
+        }
+        catch (RuntimeException notCreated) {
+            map.setCell(col, row, new MapCell(map.getDescriptor(), col, row));
+            return map.getCellAt(col, row);
+        }
+    }
+
+    /**
+     * @return the intersection at the given multiple of the spacing
+     */
+    Position intersection(int column, int row) {
+        return new Position(column * spacing, row * spacing);
+    }
+
+    /**
+     * @return number of intersections along one side
+     */
+    int lines() {
+        return (size - 1) / spacing + 1;
+    }
+
+    PathGroup group() {
+        return pathMap.getGroup(new Position(0, 0));
+    }
+}
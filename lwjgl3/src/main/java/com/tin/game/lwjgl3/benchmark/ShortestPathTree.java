@@ -0,0 +1,130 @@
+package com.tin.game.lwjgl3.benchmark;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+import com.tin.game.core.PathGroup;
+import com.tin.game.core.SubPathGraph;
+import com.tin.game.utils.CellKey;
+import com.tin.game.utils.SearchWorkspace;
+
+import static com.tin.game.core.PathMap.SubPath;
+
+/**
+ * One-to-many routing: a single Dijkstra search from a root, e.g. a store,
+ * answers the route of every node it reached. SubPaths are undirected, so the
+ * route from a node to the root is its parent chain in travel order.
+ * <p>
+ * The tree stays valid until the group's SubPaths change or it is rebuilt.
+ * The game keeps a {@link com.tin.game.core.DynamicShortestPathTree} per store
+ * instead, this static tree is only the baseline of {@link OneToManyBenchmark}.
+ */
+class ShortestPathTree {
+
+    private final SearchWorkspace workspace;
+
+    // node ids of the targets not settled yet
+    private final IntSet pending;
+
+    private PathGroup group;
+    private SubPathGraph graph;
+    private int root = -1;
+
+    // nodes settled by the last build
+    private int expanded;
+
+    public ShortestPathTree() {
+        this.workspace = new SearchWorkspace();
+        this.pending = new IntSet();
+    }
+
+    /**
+     * Grow the whole tree of the group around root.
+     * @param root {@link CellKey} of the root
+     * @return false if root is not a SubPath end of the group
+     */
+    public boolean build(int root, PathGroup pathGroup) {
+        return build(root, pathGroup, null);
+    }
+
+    /**
+     * Grow the tree around root until every target is settled.
+     * @param targets {@link CellKey}s whose routes are needed, null for the whole group
+     * @return false if root is not a SubPath end of the group
+     */
+    public boolean build(int root, PathGroup pathGroup, IntArray targets) {
+        this.group = pathGroup;
+        this.graph = pathGroup.getGraph();
+        this.root = graph.idOf(root);
+        this.expanded = 0;
+        if (this.root < 0) return false;
+
+        // targets that are not SubPath ends can't be settled
+        pending.clear();
+        if (targets != null) {
+            for (int i = 0; i < targets.size; i++) {
+                int target = graph.idOf(targets.get(i));
+                if (target >= 0) pending.add(target);
+            }
+        }
+
+        workspace.reset(graph.nodeCount);
+        workspace.relax(this.root, 0, -1, 0);
+
+        while (workspace.hasQueued()) {
+            int current = workspace.settleNext();
+            expanded++;
+
+            if (targets != null && pending.remove(current) && pending.size == 0) break;
+
+            int distance = workspace.distanceOf(current);
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                int next = graph.targetOf(edge);
+                if (workspace.isSettled(next)) continue;
+
+                int newCost = distance + graph.costOf(edge);
+                if (newCost < workspace.distanceOf(next)) workspace.relax(next, newCost, edge, newCost);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return route length from a node to the root, {@link SearchWorkspace#UNREACHED} if it has none
+     */
+    public int distanceTo(int key) {
+        int node = nodeOf(key);
+        if (node < 0 || !workspace.isSettled(node)) return SearchWorkspace.UNREACHED;
+        return workspace.distanceOf(node);
+    }
+
+    /**
+     * Write the route from a node to the root into out, in travel order.
+     * @param key {@link CellKey} of the node
+     * @return false if the node was not reached by the tree
+     */
+    public boolean pathFrom(int key, Array<SubPath> out) {
+        out.clear();
+        int node = nodeOf(key);
+        if (node < 0 || !workspace.isSettled(node)) return false;
+
+        for (int edge = workspace.parentOf(node); edge >= 0; edge = workspace.parentOf(node)) {
+            out.add(graph.pathOf(edge));
+            node = graph.sourceOf(edge);
+        }
+        return true;
+    }
+
+    public PathGroup getGroup() {
+        return group;
+    }
+
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    private int nodeOf(int key) {
+        if (graph == null || root < 0) return -1;
+        return graph.idOf(key);
+    }
+}